@@ -0,0 +1,119 @@
+package Crawler;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Offline comparison of FIFO and OPIC frontier order on a synthetic web graph
+// (power-law in-degrees, mostly same-host links). Crawls the same page budget
+// both ways and reports how much of the graph's PageRank the crawled pages hold.
+//   FrontierOrderBenchmark [pages] [hosts] [budget]
+public class FrontierOrderBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int hostCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int budget = args.length > 2 ? Integer.parseInt(args[2]) : 8_000;
+
+        int[][] links = buildGraph(pages, hostCount, 12, new Random(42));
+        double[] rank = pageRank(links, 0.85, 50);
+        double[] sorted = rank.clone();
+        Arrays.sort(sorted);
+        double best = 0;
+        for (int i = 0; i < budget; i++) best += sorted[sorted.length - 1 - i];
+
+        List<Integer> seeds = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20; i++) seeds.add(random.nextInt(pages));
+
+        System.out.printf("%d pages on %d hosts, budget %d, best possible PageRank share %.3f%n",
+                pages, hostCount, budget, best);
+        for (boolean byImportance : new boolean[]{false, true}) {
+            long start = System.nanoTime();
+            double share = crawl(links, rank, hostCount, seeds, budget, byImportance);
+            System.out.printf("%-5s PageRank share of crawled pages %.3f (%.0f%% of best) in %d ms%n",
+                    byImportance ? "opic" : "fifo", share, 100 * share / best,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private static String url(int page, int hostCount) {
+        return "https://host" + (page % hostCount) + ".example/page" + page;
+    }
+
+    private static int pageOf(String url) {
+        return Integer.parseInt(url.substring(url.lastIndexOf("page") + 4));
+    }
+
+    // Same loop as the crawler: poll, "fetch", split cash over outlinks, enqueue unseen links
+    private static double crawl(int[][] links, double[] rank, int hostCount, List<Integer> seeds,
+                                int budget, boolean byImportance) throws InterruptedException {
+        HostFrontier frontier = new HostFrontier(new RobotsManager(), 1, byImportance);
+        Set<Integer> visited = new HashSet<>();
+        for (int seed : seeds) frontier.add(url(seed, hostCount), HostFrontier.SEED_CASH);
+
+        double share = 0;
+        while (visited.size() < budget && !frontier.isEmpty()) {
+            String url = frontier.poll(0, TimeUnit.MILLISECONDS);
+            if (url == null) break;
+            frontier.release(url, false); // no politeness delay in a simulation
+            int page = pageOf(url);
+            if (!visited.add(page)) continue;
+            share += rank[page];
+
+            double cash = links[page].length == 0 ? 0 : frontier.takeCash(url) / links[page].length;
+            for (int target : links[page]) {
+                if (!visited.contains(target)) {
+                    frontier.add(url(target, hostCount), cash);
+                }
+            }
+        }
+        return share;
+    }
+
+    // Preferential attachment: a link targets a page with probability ~ its in-degree,
+    // 70% of links stay on the source's host
+    private static int[][] buildGraph(int pages, int hostCount, int outDegree, Random random) {
+        int[][] links = new int[pages][];
+        int[] targets = new int[pages * outDegree + pages];
+        int targetCount = 0;
+        for (int page = 0; page < pages; page++) {
+            targets[targetCount++] = page; // every page can be linked once it exists
+        }
+        for (int page = 0; page < pages; page++) {
+            int degree = 1 + random.nextInt(2 * outDegree);
+            links[page] = new int[degree];
+            for (int i = 0; i < degree; i++) {
+                int target = targets[random.nextInt(targetCount)];
+                if (random.nextDouble() < 0.7) {
+                    // Same host: page ids congruent to page mod hostCount
+                    target = target - target % hostCount + page % hostCount;
+                    if (target >= pages) target -= hostCount;
+                }
+                links[page][i] = target;
+                if (targetCount < targets.length) targets[targetCount++] = target;
+            }
+        }
+        return links;
+    }
+
+    private static double[] pageRank(int[][] links, double damping, int iterations) {
+        int n = links.length;
+        double[] rank = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+        for (int it = 0; it < iterations; it++) {
+            double[] next = new double[n];
+            double dangling = 0;
+            for (int page = 0; page < n; page++) {
+                if (links[page].length == 0) {
+                    dangling += rank[page];
+                    continue;
+                }
+                double share = rank[page] / links[page].length;
+                for (int target : links[page]) next[target] += share;
+            }
+            double base = (1 - damping) / n + damping * dangling / n;
+            for (int page = 0; page < n; page++) next[page] = base + damping * next[page];
+            rank = next;
+        }
+        return rank;
+    }
+}
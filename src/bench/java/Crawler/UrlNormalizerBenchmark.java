@@ -0,0 +1,242 @@
+package Crawler;
+
+import org.jsoup.Jsoup;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Throughput comparison of UrlNormalizer against the previous URI/Jsoup based normalizeUrl.
+//   UrlNormalizerBenchmark [corpus file: one "baseUrl<TAB>href" per line]
+// Without a corpus file, links are generated from src/seed.txt in the shapes pages usually
+// contain (relative paths, dot segments, tracking parameters, fragments, mailto:, ...).
+// Each variant runs warm-up rounds first so the JIT has compiled it before timing.
+public class UrlNormalizerBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    private static Set<String> excludedParams;
+    private static final ConcurrentHashMap<String, String> urlNormalizeCache = new ConcurrentHashMap<>(10000);
+
+    public static void main(String[] args) throws IOException {
+        excludedParams = Crawler.readExcludeParams("src/exclude_params.txt");
+        List<String[]> corpus = args.length > 0 ? readCorpus(args[0]) : generateCorpus(readSeeds("src/seed.txt"), 200_000);
+        System.out.println("Corpus: " + corpus.size() + " links");
+
+        // Differences are expected where the old code was lossy (decoded queries, "" vs "/" paths)
+        UrlNormalizer normalizer = new UrlNormalizer(excludedParams, 100_000);
+        int differ = 0;
+        for (String[] link : corpus) {
+            if (!Objects.equals(normalizer.normalize(link[1], link[0]), legacyNormalize(link[1], link[0]))) differ++;
+        }
+        System.out.println("Results differing from the old normalizer: " + differ);
+
+        run("old normalizeUrl (URI + Jsoup, capped cache)", corpus, link -> legacyNormalize(link[1], link[0]));
+        UrlNormalizer uncached = new UrlNormalizer(excludedParams, 0);
+        run("UrlNormalizer, no cache", corpus, link -> uncached.normalize(link[1], link[0]));
+        UrlNormalizer cached = new UrlNormalizer(excludedParams, 100_000);
+        run("UrlNormalizer, 100k LRU cache", corpus, link -> cached.normalize(link[1], link[0]));
+    }
+
+    private interface Op {
+        String apply(String[] link);
+    }
+
+    private static void run(String name, List<String[]> corpus, Op op) {
+        long sink = 0;
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            for (String[] link : corpus) {
+                String s = op.apply(link);
+                if (s != null) sink += s.length();
+            }
+        }
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int r = 0; r < MEASURED_ROUNDS; r++) {
+            long start = System.nanoTime();
+            for (String[] link : corpus) {
+                String s = op.apply(link);
+                if (s != null) sink += s.length();
+            }
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+        System.out.printf("%-48s avg %8.1f ns/link, best %8.1f ns/link (%d)%n", name,
+                (double) total / MEASURED_ROUNDS / corpus.size(), (double) best / corpus.size(), sink % 10);
+    }
+
+    private static List<String> readSeeds(String fileName) throws IOException {
+        List<String> seeds = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.isBlank()) seeds.add(line.trim());
+            }
+        }
+        return seeds;
+    }
+
+    private static List<String[]> readCorpus(String fileName) throws IOException {
+        List<String[]> corpus = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split("\t", 2);
+                if (parts.length == 2) corpus.add(parts);
+            }
+        }
+        return corpus;
+    }
+
+    // About a third of the links repeat (navigation, footers), the rest are unique
+    private static List<String[]> generateCorpus(List<String> seeds, int size) {
+        Random random = new Random(42);
+        String[] shapes = {
+                "/en/articles/%d", "../en/topic-%d/", "./page-%d.html", "/en/search?q=item%d&utm_source=feed&utm_medium=rss",
+                "/en/news/%d?ref=home#comments", "https://cdn.example.com/img/%d.png", "mailto:team%d@example.com",
+                "/en/a/b/../c/%d/./d", "?page=%d", "/EN/Products/%d?sessionid=abc&color=red", "#section-%d",
+                "//static.example.org/en/%d/", "/en/%%7Euser/%d/%%20file", "javascript:void(%d)"
+        };
+        List<String[]> corpus = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String base = seeds.get(random.nextInt(seeds.size()));
+            int id = random.nextInt(3) == 0 ? random.nextInt(50) : i;
+            String href = String.format(shapes[random.nextInt(shapes.length)], id);
+            corpus.add(new String[]{base, href});
+        }
+        return corpus;
+    }
+
+    // Previous Crawler.normalizeUrl, kept as the baseline
+    private static String legacyNormalize(String url, String baseUrl) {
+        // Check cache first
+        String cacheKey = url + "|" + (baseUrl == null ? "" : baseUrl);
+        String cached = urlNormalizeCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (url == null || url.trim().isEmpty()) {
+            return null;
+        }
+
+
+
+
+        // Quick filters for common non-http URLs
+        if (url.startsWith("javascript:") || url.startsWith("mailto:") || url.startsWith("tel:") ||
+                url.startsWith("#") || url.startsWith("data:")) {
+            return null;
+        }
+
+        // Filter out certain file types
+        if (url.endsWith(".pdf") || url.endsWith(".jpg") || url.endsWith(".jpeg") ||
+                url.endsWith(".png") || url.endsWith(".gif") || url.endsWith(".css") ||
+                url.endsWith(".js") || url.endsWith(".zip") || url.endsWith(".mp4") ||
+                url.endsWith(".mp3")) {
+            return null;
+        }
+
+        // Sanitize input URL
+        url = url.replaceAll("\\?+", "?");
+
+        while (url.endsWith("?")) {
+            url = url.substring(0, url.length() - 1);
+        }
+
+        // Resolve relative URLs
+        if (!url.startsWith("http") && baseUrl != null && !baseUrl.isEmpty()) {
+            try {
+                org.jsoup.nodes.Document doc = Jsoup.parse("<a href=\"" + url + "\"></a>", baseUrl);
+                url = doc.select("a").first().absUrl("href");
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        // Parse and normalize URL
+        URI uri;
+        try {
+            uri = new URI(url).normalize();
+        } catch (Exception e) {
+            return null;
+        }
+
+
+        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase() : "http";
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            return null;
+        }
+
+        String host = uri.getHost() != null ? uri.getHost().toLowerCase() : "";
+        if (host.isEmpty()) {
+            return null;
+        }
+
+        int port = uri.getPort();
+        if ((port == 80 && "http".equals(scheme)) || (port == 443 && "https".equals(scheme))) {
+            port = -1;
+        }
+
+        String path = uri.getPath() != null ? uri.getPath() : "/";
+
+        ///  filter non english
+        String[] segments = path.split("/");
+        if (segments.length > 1) {
+            String langCode = segments[1].toLowerCase();
+            if (!langCode.startsWith("en")) {
+                return null;
+            }
+        }
+
+
+
+        String query = uri.getQuery();
+        String newQuery = null;
+
+        if (query != null && !query.isEmpty()) {
+            try {
+
+                StringBuilder queryBuilder = new StringBuilder();
+                boolean firstParam = true;
+
+                for (String param : query.split("&")) {
+                    String[] parts = param.split("=", 2);
+                    if (parts.length == 2 && !parts[0].isEmpty() && !excludedParams.contains(parts[0].toLowerCase())) {
+                        if (!firstParam) {
+                            queryBuilder.append('&');
+                        } else {
+                            firstParam = false;
+                        }
+                        queryBuilder.append(parts[0]).append('=').append(parts[1]);
+                    }
+                }
+
+                if (queryBuilder.length() > 0) {
+                    newQuery = queryBuilder.toString();
+                }
+            } catch (Exception e) {
+                newQuery = null;
+            }
+        }
+
+        try {
+            String normalizedUrl = new URI(scheme, null, host, port, path, newQuery, null).toString();
+            // Cache the result
+            if (urlNormalizeCache.size() < 10000) {
+                urlNormalizeCache.put(cacheKey, normalizedUrl);
+            }
+
+            normalizedUrl.replace("?", "");
+
+            return normalizedUrl;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+}
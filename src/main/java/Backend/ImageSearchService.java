@@ -1,6 +1,7 @@
 package Backend;
 
 import ImageSearching.ImageFeatureExtractor;
+import Utils.Utils;
 import Utils.WebDocument;
 import ai.onnxruntime.OrtException;
 import com.mongodb.client.AggregateIterable;
@@ -16,10 +17,6 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.util.*;
 import java.util.stream.IntStream;
 
@@ -58,15 +55,8 @@ public class ImageSearchService {
             throw new IllegalArgumentException("Image URL cannot be empty");
         }
 
-        // Fetch image
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("User-Agent", "Mozilla/5.0")
-                .GET()
-                .build();
-        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
-        byte[] imageData = response.body();
+        // Fetch image through the shared client (pooled connections, cached DNS)
+        byte[] imageData = Utils.downloadImage(url);
 
         // Verify it's an image
         try (ByteArrayInputStream inputStream = new ByteArrayInputStream(imageData)) {
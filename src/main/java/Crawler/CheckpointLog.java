@@ -0,0 +1,285 @@
+package Crawler;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Write-ahead log of crawl progress plus periodic compacted snapshots.
+//
+// Every frontier insert (ENQUEUE) and every URL taken for fetching (VISIT) is
+// appended as a small CRC-framed record, so a checkpoint costs the same no matter
+// how big the crawl is. snapshot() rotates to a new log file, writes the whole
+// frontier once, and deletes the logs the snapshot covers.
+// Recovery = load snapshot.bin, then replay every wal-<gen>.log with gen >= its walGeneration.
+public class CheckpointLog implements Closeable {
+    private static final int SNAPSHOT_MAGIC = 0x46434b50; // "FCKP"
+    private static final byte ENQUEUE = 1;
+    private static final byte VISIT = 2;
+    private static final byte PAGES = 3;
+
+    private final Path dir;
+    private final Path snapshotFile;
+    private DataOutputStream wal;
+    private FileOutputStream walFile;
+    private long walGeneration;
+    private long recordsSinceSnapshot = 0;
+    private final boolean hadData; // decided before this run opens its own log
+
+    // State rebuilt by recover()
+    public static class State {
+        public final LinkedHashMap<Long, String> frontier = new LinkedHashMap<>();
+        public final List<Long> visited = new ArrayList<>();
+        public int pageCount = 0;
+        public long records = 0;
+    }
+
+    public CheckpointLog(Path dir) throws IOException {
+        this.dir = dir;
+        this.snapshotFile = dir.resolve("snapshot.bin");
+        Files.createDirectories(dir);
+        this.hadData = Files.exists(snapshotFile) || hasNonEmptyWal();
+        this.walGeneration = Math.max(latestWalGeneration(), readSnapshotGeneration());
+        openWal(walGeneration + 1);
+    }
+
+    // True if an earlier run left a snapshot or logged anything; the log this run
+    // opened, and empty logs of runs that stopped before logging, don't count
+    public boolean hasData() {
+        return hadData;
+    }
+
+    private boolean hasNonEmptyWal() throws IOException {
+        for (long gen : walGenerations()) {
+            if (Files.size(walPath(gen)) > 0) return true;
+        }
+        return false;
+    }
+
+    public synchronized void logEnqueue(String url) {
+        append(ENQUEUE, url, 0);
+    }
+
+    public synchronized void logVisit(String url) {
+        append(VISIT, null, VisitedStore.fingerprint(url));
+    }
+
+    // Makes everything logged so far durable. Called once per stored batch.
+    public synchronized void flush(int pageCount) {
+        append(PAGES, null, pageCount);
+        try {
+            wal.flush();
+            walFile.getFD().sync();
+        } catch (IOException e) {
+            System.err.println("Failed to sync checkpoint log: " + e.getMessage());
+        }
+    }
+
+    public synchronized long recordsSinceSnapshot() {
+        return recordsSinceSnapshot;
+    }
+
+    // Writes a compacted snapshot. The frontier/visited state is read only after the
+    // log is rotated, so anything it misses is guaranteed to be in the new log.
+    // Returns true once the snapshot is installed.
+    public boolean snapshot(HostFrontier frontier, VisitedStore visited, int pageCount) {
+        long coveredGeneration;
+        synchronized (this) {
+            coveredGeneration = walGeneration;
+            try {
+                closeWal();
+                openWal(walGeneration + 1);
+            } catch (IOException e) {
+                System.err.println("Failed to rotate checkpoint log: " + e.getMessage());
+                return false;
+            }
+            recordsSinceSnapshot = 0;
+        }
+
+        visited.flush();
+        List<String> urls = frontier.snapshot();
+        Path tmp = dir.resolve("snapshot.tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(coveredGeneration + 1); // first log not covered by this snapshot
+            out.writeInt(pageCount);
+            out.writeInt(urls.size());
+            for (String url : urls) {
+                out.writeUTF(url);
+            }
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            System.err.println("Failed to write crawl snapshot: " + e.getMessage());
+            return false;
+        }
+
+        try {
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to install crawl snapshot: " + e.getMessage());
+            return false;
+        }
+        try {
+            for (long gen : walGenerations()) {
+                if (gen <= coveredGeneration) {
+                    Files.deleteIfExists(walPath(gen));
+                }
+            }
+            System.out.println("Crawl snapshot: " + urls.size() + " URLs in frontier, " + pageCount + " pages");
+        } catch (IOException e) {
+            System.err.println("Failed to delete compacted checkpoint logs: " + e.getMessage());
+        }
+        return true;
+    }
+
+    // Replays snapshot + log tail. Safe on a torn last record: replay stops there.
+    public State recover() throws IOException {
+        State state = new State();
+        long firstGeneration = 0;
+
+        if (Files.exists(snapshotFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16))) {
+                if (in.readInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("Not a crawl snapshot: " + snapshotFile);
+                }
+                firstGeneration = in.readLong();
+                state.pageCount = in.readInt();
+                int n = in.readInt();
+                for (int i = 0; i < n; i++) {
+                    String url = in.readUTF();
+                    state.frontier.put(VisitedStore.fingerprint(url), url);
+                }
+            }
+        }
+
+        for (long gen : walGenerations()) {
+            if (gen >= firstGeneration && gen != walGeneration) {
+                replay(walPath(gen), state);
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            closeWal();
+        } catch (IOException e) {
+            System.err.println("Failed to close checkpoint log: " + e.getMessage());
+        }
+    }
+
+    private void replay(Path file, State state) throws IOException {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                long expectedCrc = in.readInt() & 0xffffffffL;
+                if (length <= 0 || length > 1 << 16) return;
+                byte[] payload = new byte[length];
+                try {
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    return; // torn write at crash time
+                }
+                crc.reset();
+                crc.update(payload);
+                if (crc.getValue() != expectedCrc) return;
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                byte type = record.readByte();
+                if (type == ENQUEUE) {
+                    String url = record.readUTF();
+                    state.frontier.put(VisitedStore.fingerprint(url), url);
+                } else if (type == VISIT) {
+                    long fp = record.readLong();
+                    state.frontier.remove(fp);
+                    state.visited.add(fp);
+                } else if (type == PAGES) {
+                    state.pageCount = (int) record.readLong();
+                }
+                state.records++;
+            }
+        }
+    }
+
+    // Caller must hold the monitor
+    private void append(byte type, String text, long value) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+            DataOutputStream record = new DataOutputStream(buffer);
+            record.writeByte(type);
+            if (text != null) {
+                record.writeUTF(text);
+            } else {
+                record.writeLong(value);
+            }
+            byte[] payload = buffer.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            wal.writeInt(payload.length);
+            wal.writeInt((int) crc.getValue());
+            wal.write(payload);
+            recordsSinceSnapshot++;
+        } catch (IOException e) {
+            System.err.println("Failed to append checkpoint record: " + e.getMessage());
+        }
+    }
+
+    private void openWal(long generation) throws IOException {
+        walGeneration = generation;
+        walFile = new FileOutputStream(walPath(generation).toFile(), true);
+        wal = new DataOutputStream(new BufferedOutputStream(walFile, 1 << 16));
+    }
+
+    private void closeWal() throws IOException {
+        if (wal != null) {
+            wal.flush();
+            walFile.getFD().sync();
+            wal.close();
+        }
+    }
+
+    private Path walPath(long generation) {
+        return dir.resolve("wal-" + generation + ".log");
+    }
+
+    private long readSnapshotGeneration() throws IOException {
+        if (!Files.exists(snapshotFile)) return -1;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshotFile))) {
+            return in.readInt() == SNAPSHOT_MAGIC ? in.readLong() : -1;
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    private long latestWalGeneration() throws IOException {
+        List<Long> generations = walGenerations();
+        return generations.isEmpty() ? -1 : generations.get(generations.size() - 1);
+    }
+
+    private List<Long> walGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (name.startsWith("wal-") && name.endsWith(".log")) {
+                    try {
+                        generations.add(Long.parseLong(name.substring(4, name.length() - 4)));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+}
@@ -1,56 +1,145 @@
 package Crawler;
 
 import com.mongodb.client.MongoCollection;
+import Utils.NetworkLayer;
 import dbManager.dbManager;
 import org.bson.Document;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
 import java.io.*;
-import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class Crawler {
-    private final ConcurrentLinkedQueue<String> urlsToCrawl = new ConcurrentLinkedQueue<>();
-    private final Set<String> visited = ConcurrentHashMap.newKeySet();
+    private final HostFrontier urlsToCrawl; // per-host politeness queues
+    private final VisitedStore visited; // bloom filter + memory-mapped fingerprint file
+    private final CheckpointLog checkpointLog; // enqueue/visit deltas + periodic snapshots
+    private final FrontierSpill frontierSpill; // frontier URLs beyond the in-memory limit
+    private final NearDuplicateIndex duplicates = new NearDuplicateIndex(); // simhash LSH of stored pages
+    private final AtomicBoolean closed = new AtomicBoolean(false);
     private final AtomicInteger pageCount = new AtomicInteger(0); /// thread safe int
-    private final int maxPages = 8000;
+    private static final int TOTAL_MAX_PAGES = 8000;
+    private final int maxPages; // this partition's share of TOTAL_MAX_PAGES
     private final RobotsManager robotsM;
     private final ExecutorService executor;
     private final int numThreads = 10;
     private final dbManager mongo; // database agent
-    private static Set<String> excludedParams; // file for reading normalization
-    // cache for normalized URLs to avoid re-normalizing
-    private final ConcurrentHashMap<String, String> urlNormalizeCache = new ConcurrentHashMap<>(10000);
-    // cache for canCrawl in robots  results
-    private final ConcurrentHashMap<String, Boolean> canCrawlCache = new ConcurrentHashMap<>(1000);
+    private final UrlNormalizer urlNormalizer; // RFC 3986 resolution + LRU cache
+    private final Partitioner partitioner; // which hosts this process crawls
+    private final OutlinkExchange exchange; // links for other partitions, null when crawling alone
+    private final String stateId; // progress document in crawler_state
+    private final SitemapLoader sitemaps; // URLs from the Sitemap: lines of robots.txt
+    private final WarcWriter warcWriter; // archives every response, null unless recording
+    private final WarcReplayFetcher replay; // serves responses from archives, null unless replaying
 
     public Crawler() {
+        this(new Partitioner(CrawlerConfig.PARTITION_ID, CrawlerConfig.PARTITION_COUNT));
+    }
+
+    public Crawler(Partitioner partitioner) {
+        this(partitioner, CrawlerConfig.WARC_MODE, CrawlerConfig.WARC_DIR);
+    }
+
+    // warcMode: "off", "record" (archive responses under warcDir) or "replay" (crawl the archives offline)
+    public Crawler(Partitioner partitioner, String warcMode, String warcDir) {
+        this.partitioner = partitioner;
+        this.maxPages = (TOTAL_MAX_PAGES + partitioner.getCount() - 1) / partitioner.getCount();
         this.mongo = new dbManager();
-        this.robotsM = new RobotsManager();
-        this.executor = new ThreadPoolExecutor(
-                numThreads,
-                numThreads,
-                60L,
-                TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(10000),
-                new ThreadPoolExecutor.CallerRunsPolicy() // If queue is full, execute in the calling thread
-        );
-        readExcludeParams();
+        Path dataDir = Paths.get(CrawlerConfig.DATA_DIR);
+        try {
+            if ("replay".equalsIgnoreCase(warcMode)) {
+                this.replay = new WarcReplayFetcher(Paths.get(warcDir));
+                this.warcWriter = null;
+                dataDir = dataDir.resolve("replay"); // don't resume (or overwrite) the recorded crawl's state
+            } else if ("record".equalsIgnoreCase(warcMode)) {
+                this.replay = null;
+                String prefix = partitioner.isPartitioned() ? "falcony-p" + partitioner.getId() : "falcony";
+                this.warcWriter = new WarcWriter(Paths.get(warcDir), prefix, CrawlerConfig.WARC_MAX_FILE_MB * 1024L * 1024);
+                System.out.println("Recording responses to WARC files under " + warcDir);
+            } else {
+                this.replay = null;
+                this.warcWriter = null;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open WARC directory " + warcDir, e);
+        }
+        this.robotsM = new RobotsManager(pageFetcher(
+                new HttpPageFetcher(RobotsManager.ROBOTS_TIMEOUT_MS, RobotsManager.MAX_ROBOTS_SIZE)));
+        // Replayed hosts need no politeness: the archive answers, not the server
+        this.urlsToCrawl = replay == null
+                ? new HostFrontier(robotsM)
+                : new HostFrontier(robotsM, CrawlerConfig.MAX_IN_FLIGHT, CrawlerConfig.useImportanceOrder(), false);
+
+        // Each partition keeps its own local state
+        String stateId;
+        if (partitioner.isPartitioned()) {
+            dataDir = dataDir.resolve("partition-" + partitioner.getId());
+            this.exchange = new OutlinkExchange(partitioner, mongo, CrawlerConfig.EXCHANGE_BATCH_SIZE);
+            stateId = "crawler_state-" + partitioner.getId();
+            System.out.println("Crawling partition " + partitioner + ", budget " + maxPages + " pages");
+        } else {
+            this.exchange = null;
+            stateId = "crawler_state";
+        }
+        if (replay != null) {
+            // Every replay crawls the archive from the seeds again, so runs of different
+            // versions on the same archive are comparable: no state is carried over
+            try {
+                deleteTree(dataDir);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to clear replay state in " + dataDir, e);
+            }
+            stateId += "-replay";
+        }
+        this.stateId = stateId;
+        this.visited = new VisitedStore(dataDir.resolve("visited"),
+                CrawlerConfig.VISITED_EXPECTED_URLS, CrawlerConfig.VISITED_MEMORY_ENTRIES);
+        try {
+            this.checkpointLog = new CheckpointLog(dataDir.resolve("checkpoint"));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open checkpoint log", e);
+        }
+        try {
+            this.frontierSpill = new FrontierSpill(dataDir.resolve("frontier"), CrawlerConfig.FRONTIER_SEGMENT_URLS);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open frontier spill directory", e);
+        }
+        urlsToCrawl.spillTo(frontierSpill, CrawlerConfig.FRONTIER_MEMORY_URLS);
+        // Runs only the numThreads long-lived workers, so its queue never holds URLs
+        this.executor = Executors.newFixedThreadPool(numThreads);
+        this.urlNormalizer = new UrlNormalizer(readExcludeParams("src/exclude_params.txt"), CrawlerConfig.URL_CACHE_SIZE);
+        this.sitemaps = new SitemapLoader(this, urlsToCrawl, visited, robotsM, mongo,
+                CrawlerConfig.SITEMAP_MAX_URLS_PER_HOST, CrawlerConfig.SITEMAP_THREADS);
+        if (replay == null) {
+            robotsM.setSitemapListener(sitemaps::submit); // sitemaps aren't archived
+        }
         loadState();
+        loadSimHashes();
         addShutdownHook();
     }
 
-    void readExcludeParams() {
-        Set<String> tempParams = ConcurrentHashMap.newKeySet();
+    // Where page bodies come from: the network, the network with every response archived, or the archives
+    private PageFetcher pageFetcher(PageFetcher live) {
+        if (replay != null) {
+            return replay;
+        }
+        return warcWriter == null ? live : new WarcRecordingFetcher(live, warcWriter);
+    }
+
+    static Set<String> readExcludeParams(String fileName) {
+        Set<String> tempParams = new HashSet<>();
         try {
 
-            try (BufferedReader reader = new BufferedReader(new  FileReader("src/exclude_params.txt"))) {
+            try (BufferedReader reader = new BufferedReader(new  FileReader(fileName))) {
                 String line;
                 while ((line = reader.readLine()) != null) {
                     line = line.trim();
@@ -64,10 +153,32 @@ public class Crawler {
             System.err.println("Failed to load exclude_params.txt: " + e.getMessage());
             tempParams.addAll(Arrays.asList("session", "utm_source", "utm_medium", "utm_campaign", "ref", "fbclid"));
         }
-        excludedParams = Collections.unmodifiableSet(tempParams);
+        return tempParams;
     }
 
     private void loadState() {
+        try {
+            if (checkpointLog.hasData()) {
+                // Local snapshot + log tail
+                CheckpointLog.State state = checkpointLog.recover();
+                urlsToCrawl.addAll(state.frontier.values());
+                for (long fp : state.visited) {
+                    visited.addFingerprint(fp);
+                }
+                pageCount.set(state.pageCount);
+                System.out.println("Recovered crawl state: " + state.pageCount + " pages, " +
+                        state.frontier.size() + " URLs to crawl, " + state.records + " log records replayed");
+                saveState(); // compact the replayed log right away
+                return;
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to recover crawl checkpoint: " + e.getMessage());
+        }
+
+        // No local checkpoint yet: import the legacy state document from Mongo once
+        if (partitioner.isPartitioned() || replay != null) {
+            return; // the legacy document mixes every host, partitions start from the seeds
+        }
         Map<String, Object> state = mongo.loadCrawlerState();
         if (state != null) {
             List<String> savedUrlsToCrawl = (List<String>) state.get("urlsToCrawl");
@@ -77,18 +188,90 @@ public class Crawler {
             urlsToCrawl.addAll(savedUrlsToCrawl);
             visited.addAll(savedVisited);
             pageCount.set(savedPageCount);
+            saveState();
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
         }
     }
 
+    // Pages stored by earlier runs take part in near-duplicate detection too
+    private void loadSimHashes() {
+        mongo.forEachSimHash(duplicates::add);
+        System.out.println("Loaded " + duplicates.size() + " page fingerprints for near-duplicate detection");
+    }
+
+    // Compacted snapshot of the frontier; cost grows with crawl size, so only periodic
     private void saveState() {
         int currentCount = pageCount.get();
-        mongo.saveCrawlerState(urlsToCrawl, visited, currentCount);
+        frontierSpill.flush(); // the snapshot drops the log records of spilled URLs
+        // Segments already read back are in memory now, so the snapshot covers them
+        List<Path> readBack = frontierSpill.consumedSegments();
+        if (checkpointLog.snapshot(urlsToCrawl, visited, currentCount)) {
+            frontierSpill.deleteConsumed(readBack);
+        }
+        mongo.saveCrawlerState(stateId, urlsToCrawl.size(), visited.size(), currentCount);
+    }
+
+    // Cheap per-batch checkpoint: makes the logged deltas durable
+    private void checkpoint() {
+        if (exchange != null) {
+            exchange.flush();
+        }
+        frontierSpill.flush();
+        checkpointLog.flush(pageCount.get());
+    }
+
+    // Links to hosts owned by another partition are sent there (with their OPIC cash)
+    // instead of crawled here
+    boolean forwardIfRemote(String url, double cash) {
+        if (exchange == null || partitioner.isLocal(url)) {
+            return false;
+        }
+        exchange.forward(url, cash);
+        return true;
+    }
+
+    // A link forwarded to us by another partition
+    private void acceptForwarded(String url, double cash) {
+        if (partitioner.isLocal(url) && !visited.contains(url) && robotsM.canCrawl(url)) {
+            enqueue(url, cash);
+        }
+    }
+
+    void enqueue(String url, double cash) {
+        if (urlsToCrawl.add(url, cash)) {
+            checkpointLog.logEnqueue(url);
+        }
+    }
+
+    // Bulk version of enqueue, returns how many URLs were new to the frontier
+    int enqueueAll(List<String> urls, List<Double> cash) {
+        List<String> added = urlsToCrawl.addAll(urls, cash);
+        for (String url : added) {
+            checkpointLog.logEnqueue(url);
+        }
+        return added.size();
+    }
+
+    // Same contract as Set.add, the visit is logged so it survives a crash
+    boolean markVisited(String url) {
+        if (!visited.add(url)) {
+            return false;
+        }
+        checkpointLog.logVisit(url);
+        return true;
     }
 
     private void addShutdownHook() {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("Shutdown hook triggered, saving crawler state");
-            saveState();
             close();
         }));
     }
@@ -106,10 +289,12 @@ public class Crawler {
             while ((line = br.readLine()) != null) {
                 try {
                     String normalized = normalizeUrl(line, null);
-                    if (normalized != null && !normalized.isEmpty() && !visited.contains(normalized)) {
+                    // Every partition reads the same seed file and keeps its own hosts
+                    if (normalized != null && !normalized.isEmpty() && partitioner.isLocal(normalized)
+                            && !visited.contains(normalized)) {
 
                         if(robotsM.canCrawl(normalized)){
-                        urlsToCrawl.add(normalized);
+                        enqueue(normalized, HostFrontier.SEED_CASH);
 
                         }
                     }
@@ -120,7 +305,7 @@ public class Crawler {
         } catch (IOException e) {
             System.err.println("Error reading seed file: " + e.getMessage());
         }
-        System.out.println("Seed URLs loaded: " + urlsToCrawl.size());
+        System.out.println("Seed URLs loaded: " + urlsToCrawl.size() + " across " + urlsToCrawl.hostCount() + " hosts");
     }
 
     private void crawl() {
@@ -129,47 +314,81 @@ public class Crawler {
         // Create worker pool with shared document batch
         BlockingQueue<Document> documentBatchQueue = new LinkedBlockingQueue<>(10000); /// this will be send to the dbwriter
 
-        // Start database writer thread
-        DbWriterThread dbWriter = new DbWriterThread(documentBatchQueue, mongo,this);
-        Thread dbWriterThread = new Thread(dbWriter);
-        dbWriterThread.start();
-
-        // Start worker threads
-        for (int i = 0; i < numThreads; i++) {
-            CrawlerWorker worker = new CrawlerWorker(
-                    urlsToCrawl,
-                    visited,
-                    pageCount,
-                    maxPages,
-                    robotsM,
-                    documentBatchQueue,
-                    this,
-                    canCrawlCache
-            );
-            futures.add(executor.submit(worker));
+        // Start database writer: batches by count / size / age, several inserts in flight
+        DocumentWriter dbWriter = new DocumentWriter(documentBatchQueue, mongo, this::checkpoint,
+                CrawlerConfig.WRITER_BATCH_DOCS, CrawlerConfig.WRITER_BATCH_BYTES,
+                CrawlerConfig.WRITER_MAX_LATENCY_MS, CrawlerConfig.WRITER_IN_FLIGHT);
+        dbWriter.start();
+
+        PageProcessor processor = new PageProcessor(
+                urlsToCrawl,
+                visited,
+                pageCount,
+                maxPages,
+                robotsM,
+                documentBatchQueue,
+                this,
+                duplicates
+        );
+
+        CrawlerMetrics.registerGauge("frontier", urlsToCrawl::size);
+        CrawlerMetrics.registerGauge("frontier_spilled", urlsToCrawl::spilledSize);
+        CrawlerMetrics.registerGauge("frontier_hosts", urlsToCrawl::hostCount);
+        CrawlerMetrics.registerGauge("document_queue", documentBatchQueue::size);
+        CrawlerMetrics.registerGauge("db_inserts_in_flight", dbWriter::getInFlight);
+        CrawlerMetrics.registerGauge("visited", visited::size);
+        CrawlerMetrics.registerGauge("open_circuits", urlsToCrawl::openCircuitCount);
+        CrawlerMetrics.registerGauge("dropped_hosts", urlsToCrawl::droppedHostCount);
+        CrawlerMetrics.registerGauge("dns_cache_hits", NetworkLayer::getDnsCacheHits);
+        CrawlerMetrics.registerGauge("dns_cache_misses", NetworkLayer::getDnsCacheMisses);
+        CrawlerMetrics.registerGauge("sitemaps_read", sitemaps::getSitemapsRead);
+        CrawlerMetrics.registerGauge("sitemap_urls_queued", sitemaps::getUrlsQueued);
+        CrawlerMetrics.registerGauge("sitemap_revisits_expedited", sitemaps::getRevisitsExpedited);
+        if (warcWriter != null) {
+            CrawlerMetrics.registerGauge("warc_records", warcWriter::getRecordCount);
+        }
+        if (replay != null) {
+            CrawlerMetrics.registerGauge("replay_hits", replay::getHits);
+            CrawlerMetrics.registerGauge("replay_misses", replay::getMisses);
+        }
+        if (exchange != null) {
+            CrawlerMetrics.registerGauge("forwarded", exchange::getSent);
+            CrawlerMetrics.registerGauge("received", exchange::getReceived);
+            exchange.start(this::acceptForwarded, CrawlerConfig.EXCHANGE_INTERVAL_MS);
         }
+        // Partitions on one box get consecutive ports
+        int metricsPort = CrawlerConfig.METRICS_PORT > 0 ? CrawlerConfig.METRICS_PORT + partitioner.getId() : 0;
+        CrawlerMetrics.start(metricsPort, CrawlerConfig.METRICS_INTERVAL_SECONDS);
 
         // save state  5 minutes
         ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
         scheduler.scheduleAtFixedRate(this::saveState, 5, 5, TimeUnit.MINUTES);
 
-        // Wait for workers to finish
-        for (Future<?> future : futures) {
-            try {
-                future.get();
-            } catch (InterruptedException | ExecutionException e) {
-                System.err.println("Worker failed: " + e.getMessage());
+        if (CrawlerConfig.useVirtualThreads()) {
+            // One virtual thread per request, parsing on a core-sized pool
+            PageFetcher fetcher = pageFetcher(new HttpPageFetcher(15000, 1_000_000, true));
+            new VirtualFetchStage(urlsToCrawl, processor, fetcher,
+                    CrawlerConfig.MAX_IN_FLIGHT, CrawlerConfig.PARSE_THREADS, 15000).run();
+        } else {
+            // Start worker threads
+            PageFetcher fetcher = pageFetcher(new HttpPageFetcher(15000, 1_000_000, true));
+            for (int i = 0; i < numThreads; i++) {
+                futures.add(executor.submit(new CrawlerWorker(urlsToCrawl, processor, fetcher)));
             }
-        }
 
-        // Signal database writer to finish
-        dbWriter.shutdown();
-        try {
-            dbWriterThread.join(30000);
-        } catch (InterruptedException e) {
-            System.err.println("DB writer shutdown interrupted");
+            // Wait for workers to finish
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Worker failed: " + e.getMessage());
+                }
+            }
         }
 
+        // Let the database writer drain the queue and finish its inserts
+        dbWriter.shutdown(30000);
+
         scheduler.shutdown();
         try {
             if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
@@ -179,147 +398,77 @@ public class Crawler {
             scheduler.shutdownNow();
         }
 
+        sitemaps.stop();
+        if (exchange != null) {
+            exchange.stop();
+        }
         saveState();
+        closeWarc();
         executor.shutdown();
+        CrawlerMetrics.stop();
     }
 
-    public String normalizeUrl(String url, String baseUrl) {
-        // Check cache first
-        String cacheKey = url + "|" + (baseUrl == null ? "" : baseUrl);
-        String cached = urlNormalizeCache.get(cacheKey);
-        if (cached != null) {
-            return cached;
-        }
-
-        if (url == null || url.trim().isEmpty()) {
-            return null;
-        }
-
-
-
-
-        // Quick filters for common non-http URLs
-        if (url.startsWith("javascript:") || url.startsWith("mailto:") || url.startsWith("tel:") ||
-                url.startsWith("#") || url.startsWith("data:")) {
-            return null;
-        }
-
-        // Filter out certain file types
-        if (url.endsWith(".pdf") || url.endsWith(".jpg") || url.endsWith(".jpeg") ||
-                url.endsWith(".png") || url.endsWith(".gif") || url.endsWith(".css") ||
-                url.endsWith(".js") || url.endsWith(".zip") || url.endsWith(".mp4") ||
-                url.endsWith(".mp3")) {
-            return null;
-        }
-
-        // Sanitize input URL
-        url = url.replaceAll("\\?+", "?");
-
-        while (url.endsWith("?")) {
-            url = url.substring(0, url.length() - 1);
-        }
-
-        // Resolve relative URLs
-        if (!url.startsWith("http") && baseUrl != null && !baseUrl.isEmpty()) {
-            try {
-                org.jsoup.nodes.Document doc = Jsoup.parse("<a href=\"" + url + "\"></a>", baseUrl);
-                url = doc.select("a").first().absUrl("href");
-            } catch (Exception e) {
-                return null;
-            }
-        }
-
-        // Parse and normalize URL
-        URI uri;
-        try {
-            uri = new URI(url).normalize();
-        } catch (Exception e) {
-            return null;
-        }
+    // Conditional refresh of stored pages instead of a new crawl
+    public void revisit() {
+        PageFetcher fetcher = pageFetcher(new HttpPageFetcher(15000, 1_000_000));
+        new RevisitScheduler(mongo, robotsM, fetcher, this, CrawlerConfig.REVISIT_THREADS)
+                .run(CrawlerConfig.REVISIT_BATCH_SIZE);
+    }
 
+    public String normalizeUrl(String url, String baseUrl) {
+        return urlNormalizer.normalize(url, baseUrl);
+    }
 
-        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase() : "http";
-        if (!scheme.equals("http") && !scheme.equals("https")) {
-            return null;
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
         }
-
-        String host = uri.getHost() != null ? uri.getHost().toLowerCase() : "";
-        if (host.isEmpty()) {
-            return null;
+        sitemaps.stop();
+        if (exchange != null) {
+            exchange.stop(); // don't lose links still buffered for other partitions
         }
+        saveState();
+        checkpointLog.close();
+        frontierSpill.close();
+        closeWarc();
+        executor.shutdownNow();
+        System.out.println("Crawler closed");
+    }
 
-        int port = uri.getPort();
-        if ((port == 80 && "http".equals(scheme)) || (port == 443 && "https".equals(scheme))) {
-            port = -1;
+    private void closeWarc() {
+        if (warcWriter != null) {
+            warcWriter.close();
         }
-
-        String path = uri.getPath() != null ? uri.getPath() : "/";
-
-        ///  filter non english
-        String[] segments = path.split("/");
-        if (segments.length > 1) {
-            String langCode = segments[1].toLowerCase();
-            if (!langCode.startsWith("en")) {
-                return null;
-            }
+        if (replay != null) {
+            replay.close();
         }
+    }
 
-
-
-        String query = uri.getQuery();
-        String newQuery = null;
-
-        if (query != null && !query.isEmpty()) {
-            try {
-
-                StringBuilder queryBuilder = new StringBuilder();
-                boolean firstParam = true;
-
-                for (String param : query.split("&")) {
-                    String[] parts = param.split("=", 2);
-                    if (parts.length == 2 && !parts[0].isEmpty() && !excludedParams.contains(parts[0].toLowerCase())) {
-                        if (!firstParam) {
-                            queryBuilder.append('&');
-                        } else {
-                            firstParam = false;
-                        }
-                        queryBuilder.append(parts[0]).append('=').append(parts[1]);
-                    }
-                }
-
-                if (queryBuilder.length() > 0) {
-                    newQuery = queryBuilder.toString();
+    // Crawler [--revisit] [--partition <id>/<count>] [--record <warc dir> | --replay <warc dir>]
+    public static void main(String[] args) {
+        String fileName = "src/seed.txt";
+        boolean revisit = false;
+        Partitioner partitioner = new Partitioner(CrawlerConfig.PARTITION_ID, CrawlerConfig.PARTITION_COUNT);
+        String warcMode = CrawlerConfig.WARC_MODE;
+        String warcDir = CrawlerConfig.WARC_DIR;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--revisit" -> revisit = true;
+                case "--partition" -> partitioner = Partitioner.parse(args[++i]);
+                case "--record", "--replay" -> {
+                    warcMode = args[i].substring(2);
+                    warcDir = args[++i];
                 }
-            } catch (Exception e) {
-                newQuery = null;
+                default -> System.err.println("Unknown argument: " + args[i]);
             }
         }
 
+        Crawler cr = new Crawler(partitioner, warcMode, warcDir);
         try {
-            String normalizedUrl = new URI(scheme, null, host, port, path, newQuery, null).toString();
-            // Cache the result
-            if (urlNormalizeCache.size() < 10000) {
-                urlNormalizeCache.put(cacheKey, normalizedUrl);
+            if (revisit) {
+                cr.revisit();
+                return;
             }
-
-            normalizedUrl.replace("?", "");
-
-            return normalizedUrl;
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    public void close() {
-        saveState();
-        executor.shutdownNow();
-        System.out.println("Crawler closed");
-    }
-
-    public static void main(String[] args) {
-        String fileName = "src/seed.txt";
-        Crawler cr = new Crawler();
-        try {
             cr.startCrawl(fileName);
             System.out.println("Finished crawling.");
         } catch (Exception e) {
@@ -328,65 +477,4 @@ public class Crawler {
             cr.close();
         }
     }
-
-
-    /// //////////////////////////////////////////////////////////////////////////////////////////
-
-    // Database writer thread to handle inserts in the background
-    private static class DbWriterThread implements Runnable {
-        private final BlockingQueue<Document> queue;
-        private final dbManager dbManager;
-        private final Crawler crawler;
-        private volatile boolean running = true;
-        private static final int BATCH_SIZE = 500;
-
-        public DbWriterThread(BlockingQueue<Document> queue, dbManager dbManager,Crawler cr) {
-            this.queue = queue;
-            this.dbManager = dbManager;
-            this.crawler = cr ;
-        }
-
-        public void shutdown() {
-            running = false;
-        }
-
-        @Override
-        public void run() {
-            List<Document> batch = new ArrayList<>(BATCH_SIZE);
-
-            while (running || !queue.isEmpty()) {
-                try {
-                    Document doc = queue.poll(1, TimeUnit.SECONDS);
-                    if (doc != null) {
-                        batch.add(doc);
-                    }
-                    System.out.println("batch size is = "+batch.size());
-                    // Insert batch if large enough or if no more documents are coming
-                    if (batch.size() >= BATCH_SIZE || (!running && !batch.isEmpty() && queue.isEmpty())) {
-                        try {
-                            dbManager.insertDocuments(batch);
-                            System.out.println("///////////////////////////Inserted batch of//////////////////////////  " + batch.size() + " documents");
-                            crawler.saveState();
-                        } catch (Exception e) {
-                            System.err.println("Batch insert failed: " + e.getMessage());
-                        }
-                        batch.clear();
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-
-            // Insert any remaining documents
-            if (!batch.isEmpty()) {
-                try {
-                    dbManager.insertDocuments(batch);
-                    System.out.println("Inserted final batch of " + batch.size() + " documents");
-                } catch (Exception e) {
-                    System.err.println("Final batch insert failed: " + e.getMessage());
-                }
-            }
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package Crawler;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+// Crawler tuning knobs, read from .env (or the process environment) with sane defaults
+public class CrawlerConfig {
+    private static final Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+
+    // "threads" = classic blocking Jsoup workers, "virtual" = virtual-thread fetch stage
+    public static final String FETCH_MODE = getString("CRAWLER_FETCH_MODE", "threads");
+    // Max concurrent HTTP requests in virtual mode
+    public static final int MAX_IN_FLIGHT = getInt("CRAWLER_MAX_IN_FLIGHT", 256);
+    // Jsoup parse / link extraction pool size in virtual mode
+    public static final int PARSE_THREADS = getInt("CRAWLER_PARSE_THREADS", Runtime.getRuntime().availableProcessors());
+
+    // Adaptive per-host politeness (HostThrottle): most concurrent requests to one host,
+    // shortest delay between them, and the response time above which a host is backed off
+    public static final int HOST_MAX_CONCURRENCY = getInt("CRAWLER_HOST_MAX_CONCURRENCY", 4);
+    public static final int HOST_MIN_DELAY_MS = getInt("CRAWLER_HOST_MIN_DELAY_MS", 500);
+    public static final int HOST_SLOW_RESPONSE_MS = getInt("CRAWLER_HOST_SLOW_RESPONSE_MS", 3000);
+
+    // Document writer: a batch is inserted at this many documents, this many bytes, or once
+    // its oldest document waited this long; at most WRITER_IN_FLIGHT inserts run at once
+    public static final int WRITER_BATCH_DOCS = getInt("CRAWLER_WRITER_BATCH_DOCS", 500);
+    public static final int WRITER_BATCH_BYTES = getInt("CRAWLER_WRITER_BATCH_BYTES", 8 << 20);
+    public static final int WRITER_MAX_LATENCY_MS = getInt("CRAWLER_WRITER_MAX_LATENCY_MS", 2000);
+    public static final int WRITER_IN_FLIGHT = getInt("CRAWLER_WRITER_IN_FLIGHT", 4);
+
+    // Local directory for crawler state files
+    public static final String DATA_DIR = getString("CRAWLER_DATA_DIR", "crawler_data");
+    // Sizing of the visited-URL Bloom filter (1% false positives at this many URLs)
+    public static final int VISITED_EXPECTED_URLS = getInt("CRAWLER_VISITED_EXPECTED_URLS", 10_000_000);
+    // Fingerprints kept in memory before they are merged into the on-disk file
+    public static final int VISITED_MEMORY_ENTRIES = getInt("CRAWLER_VISITED_MEMORY_ENTRIES", 1_000_000);
+
+    // Frontier URLs kept in memory; beyond that they are appended to disk segments of
+    // FRONTIER_SEGMENT_URLS URLs each and read back as the in-memory queues drain
+    public static final int FRONTIER_MEMORY_URLS = getInt("CRAWLER_FRONTIER_MEMORY_URLS", 100_000);
+    public static final int FRONTIER_SEGMENT_URLS = getInt("CRAWLER_FRONTIER_SEGMENT_URLS", 50_000);
+
+    // Frontier order: "fifo" = discovery order, "opic" = online page importance (OPIC cash)
+    public static final String FRONTIER_ORDER = getString("CRAWLER_FRONTIER_ORDER", "fifo");
+
+    // Multi-process crawling: this process crawls the hosts hashed to partition ID of COUNT
+    // (also settable with Crawler --partition <id>/<count>)
+    public static final int PARTITION_ID = getInt("CRAWLER_PARTITION_ID", 0);
+    public static final int PARTITION_COUNT = getInt("CRAWLER_PARTITION_COUNT", 1);
+    // Links for other partitions are sent in batches of this size, or after this many ms
+    public static final int EXCHANGE_BATCH_SIZE = getInt("CRAWLER_EXCHANGE_BATCH_SIZE", 500);
+    public static final int EXCHANGE_INTERVAL_MS = getInt("CRAWLER_EXCHANGE_INTERVAL_MS", 1000);
+
+    // Sitemaps listed in robots.txt: URLs taken per host (0 disables sitemap loading)
+    // and threads downloading them
+    public static final int SITEMAP_MAX_URLS_PER_HOST = getInt("CRAWLER_SITEMAP_MAX_URLS_PER_HOST", 1000);
+    public static final int SITEMAP_THREADS = getInt("CRAWLER_SITEMAP_THREADS", 2);
+
+    // WARC archiving: "record" writes every response to rotating WARC files in WARC_DIR,
+    // "replay" crawls those files offline instead of the web (also Crawler --record / --replay <dir>)
+    public static final String WARC_MODE = getString("CRAWLER_WARC_MODE", "off");
+    public static final String WARC_DIR = getString("CRAWLER_WARC_DIR", DATA_DIR + "/warc");
+    public static final int WARC_MAX_FILE_MB = getInt("CRAWLER_WARC_MAX_FILE_MB", 1024);
+
+    // Normalized URLs remembered by UrlNormalizer (LRU), 0 disables the cache
+    public static final int URL_CACHE_SIZE = getInt("CRAWLER_URL_CACHE_SIZE", 0);
+
+    // Local metrics endpoint (http://localhost:<port>/metrics), 0 disables it
+    public static final int METRICS_PORT = getInt("CRAWLER_METRICS_PORT", 9091);
+    // Seconds between one-line metric summaries on stdout
+    public static final int METRICS_INTERVAL_SECONDS = getInt("CRAWLER_METRICS_INTERVAL", 10);
+
+    // Revisit mode (Crawler --revisit): pages loaded per round and concurrent fetch threads
+    public static final int REVISIT_BATCH_SIZE = getInt("CRAWLER_REVISIT_BATCH_SIZE", 1000);
+    public static final int REVISIT_THREADS = getInt("CRAWLER_REVISIT_THREADS", 10);
+
+    private CrawlerConfig() {}
+
+    public static boolean useVirtualThreads() {
+        return "virtual".equalsIgnoreCase(FETCH_MODE);
+    }
+
+    public static boolean useImportanceOrder() {
+        return "opic".equalsIgnoreCase(FRONTIER_ORDER);
+    }
+
+    static String getString(String key, String defaultValue) {
+        String value = dotenv.get(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    static int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(getString(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+}
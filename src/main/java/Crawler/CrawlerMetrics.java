@@ -0,0 +1,268 @@
+package Crawler;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Process-wide crawl metrics: throughput counters, latency histograms (overall and
+// per host), queue gauges and error counts by type.
+// Readable at http://localhost:<CRAWLER_METRICS_PORT>/metrics and printed as a
+// one-line summary every CRAWLER_METRICS_INTERVAL seconds.
+public final class CrawlerMetrics {
+    // Beyond this many hosts, new hosts are only counted in the overall numbers
+    private static final int MAX_TRACKED_HOSTS = 1000;
+
+    public static final LongAdder pagesFetched = new LongAdder();
+    public static final LongAdder pagesStored = new LongAdder();
+    public static final LongAdder bytesFetched = new LongAdder();
+    public static final LongAdder duplicates = new LongAdder();
+    public static final LongAdder skippedLanguage = new LongAdder();
+    public static final LongAdder skippedContentType = new LongAdder();
+    // Responses abandoned after their headers / first few KB, and the declared body bytes never read
+    public static final LongAdder earlyAborts = new LongAdder();
+    public static final LongAdder bytesSaved = new LongAdder();
+    // CPU spent parsing and extracting pages, to price what an early abort saves
+    private static final LongAdder parseCpuNanos = new LongAdder();
+    private static final LongAdder pagesParsed = new LongAdder();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    public static final LongAdder robotsFetches = new LongAdder();
+
+    public static final LatencyHistogram fetchLatency = new LatencyHistogram();
+    public static final LatencyHistogram robotsLatency = new LatencyHistogram();
+    public static final LatencyHistogram dbInsertLatency = new LatencyHistogram();
+    // From a document entering a write batch until the batch is inserted
+    public static final LatencyHistogram dbFlushDelay = new LatencyHistogram();
+
+    private static final ConcurrentHashMap<String, HostStats> hosts = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private static final long startTime = System.currentTimeMillis();
+    private static long lastSummaryTime = startTime;
+    private static long lastPages = 0;
+    private static long lastBytes = 0;
+
+    private static ScheduledExecutorService reporter;
+    private static HttpServer server;
+
+    public static class HostStats {
+        public final LatencyHistogram latency = new LatencyHistogram();
+        public final LongAdder pages = new LongAdder();
+        public final LongAdder bytes = new LongAdder();
+        public final LongAdder errors = new LongAdder();
+    }
+
+    private CrawlerMetrics() {}
+
+    // One completed HTTP fetch
+    public static void recordFetch(String url, long nanos, long bytes, int status) {
+        pagesFetched.increment();
+        bytesFetched.add(bytes);
+        fetchLatency.recordNanos(nanos);
+        HostStats host = hostStats(url);
+        if (host != null) {
+            host.pages.increment();
+            host.bytes.add(bytes);
+            host.latency.recordNanos(nanos);
+        }
+        if (status >= 400) {
+            recordError(url, status >= 500 ? "http_5xx" : "http_4xx");
+        }
+    }
+
+    // A response dropped before its body was downloaded and parsed
+    public static void recordEarlyAbort(String reason, long bytesNotRead) {
+        earlyAborts.increment();
+        bytesSaved.add(Math.max(0, bytesNotRead));
+        (reason.equals("language") ? skippedLanguage : skippedContentType).increment();
+    }
+
+    // One page parsed and processed, cpuNanos as measured with threadCpuNanos()
+    public static void recordParse(long cpuNanos) {
+        pagesParsed.increment();
+        parseCpuNanos.add(cpuNanos);
+    }
+
+    // CPU time of the calling thread (wall time where the JVM can't measure it)
+    public static long threadCpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    // Early aborts times the average parse cost of the pages that were parsed
+    public static long parseCpuSavedMillis() {
+        long parsed = pagesParsed.sum();
+        if (parsed == 0) return 0;
+        return earlyAborts.sum() * (parseCpuNanos.sum() / parsed) / 1_000_000;
+    }
+
+    public static void recordError(String url, Throwable error) {
+        recordError(url, error.getClass().getSimpleName());
+    }
+
+    public static void recordError(String url, String type) {
+        errors.computeIfAbsent(type, k -> new LongAdder()).increment();
+        HostStats host = url == null ? null : hostStats(url);
+        if (host != null) host.errors.increment();
+    }
+
+    // Sampled when metrics are read, e.g. frontier size or queue depth
+    public static void registerGauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    private static HostStats hostStats(String url) {
+        String host = HostFrontier.hostOf(url);
+        if (host == null) return null;
+        HostStats stats = hosts.get(host);
+        if (stats == null && hosts.size() < MAX_TRACKED_HOSTS) {
+            stats = hosts.computeIfAbsent(host, h -> new HostStats());
+        }
+        return stats;
+    }
+
+    // Starts the periodic summary and, if port > 0, the local HTTP endpoint
+    public static synchronized void start(int port, int intervalSeconds) {
+        if (reporter != null) return;
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "crawler-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.println(summaryLine()),
+                intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+
+        if (port > 0) {
+            try {
+                server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+                server.createContext("/metrics", exchange -> {
+                    String query = exchange.getRequestURI().getQuery();
+                    int topHosts = 20;
+                    if (query != null && query.startsWith("hosts=")) {
+                        try {
+                            topHosts = Integer.parseInt(query.substring("hosts=".length()));
+                        } catch (NumberFormatException ignored) {
+                        }
+                    }
+                    byte[] body = render(topHosts).getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                });
+                server.start();
+                System.out.println("Crawler metrics on http://localhost:" + port + "/metrics");
+            } catch (IOException e) {
+                System.err.println("Failed to start metrics endpoint on port " + port + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public static synchronized void stop() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+            System.out.println(summaryLine());
+        }
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    // e.g. "[crawl] 12.0 pages/s 1.4 MB/s | fetch p50 120 p95 800 p99 2100 ms | frontier 5234 | ..."
+    static synchronized String summaryLine() {
+        long now = System.currentTimeMillis();
+        long pages = pagesFetched.sum();
+        long bytes = bytesFetched.sum();
+        double seconds = Math.max(0.001, (now - lastSummaryTime) / 1000.0);
+        double pagesPerSecond = (pages - lastPages) / seconds;
+        double mbPerSecond = (bytes - lastBytes) / seconds / (1 << 20);
+        lastSummaryTime = now;
+        lastPages = pages;
+        lastBytes = bytes;
+
+        StringBuilder line = new StringBuilder("[crawl] ");
+        line.append(String.format(Locale.ROOT, "%.1f pages/s %.2f MB/s", pagesPerSecond, mbPerSecond));
+        line.append(String.format(Locale.ROOT, " | fetch p50 %.0f p95 %.0f p99 %.0f ms",
+                fetchLatency.getPercentileMillis(50), fetchLatency.getPercentileMillis(95), fetchLatency.getPercentileMillis(99)));
+        for (Map.Entry<String, LongSupplier> gauge : new TreeMap<>(gauges).entrySet()) {
+            line.append(" | ").append(gauge.getKey()).append(' ').append(gauge.getValue().getAsLong());
+        }
+        line.append(" | stored ").append(pagesStored.sum()).append(", dup ").append(duplicates.sum());
+        line.append(String.format(Locale.ROOT, " | aborted %d, saved %.1f MB / %d ms cpu",
+                earlyAborts.sum(), bytesSaved.sum() / (double) (1 << 20), parseCpuSavedMillis()));
+        line.append(String.format(Locale.ROOT, " | db insert p95 %.0f ms, flush delay p95 %.0f ms | robots p95 %.0f ms",
+                dbInsertLatency.getPercentileMillis(95), dbFlushDelay.getPercentileMillis(95),
+                robotsLatency.getPercentileMillis(95)));
+        long errorTotal = 0;
+        for (LongAdder count : errors.values()) errorTotal += count.sum();
+        line.append(" | errors ").append(errorTotal);
+        return line.toString();
+    }
+
+    static String render(int topHosts) {
+        StringBuilder out = new StringBuilder();
+        long uptime = Math.max(1, (System.currentTimeMillis() - startTime) / 1000);
+        out.append("uptime_seconds ").append(uptime).append('\n');
+        out.append("pages_fetched ").append(pagesFetched.sum()).append('\n');
+        out.append("pages_stored ").append(pagesStored.sum()).append('\n');
+        out.append("bytes_fetched ").append(bytesFetched.sum()).append('\n');
+        out.append("duplicates ").append(duplicates.sum()).append('\n');
+        out.append("skipped_language ").append(skippedLanguage.sum()).append('\n');
+        out.append("skipped_content_type ").append(skippedContentType.sum()).append('\n');
+        out.append("early_aborts ").append(earlyAborts.sum()).append('\n');
+        out.append("bytes_saved ").append(bytesSaved.sum()).append('\n');
+        out.append("parse_cpu_saved_ms ").append(parseCpuSavedMillis()).append('\n');
+        out.append("robots_fetches ").append(robotsFetches.sum()).append('\n');
+        out.append(String.format(Locale.ROOT, "pages_per_second_avg %.2f%n", pagesFetched.sum() / (double) uptime));
+        out.append(String.format(Locale.ROOT, "bytes_per_second_avg %.0f%n", bytesFetched.sum() / (double) uptime));
+        for (Map.Entry<String, LongSupplier> gauge : new TreeMap<>(gauges).entrySet()) {
+            out.append(gauge.getKey()).append(' ').append(gauge.getValue().getAsLong()).append('\n');
+        }
+        appendHistogram(out, "fetch_latency", fetchLatency);
+        appendHistogram(out, "robots_latency", robotsLatency);
+        appendHistogram(out, "db_insert_latency", dbInsertLatency);
+        appendHistogram(out, "db_flush_delay", dbFlushDelay);
+        for (Map.Entry<String, LongAdder> error : new TreeMap<>(errors).entrySet()) {
+            out.append("errors{type=\"").append(error.getKey()).append("\"} ").append(error.getValue().sum()).append('\n');
+        }
+
+        // Busiest hosts first
+        List<Map.Entry<String, HostStats>> byPages = new ArrayList<>(hosts.entrySet());
+        byPages.sort((a, b) -> Long.compare(b.getValue().pages.sum(), a.getValue().pages.sum()));
+        out.append("# top ").append(Math.min(topHosts, byPages.size())).append(" of ")
+                .append(byPages.size()).append(" tracked hosts\n");
+        for (int i = 0; i < Math.min(topHosts, byPages.size()); i++) {
+            String host = byPages.get(i).getKey();
+            HostStats stats = byPages.get(i).getValue();
+            out.append(String.format(Locale.ROOT,
+                    "host{name=\"%s\"} pages %d bytes %d errors %d p50_ms %.1f p95_ms %.1f p99_ms %.1f max_ms %.1f%n",
+                    host, stats.pages.sum(), stats.bytes.sum(), stats.errors.sum(),
+                    stats.latency.getPercentileMillis(50), stats.latency.getPercentileMillis(95),
+                    stats.latency.getPercentileMillis(99), stats.latency.getMaxMillis()));
+        }
+        return out.toString();
+    }
+
+    private static void appendHistogram(StringBuilder out, String name, LatencyHistogram histogram) {
+        out.append(String.format(Locale.ROOT,
+                "%s_ms{count=%d} mean %.1f p50 %.1f p90 %.1f p95 %.1f p99 %.1f max %.1f%n",
+                name, histogram.getCount(), histogram.getMeanMillis(),
+                histogram.getPercentileMillis(50), histogram.getPercentileMillis(90),
+                histogram.getPercentileMillis(95), histogram.getPercentileMillis(99), histogram.getMaxMillis()));
+    }
+}
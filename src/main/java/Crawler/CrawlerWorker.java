@@ -1,192 +1,95 @@
 package Crawler;
 
-import org.bson.Document;
 import org.jsoup.Jsoup;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class CrawlerWorker implements Runnable {
-  private final ConcurrentLinkedQueue<String> urlsToCrawl ;
-  private final Set<String> visited;
-  private final AtomicInteger pageCount;
-  private final int maxPages;
-  private final RobotsManager robotsM;
-  private final BlockingQueue<Document> documentQueue;
-  private final Crawler crawler;
-  private final ConcurrentHashMap<String, Boolean> canCrawlCache;
+  private final HostFrontier urlsToCrawl;
+  private final PageProcessor processor;
+  private final PageFetcher fetcher;
 
   // Constants
   private static final int CONNECT_TIMEOUT = 15000; // 15 seconds
-  private static final int MAX_IMAGES_PER_PAGE = 50;
 
-  public CrawlerWorker(
-          ConcurrentLinkedQueue<String> urlsToCrawl,
-          Set<String> visited,
-          AtomicInteger pageCount,
-          int maxPages,
-          RobotsManager robotsM,
-          BlockingQueue<Document> documentQueue,
-          Crawler crawler,
-          ConcurrentHashMap<String, Boolean> canCrawlCache) {
+  public CrawlerWorker(HostFrontier urlsToCrawl, PageProcessor processor, PageFetcher fetcher) {
     this.urlsToCrawl = urlsToCrawl;
-    this.visited = visited;
-    this.pageCount = pageCount;
-    this.maxPages = maxPages;
-    this.robotsM = robotsM;
-    this.documentQueue = documentQueue;
-    this.crawler = crawler;
-    this.canCrawlCache = canCrawlCache;
+    this.processor = processor;
+    this.fetcher = fetcher;
   }
 
   @Override
   public void run() {
-    while (!Thread.currentThread().isInterrupted() && pageCount.get() < maxPages) {
-      String url = urlsToCrawl.poll();
-      if (url == null) {
-        // If no URLs, wait a bit before trying again
-        try {
-          Thread.sleep(100);
-          continue;
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          break;
-        }
-      }
-
-
-      // Skip if already visited
-      if (!visited.add(url)) {
-        continue;
+    while (!Thread.currentThread().isInterrupted() && !processor.isDone()) {
+      String url;
+      try {
+        // Blocks until some host is allowed to be fetched again
+        url = urlsToCrawl.poll(100, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
       }
-
-      // Check robots.txt (with caching)
-      if (!canCrawl(url)) {
+      if (url == null) {
         continue;
       }
 
       try {
-
-        org.jsoup.nodes.Document doc = Jsoup.connect(url)
-                .timeout(CONNECT_TIMEOUT)
-                .ignoreContentType(true)
-                .ignoreHttpErrors(true)
-                .followRedirects(true)
-                .maxBodySize(1_000_000) // 1MB
-                .get();
-
-        try {
-          String htmlLang = doc.selectFirst("html").attr("lang");
-          if (!htmlLang.toLowerCase().startsWith("en")) {
-            continue;
-          }
-
-        }catch (NullPointerException e ){
-           System.err.println("this not as an lang attr" + url);
-        }
-
-        int currentCount = pageCount.incrementAndGet();
-
-        // Extract page data
-        String title = doc.title() != null && !doc.title().isEmpty() ? doc.title() : "Untitled";
-        String content = doc.body() != null ? doc.body().html() : "";
-
-
-
-
-        Elements links = doc.select("a[href]");
-        Elements images = doc.select("img[src]");
-
-        Set<String> linksText = ConcurrentHashMap.newKeySet();
-        Set<String> imageUrls = ConcurrentHashMap.newKeySet();
-
-        // Process links
-        int linkCount = 0;
-        for (Element link : links) {
-          String newUrl = link.absUrl("href");
-          if (newUrl.isEmpty()) continue;
-
-          String normalizedUrl = crawler.normalizeUrl(newUrl, url);
-          if (normalizedUrl != null && normalizedUrl.length() < 500) { // Avoid extremely long URLs
-            linksText.add(normalizedUrl);
-            // Only add to crawl queue if not visited and allowed by robots.txt
-            if (!visited.contains(normalizedUrl) && canCrawl(normalizedUrl)) {
-              if(urlsToCrawl.size()<10000){
-              urlsToCrawl.add(normalizedUrl);
-
-              }
-              linkCount++;
-            }
-          }
-        }
-
-
-        // Process images with limit 50 image per page
-        int imageCount = 0;
-        for (Element image : images) {
-          if (imageCount >= MAX_IMAGES_PER_PAGE) break;
-
-          String imageUrl = image.absUrl("src");
-          if (imageUrl.isEmpty()) continue;
-
-          imageUrls.add(imageUrl);
-          imageCount++;
-        }
-
-        // Create document and add to queue
-        Document bsonDoc = new Document("url", url)
-                .append("title", title)
-                .append("content", content)
-                .append("timestamp", System.currentTimeMillis())
-                .append("indexed", false)
-                .append("images_indexed",false)
-                .append("links", linksText)
-                .append("images", imageUrls);
-
-        try {
-          // Add to queue with timeout to prevent blocking forever
-          if (!documentQueue.offer(bsonDoc, 5, TimeUnit.SECONDS)) {
-            System.err.println("Failed to queue document: " + url + " - queue full");
-          }else{
-            System.out.println("sucess to add : " + url);
-          }
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          break;
-        }
-
-        // check if we finish the 600 pages
-        if (pageCount.get() >= maxPages) {
-          break;
-        }
-
-      } catch (IOException e) {
-          System.err.println("Failed to fetch: " + url + " - " + e.getMessage());
+        crawlUrl(url);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
       }
     }
   }
 
-  private boolean canCrawl(String url) {
-    // Check cache first
-    Boolean cached = canCrawlCache.get(url);
-    if (cached != null) {
-      return cached;
-    }
+  // Fetches and processes one URL. The host is released as soon as the response is in,
+  // with its status and latency so the frontier can adapt how hard it is crawled.
+  private void crawlUrl(String url) throws InterruptedException {
+    boolean released = false;
+    try {
+      if (!processor.shouldFetch(url)) {
+        return;
+      }
 
-    boolean result = robotsM.canCrawl(url);
+      FetchResult res;
+      long start = System.nanoTime();
+      try {
+        res = fetcher.fetch(url, urlsToCrawl.timeoutMillis(url, CONNECT_TIMEOUT));
+      } catch (IOException e) {
+        urlsToCrawl.releaseFailed(url);
+        released = true;
+        CrawlerMetrics.recordError(url, e);
+        System.err.println("Failed to fetch: " + url + " - " + e.getMessage());
+        return;
+      }
+      long nanos = System.nanoTime() - start;
+      urlsToCrawl.release(url, res.getStatusCode(), nanos, res.getHeader("Retry-After"));
+      released = true;
+      CrawlerMetrics.recordFetch(url, nanos, res.getBody().length, res.getStatusCode());
+      if (res.isSkipped()) {
+        // Binary or foreign-language: dropped before the download finished, nothing to parse
+        CrawlerMetrics.recordEarlyAbort(res.getSkipReason(), res.getBytesSkipped());
+        return;
+      }
 
-    // Cache the result if cache isn't too large
-    if (canCrawlCache.size() < 1000) {
-      canCrawlCache.put(url, result);
+      long cpuStart = CrawlerMetrics.threadCpuNanos();
+      org.jsoup.nodes.Document doc = Jsoup.parse(
+              new ByteArrayInputStream(res.getBody()), res.getCharset(), res.getFinalUrl());
+      // Keep the validators so the page can be revisited with a conditional GET
+      processor.process(url, doc, res.getHeader("ETag"), res.getHeader("Last-Modified"));
+      CrawlerMetrics.recordParse(CrawlerMetrics.threadCpuNanos() - cpuStart);
+    } catch (IOException e) {
+      CrawlerMetrics.recordError(url, e);
+      System.err.println("Failed to parse: " + url + " - " + e.getMessage());
+    } catch (RuntimeException e) {
+      // One bad page must not take the worker thread down with it
+      CrawlerMetrics.recordError(url, e);
+      System.err.println("Failed to process: " + url + " - " + e);
+    } finally {
+      if (!released) {
+        urlsToCrawl.release(url, false);
+      }
     }
-
-    return result;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,172 @@
+package Crawler;
+
+import dbManager.dbManager;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Moves crawled documents from the processing queue into MongoDB.
+//
+// A batch is flushed as soon as it reaches maxDocs documents, maxBytes of (estimated)
+// content, or once its oldest document has waited maxLatencyMs, whichever comes first.
+// Flushed batches are inserted by a small pool, up to maxInFlight unordered insertMany
+// calls at once, so draining the queue never waits on a Mongo round trip unless every
+// insert slot is busy (which is then the backpressure on the crawl).
+public class DocumentWriter {
+    private final BlockingQueue<Document> queue;
+    private final dbManager mongo;
+    private final Runnable afterInsert; // e.g. sync the checkpoint log
+    private final int maxDocs;
+    private final long maxBytes;
+    private final long maxLatencyMs;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final ExecutorService inserters;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public DocumentWriter(BlockingQueue<Document> queue, dbManager mongo, Runnable afterInsert,
+                          int maxDocs, long maxBytes, long maxLatencyMs, int maxInFlight) {
+        this.queue = queue;
+        this.mongo = mongo;
+        this.afterInsert = afterInsert;
+        this.maxDocs = maxDocs;
+        this.maxBytes = maxBytes;
+        this.maxLatencyMs = maxLatencyMs;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.inserters = Executors.newFixedThreadPool(maxInFlight, r -> {
+            Thread t = new Thread(r, "db-inserter");
+            t.setDaemon(true);
+            return t;
+        });
+        this.thread = new Thread(this::run, "db-writer");
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    // Number of insertMany calls currently running
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    // Stops after everything already queued is written, waiting at most timeoutMs
+    public void shutdown(long timeoutMs) {
+        running = false;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        try {
+            thread.join(timeoutMs);
+            long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            // All permits back = no insert still running
+            if (inFlight.tryAcquire(maxInFlight, remaining, TimeUnit.MILLISECONDS)) {
+                inFlight.release(maxInFlight);
+            } else {
+                System.err.println("DB writer shutdown timed out with " + getInFlight() + " inserts running");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("DB writer shutdown interrupted");
+        }
+        inserters.shutdown();
+    }
+
+    private void run() {
+        List<Document> batch = new ArrayList<>(maxDocs);
+        long batchBytes = 0;
+        long batchStart = 0; // when the oldest document of the batch arrived
+
+        try {
+            while (running || !queue.isEmpty()) {
+                long wait = batch.isEmpty()
+                        ? maxLatencyMs
+                        : batchStart + maxLatencyMs - System.currentTimeMillis();
+                Document doc = wait > 0 ? queue.poll(Math.min(wait, 1000), TimeUnit.MILLISECONDS) : null;
+                if (doc != null) {
+                    if (batch.isEmpty()) batchStart = System.currentTimeMillis();
+                    batch.add(doc);
+                    batchBytes += estimateSize(doc);
+                    // Take whatever else is already waiting, without blocking per document
+                    while (batch.size() < maxDocs && batchBytes < maxBytes && (doc = queue.poll()) != null) {
+                        batch.add(doc);
+                        batchBytes += estimateSize(doc);
+                    }
+                }
+
+                boolean full = batch.size() >= maxDocs || batchBytes >= maxBytes;
+                boolean due = !batch.isEmpty() && System.currentTimeMillis() - batchStart >= maxLatencyMs;
+                boolean closing = !running && queue.isEmpty();
+                if (!batch.isEmpty() && (full || due || closing)) {
+                    flush(batch, batchStart);
+                    batch = new ArrayList<>(maxDocs);
+                    batchBytes = 0;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!batch.isEmpty()) {
+            try {
+                flush(batch, batchStart);
+                System.out.println("Inserted final batch of " + batch.size() + " documents");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Hands the batch to an insert slot, waiting for one if all are busy
+    private void flush(List<Document> batch, long batchStart) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            inserters.execute(() -> {
+                try {
+                    insertBatch(batch);
+                    CrawlerMetrics.dbFlushDelay.recordMicros((System.currentTimeMillis() - batchStart) * 1000);
+                    afterInsert.run();
+                } catch (Exception e) {
+                    CrawlerMetrics.recordError(null, "db_insert_" + e.getClass().getSimpleName());
+                    System.err.println("Batch insert failed: " + e.getMessage());
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            System.err.println("Batch of " + batch.size() + " documents dropped: writer is shut down");
+        }
+    }
+
+    // Near-duplicate aliases go to their own collection
+    private void insertBatch(List<Document> batch) {
+        long start = System.nanoTime();
+        List<Document> pages = new ArrayList<>(batch.size());
+        List<Document> aliases = new ArrayList<>();
+        for (Document doc : batch) {
+            (doc.containsKey("alias_of") ? aliases : pages).add(doc);
+        }
+        mongo.insertDocuments(pages);
+        mongo.insertAliases(aliases);
+        CrawlerMetrics.dbInsertLatency.recordNanos(System.nanoTime() - start);
+    }
+
+    // Rough BSON size: the text dominates, links and images add up on link-heavy pages
+    static long estimateSize(Document doc) {
+        long size = 256;
+        Object text = doc.get("text");
+        if (text instanceof String) size += ((String) text).length();
+        for (String field : new String[]{"links", "images", "h1s", "h2s"}) {
+            Object value = doc.get(field);
+            if (value instanceof List) {
+                for (Object item : (List<?>) value) {
+                    size += item == null ? 0 : item.toString().length() + 8;
+                }
+            }
+        }
+        return size;
+    }
+}
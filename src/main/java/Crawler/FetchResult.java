@@ -0,0 +1,110 @@
+package Crawler;
+
+import java.net.http.HttpHeaders;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.util.Locale;
+
+// Raw HTTP response handed from the fetch stage to the parse stage
+public class FetchResult {
+    private final String url;
+    private final String finalUrl;
+    private final int statusCode;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final String skipReason; // why the body was abandoned early, null if it was read
+    private final long bytesSkipped;  // declared body bytes never downloaded, 0 if unknown
+    private final boolean truncated;  // body cut at the fetcher's size limit
+
+    public FetchResult(String url, String finalUrl, int statusCode, HttpHeaders headers, byte[] body) {
+        this(url, finalUrl, statusCode, headers, body, false);
+    }
+
+    public FetchResult(String url, String finalUrl, int statusCode, HttpHeaders headers, byte[] body,
+                       boolean truncated) {
+        this(url, finalUrl, statusCode, headers, body, null, 0, truncated);
+    }
+
+    public FetchResult(String url, String finalUrl, int statusCode, HttpHeaders headers, byte[] body,
+                       String skipReason, long bytesSkipped) {
+        this(url, finalUrl, statusCode, headers, body, skipReason, bytesSkipped, false);
+    }
+
+    private FetchResult(String url, String finalUrl, int statusCode, HttpHeaders headers, byte[] body,
+                        String skipReason, long bytesSkipped, boolean truncated) {
+        this.url = url;
+        this.finalUrl = finalUrl;
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = body;
+        this.skipReason = skipReason;
+        this.bytesSkipped = bytesSkipped;
+        this.truncated = truncated;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getFinalUrl() {
+        return finalUrl;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    public String getHeader(String name) {
+        return headers.firstValue(name).orElse(null);
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    // True when the fetcher stopped reading because the page is not wanted
+    // ("content_type" or "language"); the body then holds only what was sniffed
+    public boolean isSkipped() {
+        return skipReason != null;
+    }
+
+    public String getSkipReason() {
+        return skipReason;
+    }
+
+    public long getBytesSkipped() {
+        return bytesSkipped;
+    }
+
+    // True when the server had more body than maxBodySize, the body holds the first part
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public String getContentType() {
+        return getHeader("Content-Type");
+    }
+
+    // Charset from the Content-Type header, or null to let Jsoup sniff <meta charset>
+    // (also when the JVM doesn't know the name, Jsoup would throw on it)
+    public String getCharset() {
+        String contentType = getContentType();
+        if (contentType == null) return null;
+        for (String part : contentType.split(";")) {
+            part = part.trim();
+            if (part.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                String charset = part.substring("charset=".length()).replace("\"", "").trim();
+                try {
+                    return !charset.isEmpty() && Charset.isSupported(charset) ? charset : null;
+                } catch (IllegalCharsetNameException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,216 @@
+package Crawler;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+// Disk tier of the frontier: URLs that don't fit in memory are appended to
+// segment-<n>.bin files (url + OPIC cash per record) and read back oldest segment
+// first, in batches, when the in-memory frontier has room again. Both directions are
+// sequential I/O; memory use is two stream buffers however much is spilled.
+// Segments left by a previous run are picked up again on startup (a partly read one
+// from its start; URLs already visited are skipped when they are polled).
+// A segment that has been read back is only deleted once a snapshot holding its URLs
+// is installed: the snapshot compacted away their log records while they were on
+// disk, so until then the segment is their only durable copy.
+public class FrontierSpill implements Closeable {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".bin";
+
+    private final Path dir;
+    private final int segmentUrls;
+    private final ArrayDeque<Path> sealed = new ArrayDeque<>(); // full segments, oldest first
+    private final ArrayDeque<Long> sealedRecords = new ArrayDeque<>(); // records in each of them
+    private long nextSegment = 0;
+    private long size = 0;
+
+    private DataOutputStream writer;
+    private Path writing;
+    private int writtenToSegment = 0;
+
+    private DataInputStream reader;
+    private Path reading;
+    private long readingRemaining;
+    private final List<Path> taken = new ArrayList<>();    // fully read, URLs not in memory yet
+    private final List<Path> consumed = new ArrayList<>(); // fully read, URLs in memory
+
+    public static class Entry {
+        public final String url;
+        public final double cash;
+
+        Entry(String url, double cash) {
+            this.url = url;
+            this.cash = cash;
+        }
+    }
+
+    public FrontierSpill(Path dir, int segmentUrls) throws IOException {
+        this.dir = dir;
+        this.segmentUrls = segmentUrls;
+        Files.createDirectories(dir);
+
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) existing.add(file);
+        }
+        existing.sort((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)));
+        for (Path file : existing) {
+            long records = countRecords(file);
+            if (records == 0) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            sealed.add(file);
+            sealedRecords.add(records);
+            size += records;
+            nextSegment = Math.max(nextSegment, segmentNumber(file) + 1);
+        }
+        if (size > 0) {
+            System.out.println("Frontier spill: " + size + " URLs in " + sealed.size() + " segments from the last run");
+        }
+    }
+
+    public synchronized void append(String url, double cash) throws IOException {
+        if (writer == null) {
+            writing = dir.resolve(SEGMENT_PREFIX + String.format("%012d", nextSegment++) + SEGMENT_SUFFIX);
+            writer = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(writing), 1 << 16));
+            writtenToSegment = 0;
+        }
+        writer.writeUTF(url);
+        writer.writeDouble(cash);
+        writtenToSegment++;
+        size++;
+        if (writtenToSegment >= segmentUrls) {
+            seal();
+        }
+    }
+
+    // Reads up to max URLs, oldest first. The segment being written is sealed early
+    // when nothing older is left, so spilled URLs never wait for a segment to fill.
+    public synchronized List<Entry> take(int max) throws IOException {
+        List<Entry> batch = new ArrayList<>(Math.min(max, 4096));
+        while (batch.size() < max && size > 0) {
+            if (reader == null) {
+                if (sealed.isEmpty()) {
+                    if (writer == null) break;
+                    seal();
+                }
+                reading = sealed.poll();
+                readingRemaining = sealedRecords.poll();
+                reader = new DataInputStream(new BufferedInputStream(Files.newInputStream(reading), 1 << 16));
+            }
+            try {
+                String url = reader.readUTF();
+                double cash = reader.readDouble();
+                batch.add(new Entry(url, cash));
+                size--;
+                if (--readingRemaining == 0) {
+                    finishReading();
+                }
+            } catch (EOFException e) {
+                // Segment torn by a crash: forget its missing records and go on with the next one
+                size -= readingRemaining;
+                finishReading();
+            }
+        }
+        return batch;
+    }
+
+    // The URLs of everything taken so far are in the in-memory frontier now
+    public synchronized void acknowledgeTaken() {
+        consumed.addAll(taken);
+        taken.clear();
+    }
+
+    // Segments whose URLs a snapshot started now will contain
+    public synchronized List<Path> consumedSegments() {
+        return new ArrayList<>(consumed);
+    }
+
+    // Called once a snapshot taken after consumedSegments() is installed
+    public synchronized void deleteConsumed(List<Path> segments) {
+        for (Path segment : segments) {
+            try {
+                Files.deleteIfExists(segment);
+                consumed.remove(segment);
+            } catch (IOException e) {
+                System.err.println("Failed to delete frontier spill segment " + segment + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Makes appended URLs durable, called with every checkpoint
+    public synchronized void flush() {
+        if (writer == null) return;
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("Failed to flush frontier spill: " + e.getMessage());
+        }
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+            if (reader != null) {
+                reader.close(); // the segment stays on disk and is read again next run
+                reader = null;
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to close frontier spill: " + e.getMessage());
+        }
+    }
+
+    private void seal() throws IOException {
+        writer.close();
+        writer = null;
+        sealed.add(writing);
+        sealedRecords.add((long) writtenToSegment);
+    }
+
+    private void finishReading() throws IOException {
+        reader.close();
+        reader = null;
+        taken.add(reading); // deleted after the next snapshot, see deleteConsumed
+        reading = null;
+    }
+
+    private static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Complete records in a segment; a record torn by a crash is not counted
+    private static long countRecords(Path file) throws IOException {
+        long records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                in.readUTF();
+                in.readDouble();
+                records++;
+            }
+        } catch (EOFException e) {
+            return records;
+        }
+    }
+}
@@ -0,0 +1,592 @@
+package Crawler;
+
+import Utils.LruCache;
+import Utils.NetworkLayer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Politeness-aware frontier: one queue per host plus a heap of hosts ordered by
+// the time they are next allowed to be fetched from.
+// How many requests a host gets at once and how long it rests between them adapts
+// to how it responds (see HostThrottle); hosts with a robots.txt Crawl-delay are
+// fetched by one worker at a time and never faster than that delay.
+//
+// Order within and across hosts is discovery order (FIFO), or with importance
+// ordering OPIC: every URL holds "cash", seeds start with SEED_CASH and a crawled
+// page splits its cash evenly over its outlinks. Among the hosts allowed to be
+// fetched now, the one whose best URL holds the most cash goes first.
+//
+// With a FrontierSpill attached, at most maxInMemory URLs are kept in the host queues;
+// further URLs are appended to disk and read back in batches as the queues drain.
+public class HostFrontier {
+    public static final double SEED_CASH = 1.0;
+
+    private final RobotsManager robotsM;
+    private final int maxHostConcurrency;
+    private final boolean byImportance;
+    private final boolean live; // false when pages are replayed from an archive
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    // Entries are invalidated by bumping the host's version instead of being removed.
+    // Hosts wait in waitingHeap until their time comes, then compete on cash in readyHeap.
+    private final PriorityQueue<ReadyEntry> waitingHeap =
+            new PriorityQueue<>(Comparator.comparingLong(e -> e.time));
+    private final PriorityQueue<ReadyEntry> readyHeap = new PriorityQueue<>((a, b) ->
+            a.cash != b.cash ? Double.compare(b.cash, a.cash) : Long.compare(a.time, b.time));
+    // Cash of URLs handed out by poll(), until their page is processed (takeCash)
+    private final LruCache<String, Double> dispatchedCash = new LruCache<>(100_000);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private int size = 0;
+    private int droppedHosts = 0;
+    private long droppedUrls = 0;
+    private FrontierSpill spill; // disk tier, null = everything stays in memory
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private int maxInMemory = Integer.MAX_VALUE;
+    // Fingerprints of the URLs waiting in memory or in the spill, so a link found on
+    // every page is queued (and spilled, and logged) once instead of once per page
+    private final LongHashSet queued = new LongHashSet(1024);
+
+    private static class HostQueue {
+        final String host;
+        final UrlQueue urls;
+        final HostThrottle throttle;
+        long nextFetchTime = 0;
+        long restUntil = 0;    // end of the delay after the last request that reached the host
+        int version = 0;
+        long scheduledAt = -1; // time of the valid heap entry, -1 if none
+        double scheduledCash = 0;
+
+        HostQueue(String host, int maxConcurrency, boolean byImportance, boolean polite) {
+            this.host = host;
+            this.urls = UrlQueue.create(byImportance);
+            this.throttle = new HostThrottle(maxConcurrency, polite);
+        }
+    }
+
+    private static class ReadyEntry {
+        final HostQueue queue;
+        final long time;
+        final double cash;
+        final int version;
+
+        ReadyEntry(HostQueue queue, long time, double cash, int version) {
+            this.queue = queue;
+            this.time = time;
+            this.cash = cash;
+            this.version = version;
+        }
+    }
+
+    public HostFrontier(RobotsManager robotsM) {
+        this(robotsM, CrawlerConfig.HOST_MAX_CONCURRENCY, CrawlerConfig.useImportanceOrder());
+    }
+
+    public HostFrontier(RobotsManager robotsM, int maxHostConcurrency, boolean byImportance) {
+        this(robotsM, maxHostConcurrency, byImportance, true);
+    }
+
+    // live = false for WARC replay: no politeness delays and no DNS lookups,
+    // every host may have maxHostConcurrency URLs out at once
+    public HostFrontier(RobotsManager robotsM, int maxHostConcurrency, boolean byImportance, boolean live) {
+        this.robotsM = robotsM;
+        this.maxHostConcurrency = maxHostConcurrency;
+        this.byImportance = byImportance;
+        this.live = live;
+    }
+
+    // Keeps at most maxInMemory URLs in memory, the rest go to spill
+    public void spillTo(FrontierSpill spill, int maxInMemory) {
+        lock.lock();
+        try {
+            this.spill = spill;
+            this.maxInMemory = Math.max(1, maxInMemory);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean add(String url) {
+        return add(url, 0);
+    }
+
+    // Queues url with the given OPIC cash (ignored in FIFO order). False if the URL is
+    // already queued; with importance ordering an in-memory copy is credited instead.
+    // Also false for URLs without a host and for hosts that were given up on.
+    public boolean add(String url, double cash) {
+        String host = hostOf(url);
+        if (host == null) return false;
+
+        lock.lock();
+        try {
+            Set<HostQueue> touched = new HashSet<>(2);
+            boolean added = offer(url, host, cash, touched);
+            for (HostQueue q : touched) {
+                schedule(q);
+            }
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Bulk add under one lock acquisition (sitemaps list thousands of URLs at once),
+    // each host is rescheduled once. Returns the URLs that were not queued yet.
+    public List<String> addAll(List<String> urls, List<Double> cash) {
+        List<String> added = new ArrayList<>();
+        Set<HostQueue> touched = new HashSet<>();
+        lock.lock();
+        try {
+            for (int i = 0; i < urls.size(); i++) {
+                String url = urls.get(i);
+                String host = hostOf(url);
+                if (host == null) continue;
+                double amount = i < cash.size() ? cash.get(i) : 0;
+                if (offer(url, host, amount, touched)) {
+                    added.add(url);
+                }
+            }
+            for (HostQueue q : touched) {
+                schedule(q);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return added;
+    }
+
+    // Caller must hold the lock. Queues url in memory or in the spill; hosts whose queue
+    // changed are added to touched for rescheduling
+    private boolean offer(String url, String host, double cash, Set<HostQueue> touched) {
+        long fp = VisitedStore.fingerprint(url);
+        if (queued.contains(fp)) {
+            HostQueue q = hosts.get(host);
+            if (q != null && q.urls.credit(url, cash)) {
+                touched.add(q);
+            }
+            return false;
+        }
+        if (size >= maxInMemory && spillOne(url, cash)) {
+            queued.add(fp);
+            return true;
+        }
+        HostQueue q = queueFor(host);
+        if (q == null) return false;
+        touched.add(q);
+        if (!q.urls.add(url, cash)) return false;
+        size++;
+        queued.add(fp);
+        return true;
+    }
+
+    // Caller must hold the lock; false if the URL couldn't be written and must stay in memory
+    private boolean spillOne(String url, double cash) {
+        if (spill == null) return false;
+        try {
+            spill.append(url, cash);
+            return true;
+        } catch (IOException e) {
+            CrawlerMetrics.recordError(url, "frontier_spill_" + e.getClass().getSimpleName());
+            return false;
+        }
+    }
+
+    // Moves a batch of spilled URLs into the host queues once a quarter of memory is free.
+    // The disk read happens outside the frontier lock.
+    private void refill() {
+        FrontierSpill source;
+        int room;
+        lock.lock();
+        try {
+            source = spill;
+            room = maxInMemory - size;
+            if (source == null || room < Math.max(1, maxInMemory / 4)) return;
+        } finally {
+            lock.unlock();
+        }
+        if (source.isEmpty()) return;
+        // One refill at a time, so acknowledgeTaken() only covers URLs already inserted
+        if (!refilling.compareAndSet(false, true)) return;
+        try {
+            refillFrom(source, room);
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    private void refillFrom(FrontierSpill source, int room) {
+
+        List<FrontierSpill.Entry> batch;
+        try {
+            batch = source.take(room);
+        } catch (IOException e) {
+            System.err.println("Failed to read frontier spill: " + e.getMessage());
+            return;
+        }
+        if (batch.isEmpty()) {
+            source.acknowledgeTaken(); // torn segments: nothing to insert
+            return;
+        }
+
+        lock.lock();
+        try {
+            Set<HostQueue> touched = new HashSet<>();
+            for (FrontierSpill.Entry entry : batch) {
+                String host = hostOf(entry.url);
+                HostQueue q = host == null ? null : queueFor(host);
+                long fp = VisitedStore.fingerprint(entry.url);
+                if (q == null) {
+                    queued.remove(fp);
+                    continue;
+                }
+                if (q.urls.add(entry.url, entry.cash)) {
+                    size++;
+                }
+                queued.add(fp); // spilled by an earlier run: not known yet
+                touched.add(q);
+            }
+            for (HostQueue q : touched) {
+                schedule(q);
+            }
+        } finally {
+            lock.unlock();
+        }
+        source.acknowledgeTaken();
+    }
+
+    // Caller must hold the lock; null for hosts that were given up on
+    private HostQueue queueFor(String host) {
+        HostQueue q = hosts.get(host);
+        if (q == null) {
+            q = new HostQueue(host, maxHostConcurrency, byImportance, live);
+            hosts.put(host, q);
+            if (live) {
+                NetworkLayer.prefetchDns(host); // resolved by the time it is first fetched
+            }
+        }
+        return q.throttle.isDead() ? null : q;
+    }
+
+    public boolean isImportanceOrdered() {
+        return byImportance;
+    }
+
+    // Cash the URL held when poll() handed it out; its page passes it on to its outlinks
+    public double takeCash(String url) {
+        if (!byImportance) return 0;
+        Double cash = dispatchedCash.get(url);
+        if (cash == null) return 0;
+        dispatchedCash.remove(url);
+        return cash;
+    }
+
+    public void addAll(Collection<String> urls) {
+        for (String url : urls) {
+            add(url);
+        }
+    }
+
+    // Returns the next URL whose host is allowed to be fetched now, waiting up to
+    // the given timeout. Returns null if no host became ready in time.
+    public String poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        refill();
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                // Hosts whose wait is over start competing on cash
+                ReadyEntry waiting = peekValid(waitingHeap);
+                while (waiting != null && waiting.time <= now) {
+                    waitingHeap.poll();
+                    HostQueue q = waiting.queue;
+                    readyHeap.add(new ReadyEntry(q, waiting.time, q.urls.peekCash(), waiting.version));
+                    waiting = peekValid(waitingHeap);
+                }
+
+                ReadyEntry head = peekValid(readyHeap);
+                if (head != null) {
+                    readyHeap.poll();
+                    HostQueue q = head.queue;
+                    q.version++;
+                    q.scheduledAt = -1;
+                    q.throttle.onDispatch();
+                    q.nextFetchTime = now + q.throttle.dispatchGap();
+                    size--;
+                    double cash = q.urls.peekCash();
+                    String url = q.urls.poll();
+                    queued.remove(VisitedStore.fingerprint(url));
+                    if (byImportance) {
+                        dispatchedCash.put(url, cash);
+                    }
+                    schedule(q); // hosts allowed several requests at once stay in the heap
+                    return url;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return null;
+                if (waiting != null) {
+                    remaining = Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(waiting.time - now));
+                }
+                changed.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Takes a request slot of host for a fetch that doesn't come from the queues (a
+    // sitemap), waiting for the host's delay and capacity as poll() would. The outcome is
+    // reported like for polled URLs, with release(...) or releaseFailed(...) for a URL on
+    // that host. False on timeout or when the host was given up on.
+    public boolean acquire(String host, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                HostQueue q = queueFor(host);
+                if (q == null) return false;
+                long now = System.currentTimeMillis();
+                long time = Math.max(q.nextFetchTime, q.throttle.getBlockedUntil());
+                boolean capacity = q.throttle.hasCapacity();
+                if (capacity && time <= now) {
+                    q.throttle.onDispatch();
+                    q.nextFetchTime = now + q.throttle.dispatchGap();
+                    q.version++; // the queue's heap entry is out of date now
+                    q.scheduledAt = -1;
+                    schedule(q);
+                    return true;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return false;
+                // A freed slot only signals when the host has queued URLs, so poll for it
+                long wait = capacity ? time - now : 100;
+                changed.awaitNanos(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(wait)));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Must be called once the fetch of a URL returned by poll() is finished
+    // (successfully or not) so its host can be scheduled again.
+    // fetched=false means no request reached the host (visited / robots skip);
+    // fetched=true without an outcome just applies the host's current delay.
+    public void release(String url, boolean fetched) {
+        String host = hostOf(url);
+        if (host == null) return;
+        long robotsDelay = fetched ? robotsM.getCrawlDelayMillis(host) : -1;
+
+        lock.lock();
+        try {
+            HostQueue q = hosts.get(host);
+            if (q == null) return;
+            q.throttle.onSkip();
+            if (fetched) {
+                q.throttle.applyRobotsDelay(robotsDelay);
+                q.restUntil = q.throttle.nextFetchTime(System.currentTimeMillis());
+                q.nextFetchTime = q.restUntil;
+            } else if (q.throttle.isIdle()) {
+                q.nextFetchTime = q.restUntil; // nothing was sent, the dispatch gap doesn't apply
+            }
+            schedule(q);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The host answered: feeds status, latency and Retry-After into its throttle
+    public void release(String url, int status, long latencyNanos, String retryAfter) {
+        String host = hostOf(url);
+        if (host == null) return;
+        long robotsDelay = robotsM.getCrawlDelayMillis(host);
+        long now = System.currentTimeMillis();
+
+        lock.lock();
+        try {
+            HostQueue q = hosts.get(host);
+            if (q == null) return;
+            q.throttle.applyRobotsDelay(robotsDelay);
+            q.throttle.onResponse(status, TimeUnit.NANOSECONDS.toMillis(latencyNanos),
+                    HostThrottle.parseRetryAfter(retryAfter, now), now);
+            afterOutcome(q, now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The request failed without a response (timeout, connection refused, ...)
+    public void releaseFailed(String url) {
+        String host = hostOf(url);
+        if (host == null) return;
+        long now = System.currentTimeMillis();
+
+        lock.lock();
+        try {
+            HostQueue q = hosts.get(host);
+            if (q == null) return;
+            q.throttle.onError(now);
+            afterOutcome(q, now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller must hold the lock
+    private void afterOutcome(HostQueue q, long now) {
+        if (q.throttle.isDead() && !q.urls.isEmpty()) {
+            // Dead host: its URLs would only keep timing out
+            droppedHosts++;
+            droppedUrls += q.urls.size();
+            size -= q.urls.size();
+            System.err.println("Giving up on " + q.host + ", dropping " + q.urls.size() + " queued URLs");
+            List<String> dropped = new ArrayList<>(q.urls.size());
+            q.urls.addAllTo(dropped);
+            for (String url : dropped) {
+                queued.remove(VisitedStore.fingerprint(url));
+            }
+            q.urls.clear();
+            q.version++;
+            q.scheduledAt = -1;
+            return;
+        }
+        q.restUntil = q.throttle.nextFetchTime(now);
+        q.nextFetchTime = q.restUntil;
+        schedule(q);
+    }
+
+    // Per-request timeout for the URL's host, based on how fast it usually answers
+    public int timeoutMillis(String url, int defaultMs) {
+        String host = hostOf(url);
+        if (host == null) return defaultMs;
+        lock.lock();
+        try {
+            HostQueue q = hosts.get(host);
+            return q == null ? defaultMs : q.throttle.timeoutMillis(defaultMs);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Hosts currently cut off by their circuit breaker
+    public int openCircuitCount() {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            int open = 0;
+            for (HostQueue q : hosts.values()) {
+                if (q.throttle.isCircuitOpen(now)) open++;
+            }
+            return open;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int droppedHostCount() {
+        lock.lock();
+        try {
+            return droppedHosts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long droppedUrlCount() {
+        lock.lock();
+        try {
+            return droppedUrls;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Queued URLs, in memory and spilled to disk
+    public long size() {
+        lock.lock();
+        try {
+            return size + (spill == null ? 0 : spill.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int memorySize() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long spilledSize() {
+        FrontierSpill source = spill;
+        return source == null ? 0 : source.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int hostCount() {
+        lock.lock();
+        try {
+            return hosts.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Copy of every URL queued in memory, used for checkpointing (spilled URLs are on disk already)
+    public List<String> snapshot() {
+        lock.lock();
+        try {
+            List<String> all = new ArrayList<>(size);
+            for (HostQueue q : hosts.values()) {
+                q.urls.addAllTo(all);
+            }
+            return all;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller must hold the lock
+    private void schedule(HostQueue q) {
+        if (q.urls.isEmpty() || !q.throttle.hasCapacity()) return;
+        long time = Math.max(q.nextFetchTime, q.throttle.getBlockedUntil());
+        double cash = q.urls.peekCash();
+        if (q.scheduledAt == time && q.scheduledCash >= cash) return;
+        q.version++;
+        q.scheduledAt = time;
+        q.scheduledCash = cash;
+        ReadyEntry entry = new ReadyEntry(q, time, cash, q.version);
+        (time <= System.currentTimeMillis() ? readyHeap : waitingHeap).add(entry);
+        changed.signalAll();
+    }
+
+    // Caller must hold the lock
+    private static ReadyEntry peekValid(PriorityQueue<ReadyEntry> heap) {
+        ReadyEntry head = heap.peek();
+        while (head != null && head.version != head.queue.version) {
+            heap.poll(); // stale
+            head = heap.peek();
+        }
+        return head;
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null || host.isEmpty() ? null : host.toLowerCase();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package Crawler;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Adaptive politeness state of one host, updated from the outcome of every fetch.
+//
+// AIMD: each healthy, fast response adds ~1/limit to the allowed concurrency and
+// shortens the delay a little; a slow response, 429/503, 5xx or timeout halves the
+// concurrency and doubles the delay. After FAILURE_THRESHOLD failures in a row the
+// circuit opens and the host is left alone for an exponentially growing backoff, then
+// one probe request is let through (half-open). A host that trips MAX_TRIPS times in a
+// row is given up on.
+//
+// An impolite throttle (archive replay, no server on the other end) never delays and
+// always allows maxConcurrency requests.
+//
+// Not thread safe: HostFrontier only touches it while holding its lock.
+class HostThrottle {
+    static final long MIN_DELAY_MS = CrawlerConfig.HOST_MIN_DELAY_MS;
+    static final long START_DELAY_MS = 1000;
+    static final long MAX_DELAY_MS = 30000;
+    private static final long DELAY_STEP_MS = 100;
+    private static final long SLOW_RESPONSE_MS = CrawlerConfig.HOST_SLOW_RESPONSE_MS;
+
+    static final int FAILURE_THRESHOLD = 5;
+    static final int MAX_TRIPS = 6; // 30 s + 1 + 2 + 4 + 8 + 16 min of backoff
+    private static final long BASE_BACKOFF_MS = 30_000;
+    private static final long MAX_RETRY_AFTER_MS = 60 * 60 * 1000L;
+
+    private static final int MIN_TIMEOUT_MS = 3000;
+
+    private final int maxConcurrency;
+    private final boolean polite;
+    private long floorDelayMs = MIN_DELAY_MS; // robots.txt Crawl-delay, never gone below
+    private int maxLimit;                      // 1 when robots.txt asks for a delay
+
+    private double limit = 1;
+    private long delayMs;
+    private int inFlight = 0;
+    private double latencyEwmaMs = -1;
+    private int samples = 0;
+    private int consecutiveFailures = 0;
+    private int trips = 0;
+    private boolean halfOpen = false;
+    private long blockedUntil = 0; // circuit open or Retry-After
+
+    HostThrottle(int maxConcurrency) {
+        this(maxConcurrency, true);
+    }
+
+    HostThrottle(int maxConcurrency, boolean polite) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.polite = polite;
+        this.maxLimit = this.maxConcurrency;
+        if (polite) {
+            this.delayMs = START_DELAY_MS;
+        } else {
+            this.floorDelayMs = 0;
+            this.delayMs = 0;
+            this.limit = this.maxConcurrency;
+        }
+    }
+
+    // robots.txt is usually read after the host was first queued, so this is re-applied
+    // on every response; robotsDelayMs < 0 means there is no Crawl-delay
+    void applyRobotsDelay(long robotsDelayMs) {
+        if (!polite) return;
+        if (robotsDelayMs >= 0) {
+            floorDelayMs = Math.min(Math.max(robotsDelayMs, MIN_DELAY_MS), MAX_DELAY_MS);
+            maxLimit = 1; // a crawl delay implies one request at a time
+        } else {
+            floorDelayMs = MIN_DELAY_MS;
+            maxLimit = maxConcurrency;
+        }
+        limit = Math.min(limit, maxLimit);
+        delayMs = Math.max(delayMs, floorDelayMs);
+    }
+
+    boolean hasCapacity() {
+        return inFlight < (halfOpen ? 1 : (int) limit);
+    }
+
+    boolean isIdle() {
+        return inFlight == 0;
+    }
+
+    void onDispatch() {
+        inFlight++;
+    }
+
+    // Earliest time the host may be contacted again, given its last fetch started/ended now
+    long nextFetchTime(long now) {
+        return Math.max(now + delayMs, blockedUntil);
+    }
+
+    // Start-to-start spacing while other requests to the host are still running
+    long dispatchGap() {
+        return delayMs / Math.max(1, (int) limit);
+    }
+
+    long getBlockedUntil() {
+        return blockedUntil;
+    }
+
+    // Request finished without contacting the host (visited / robots skip)
+    void onSkip() {
+        inFlight = Math.max(0, inFlight - 1);
+    }
+
+    // A response came back; retryAfterMs < 0 when there was no Retry-After header
+    void onResponse(int status, long latencyMs, long retryAfterMs, long now) {
+        inFlight = Math.max(0, inFlight - 1);
+        if (!polite) return;
+        latencyEwmaMs = latencyEwmaMs < 0 ? latencyMs : 0.8 * latencyEwmaMs + 0.2 * latencyMs;
+        samples++;
+
+        if (status == 429 || status == 503) {
+            backOff();
+            if (retryAfterMs > 0) {
+                blockedUntil = Math.max(blockedUntil, now + Math.min(retryAfterMs, MAX_RETRY_AFTER_MS));
+            }
+            if (status == 503) {
+                onFailure(now);
+            }
+            return;
+        }
+        if (status >= 500) {
+            backOff();
+            onFailure(now);
+            return;
+        }
+
+        // The server answered (4xx included): it is alive
+        consecutiveFailures = 0;
+        trips = 0;
+        halfOpen = false;
+        if (latencyMs > SLOW_RESPONSE_MS) {
+            backOff();
+        } else {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+            delayMs = Math.max(floorDelayMs, delayMs - DELAY_STEP_MS);
+        }
+    }
+
+    // Connection error or timeout
+    void onError(long now) {
+        inFlight = Math.max(0, inFlight - 1);
+        if (!polite) return;
+        backOff();
+        onFailure(now);
+    }
+
+    private void backOff() {
+        limit = Math.max(1, limit / 2);
+        delayMs = Math.min(MAX_DELAY_MS, Math.max(floorDelayMs, delayMs * 2));
+    }
+
+    private void onFailure(long now) {
+        consecutiveFailures++;
+        if (halfOpen || consecutiveFailures >= FAILURE_THRESHOLD) {
+            long backoff = Math.min(BASE_BACKOFF_MS << Math.min(trips, 20), MAX_RETRY_AFTER_MS);
+            blockedUntil = Math.max(blockedUntil, now + backoff);
+            trips++;
+            consecutiveFailures = 0;
+            halfOpen = true; // one probe request once the backoff is over
+        }
+    }
+
+    boolean isCircuitOpen(long now) {
+        return halfOpen && blockedUntil > now;
+    }
+
+    boolean isDead() {
+        return trips >= MAX_TRIPS;
+    }
+
+    // Request timeout for this host: a few times its usual latency, within [3 s, defaultMs]
+    int timeoutMillis(int defaultMs) {
+        if (samples < 3) return defaultMs;
+        long timeout = (long) (latencyEwmaMs * 4) + 1000;
+        return (int) Math.max(Math.min(MIN_TIMEOUT_MS, defaultMs), Math.min(timeout, defaultMs));
+    }
+
+    double getLimit() {
+        return limit;
+    }
+
+    long getDelayMs() {
+        return delayMs;
+    }
+
+    // Retry-After is either delta-seconds or an HTTP date; returns -1 when absent or invalid
+    static long parseRetryAfter(String value, long now) {
+        if (value == null || value.isBlank()) return -1;
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - now);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
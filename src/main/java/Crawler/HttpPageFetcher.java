@@ -0,0 +1,145 @@
+package Crawler;
+
+import Utils.NetworkLayer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Fetches pages through the process-wide NetworkLayer client, so connections, TLS
+// sessions and DNS answers are shared with robots.txt and image downloads.
+// Safe to call from many (virtual) threads.
+//
+// An htmlOnly fetcher streams the body and gives up on a 2xx response as soon as it
+// is clearly unwanted: a non-HTML Content-Type or a non-English Content-Language
+// (checked on the headers alone), or a non-English <html lang> in the first
+// SNIFF_BYTES. Closing the body stream early aborts the transfer.
+public class HttpPageFetcher implements PageFetcher {
+    static final int SNIFF_BYTES = 8 * 1024;
+
+    private static final Pattern HTML_TAG = Pattern.compile("<html\\b([^>]*)>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LANG_ATTRIBUTE = Pattern.compile(
+            "(?<![\\w:-])lang\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s>]*))", Pattern.CASE_INSENSITIVE);
+
+    private final Duration timeout;
+    private final int maxBodySize;
+    private final boolean htmlOnly;
+
+    public HttpPageFetcher(int timeoutMs, int maxBodySize) {
+        this(timeoutMs, maxBodySize, false);
+    }
+
+    public HttpPageFetcher(int timeoutMs, int maxBodySize, boolean htmlOnly) {
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.maxBodySize = maxBodySize;
+        this.htmlOnly = htmlOnly;
+    }
+
+    @Override
+    public FetchResult fetch(String url) throws IOException, InterruptedException {
+        return fetchConditional(url, null, null);
+    }
+
+    @Override
+    public FetchResult fetch(String url, int timeoutMs) throws IOException, InterruptedException {
+        return send(url, null, null, Duration.ofMillis(timeoutMs));
+    }
+
+    @Override
+    public FetchResult fetchConditional(String url, String etag, String lastModified) throws IOException, InterruptedException {
+        return send(url, etag, lastModified, timeout);
+    }
+
+    private FetchResult send(String url, String etag, String lastModified, Duration timeout) throws IOException, InterruptedException {
+        HttpRequest request;
+        try {
+            HttpRequest.Builder builder = NetworkLayer.request(url, timeout)
+                    .header("Accept", "text/html,application/xhtml+xml;q=0.9,*/*;q=0.5");
+            if (etag != null && !etag.isEmpty()) {
+                builder.header("If-None-Match", etag);
+            }
+            if (lastModified != null && !lastModified.isEmpty()) {
+                builder.header("If-Modified-Since", lastModified);
+            }
+            request = builder.GET().build();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid URL: " + url, e);
+        }
+
+        HttpResponse<InputStream> response = NetworkLayer.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        String finalUrl = response.uri().toString();
+        int status = response.statusCode();
+        boolean filter = htmlOnly && status >= 200 && status < 300;
+        long declared = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        byte[] body;
+        boolean truncated;
+        // Read at most maxBodySize bytes, closing the stream drops the rest
+        try (InputStream in = response.body()) {
+            if (filter) {
+                String reason = rejectHeaders(response.headers().firstValue("Content-Type").orElse(null),
+                        response.headers().firstValue("Content-Language").orElse(null));
+                if (reason != null) {
+                    return skipped(url, finalUrl, response, new byte[0], reason, declared);
+                }
+                byte[] head = in.readNBytes(Math.min(SNIFF_BYTES, maxBodySize));
+                String lang = sniffHtmlLang(head);
+                if (lang != null && !PageProcessor.isEnglishTag(lang)) {
+                    return skipped(url, finalUrl, response, head, "language", declared);
+                }
+                byte[] rest = in.readNBytes(maxBodySize - head.length);
+                body = new byte[head.length + rest.length];
+                System.arraycopy(head, 0, body, 0, head.length);
+                System.arraycopy(rest, 0, body, head.length, rest.length);
+            } else {
+                body = in.readNBytes(maxBodySize);
+            }
+            // One byte past the limit tells "exactly maxBodySize" from "cut off"
+            truncated = body.length == maxBodySize && in.read() != -1;
+        }
+        return new FetchResult(url, finalUrl, status, response.headers(), body, truncated);
+    }
+
+    private FetchResult skipped(String url, String finalUrl, HttpResponse<?> response, byte[] read,
+                                String reason, long declared) {
+        long notRead = declared < 0 ? 0 : Math.max(0, Math.min(declared, maxBodySize) - read.length);
+        return new FetchResult(url, finalUrl, response.statusCode(), response.headers(), read, reason, notRead);
+    }
+
+    // "content_type" / "language" when the headers alone rule the page out, null otherwise
+    static String rejectHeaders(String contentType, String contentLanguage) {
+        if (contentType != null && !contentType.isBlank()) {
+            String mime = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+            if (!mime.equals("text/html") && !mime.equals("application/xhtml+xml")) {
+                return "content_type";
+            }
+        }
+        if (contentLanguage != null && !contentLanguage.isBlank()) {
+            // e.g. "de, en-CA": fine as long as one of them is English
+            for (String tag : contentLanguage.split(",")) {
+                if (PageProcessor.isEnglishTag(tag)) return null;
+            }
+            return "language";
+        }
+        return null;
+    }
+
+    // lang attribute of the <html> start tag in the first bytes of a page: "" when the tag
+    // has none, null when the tag isn't there (too far in, or not HTML)
+    static String sniffHtmlLang(byte[] head) {
+        // Tag and attribute names are ASCII in every charset a page declares
+        Matcher tag = HTML_TAG.matcher(new String(head, StandardCharsets.ISO_8859_1));
+        if (!tag.find()) return null;
+        Matcher lang = LANG_ATTRIBUTE.matcher(tag.group(1));
+        if (!lang.find()) return "";
+        for (int group = 1; group <= 3; group++) {
+            if (lang.group(group) != null) return lang.group(group);
+        }
+        return "";
+    }
+}
@@ -0,0 +1,112 @@
+package Crawler;
+
+import java.util.Arrays;
+
+// Open-addressing set of primitive longs (no boxing). Not thread safe.
+// 0 is used as the empty marker, so it is stored in a separate flag.
+class LongHashSet {
+    private long[] table;
+    private int size;
+    private boolean hasZero;
+
+    LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        table = new long[capacity];
+    }
+
+    boolean add(long value) {
+        if (value == 0) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        if ((size + 1) * 2 > table.length) {
+            resize();
+        }
+        int mask = table.length - 1;
+        int i = (int) BloomFilter.mix(value) & mask;
+        while (table[i] != 0) {
+            if (table[i] == value) return false;
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        size++;
+        return true;
+    }
+
+    boolean contains(long value) {
+        if (value == 0) return hasZero;
+        int mask = table.length - 1;
+        int i = (int) BloomFilter.mix(value) & mask;
+        while (table[i] != 0) {
+            if (table[i] == value) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    boolean remove(long value) {
+        if (value == 0) {
+            if (!hasZero) return false;
+            hasZero = false;
+            size--;
+            return true;
+        }
+        int mask = table.length - 1;
+        int i = (int) BloomFilter.mix(value) & mask;
+        while (table[i] != value) {
+            if (table[i] == 0) return false;
+            i = (i + 1) & mask;
+        }
+        // Backward shift: move later entries of the probe run into the hole, so
+        // lookups never stop early at it
+        int hole = i;
+        for (int j = (hole + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+            int home = (int) BloomFilter.mix(table[j]) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                table[hole] = table[j];
+                hole = j;
+            }
+        }
+        table[hole] = 0;
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(table, 0);
+        size = 0;
+        hasZero = false;
+    }
+
+    // Values in ascending (signed) order
+    long[] toSortedArray() {
+        long[] out = new long[size];
+        int n = 0;
+        if (hasZero) out[n++] = 0;
+        for (long v : table) {
+            if (v != 0) out[n++] = v;
+        }
+        Arrays.sort(out);
+        return out;
+    }
+
+    private void resize() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        int mask = table.length - 1;
+        for (long v : old) {
+            if (v == 0) continue;
+            int i = (int) BloomFilter.mix(v) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = v;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package Crawler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Banded LSH table over SimHash fingerprints.
+// The 64 bits are cut into MAX_DISTANCE + 1 bands; two fingerprints at most
+// MAX_DISTANCE bits apart must agree on at least one whole band, so only pages
+// sharing a band are compared bit by bit.
+public class NearDuplicateIndex {
+    static final int MAX_DISTANCE = 3;
+    private static final int BANDS = MAX_DISTANCE + 1;
+    private static final int BAND_BITS = 64 / BANDS;
+
+    // band value -> ids of pages having it (first slot holds the count)
+    private final Map<Integer, int[]>[] bands;
+    private long[] fingerprints = new long[1024];
+    private String[] urls = new String[1024];
+    private int size = 0;
+
+    @SuppressWarnings("unchecked")
+    public NearDuplicateIndex() {
+        bands = new Map[BANDS];
+        for (int b = 0; b < BANDS; b++) {
+            bands[b] = new HashMap<>();
+        }
+    }
+
+    // Returns the URL of an already seen near-duplicate, or registers this page and returns null.
+    // A zero fingerprint (text too short) never matches.
+    public synchronized String findOrAdd(long fingerprint, String url) {
+        if (fingerprint == 0) return null;
+        String original = find(fingerprint);
+        if (original == null) {
+            add(fingerprint, url);
+        }
+        return original;
+    }
+
+    public synchronized void add(long fingerprint, String url) {
+        if (fingerprint == 0) return;
+        if (size == fingerprints.length) {
+            fingerprints = Arrays.copyOf(fingerprints, size * 2);
+            urls = Arrays.copyOf(urls, size * 2);
+        }
+        int id = size++;
+        fingerprints[id] = fingerprint;
+        urls[id] = url;
+        for (int b = 0; b < BANDS; b++) {
+            int[] ids = bands[b].get(band(fingerprint, b));
+            if (ids == null) {
+                ids = new int[4];
+            } else if (ids[0] + 1 == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[++ids[0]] = id;
+            bands[b].put(band(fingerprint, b), ids);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private String find(long fingerprint) {
+        String best = null;
+        int bestDistance = MAX_DISTANCE + 1;
+        for (int b = 0; b < BANDS; b++) {
+            int[] ids = bands[b].get(band(fingerprint, b));
+            if (ids == null) continue;
+            for (int k = 1; k <= ids[0]; k++) {
+                int distance = SimHash.distance(fingerprint, fingerprints[ids[k]]);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = urls[ids[k]];
+                    if (distance == 0) return best;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int band(long fingerprint, int b) {
+        return (int) ((fingerprint >>> (b * BAND_BITS)) & ((1L << BAND_BITS) - 1));
+    }
+}
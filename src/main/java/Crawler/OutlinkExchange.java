@@ -0,0 +1,140 @@
+package Crawler;
+
+import dbManager.dbManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjDoubleConsumer;
+
+// Hands discovered links to the partition that owns their host.
+// Links are buffered per destination and written as one document per batch into the
+// shared crawl_exchange collection; each process polls the batches addressed to it.
+// Delivery is at-least-once (a batch is deleted only after its links were enqueued),
+// duplicates are dropped by the receiver's visited set.
+public class OutlinkExchange {
+    private final Partitioner partitioner;
+    private final dbManager mongo;
+    private final int batchSize;
+    private final Outbox[] outboxes;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private ScheduledExecutorService poller;
+
+    private static final int MAX_BATCHES_PER_POLL = 50;
+
+    // Links (and their OPIC cash) waiting to be sent to one partition
+    private static class Outbox {
+        List<String> urls = new ArrayList<>();
+        List<Double> cash = new ArrayList<>();
+    }
+
+    public OutlinkExchange(Partitioner partitioner, dbManager mongo, int batchSize) {
+        this.partitioner = partitioner;
+        this.mongo = mongo;
+        this.batchSize = batchSize;
+        this.outboxes = new Outbox[partitioner.getCount()];
+        for (int i = 0; i < outboxes.length; i++) {
+            outboxes[i] = new Outbox();
+        }
+    }
+
+    // Queues a link owned by another partition, sending its batch once full
+    public void forward(String url, double cash) {
+        int owner = partitioner.ownerOf(url);
+        if (owner < 0 || owner == partitioner.getId()) return;
+
+        Outbox full = null;
+        Outbox outbox = outboxes[owner];
+        synchronized (outbox) {
+            outbox.urls.add(url);
+            outbox.cash.add(cash);
+            if (outbox.urls.size() >= batchSize) {
+                full = take(outbox);
+            }
+        }
+        if (full != null) {
+            send(owner, full);
+        }
+    }
+
+    // Sends every partially filled batch
+    public void flush() {
+        for (int owner = 0; owner < outboxes.length; owner++) {
+            Outbox pending;
+            synchronized (outboxes[owner]) {
+                if (outboxes[owner].urls.isEmpty()) continue;
+                pending = take(outboxes[owner]);
+            }
+            send(owner, pending);
+        }
+    }
+
+    // Caller must hold the outbox lock
+    private static Outbox take(Outbox outbox) {
+        Outbox taken = new Outbox();
+        taken.urls = outbox.urls;
+        taken.cash = outbox.cash;
+        outbox.urls = new ArrayList<>();
+        outbox.cash = new ArrayList<>();
+        return taken;
+    }
+
+    private void send(int owner, Outbox batch) {
+        mongo.forwardUrls(owner, partitioner.getId(), batch.urls, batch.cash);
+        sent.add(batch.urls.size());
+    }
+
+    // Receives batches addressed to this partition (and flushes our own) every intervalMillis
+    public synchronized void start(ObjDoubleConsumer<String> receiver, long intervalMillis) {
+        if (poller != null) return;
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "outlink-exchange");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+                receive(receiver);
+            } catch (Exception e) {
+                CrawlerMetrics.recordError(null, e);
+                System.err.println("Outlink exchange failed: " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int receive(ObjDoubleConsumer<String> receiver) {
+        int count = mongo.receiveForwardedUrls(partitioner.getId(), MAX_BATCHES_PER_POLL, (urls, cash) -> {
+            for (int i = 0; i < urls.size(); i++) {
+                receiver.accept(urls.get(i), i < cash.size() ? cash.get(i) : 0);
+            }
+        });
+        received.add(count);
+        return count;
+    }
+
+    public synchronized void stop() {
+        if (poller != null) {
+            poller.shutdown();
+            try {
+                poller.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            poller = null;
+        }
+        flush();
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+}
@@ -0,0 +1,158 @@
+package Crawler;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Walks a page body once and pulls out everything later stages need:
+// whitespace-normalized text (same as Element.text()), h1/h2 texts, block
+// boundaries as [start, end) offsets into the text, outlinks and image URLs.
+// Indexing, snippets and phrase search read these fields instead of re-parsing HTML.
+public class PageExtractor implements NodeVisitor {
+    private final int maxImages;
+
+    private final StringBuilder text = new StringBuilder();
+    private final List<String> h1s = new ArrayList<>();
+    private final List<String> h2s = new ArrayList<>();
+    private final List<Integer> blocks = new ArrayList<>();
+    private final Set<String> links = new LinkedHashSet<>();
+    private final Set<String> images = new LinkedHashSet<>();
+
+    private boolean pendingSpace = false;
+    private int blockStart = -1; // -1 until the current block gets its first character
+    private int h1Start = -1;
+    private int h2Start = -1;
+
+    private PageExtractor(int maxImages) {
+        this.maxImages = maxImages;
+    }
+
+    public static PageExtractor extract(Element body, int maxImages) {
+        PageExtractor extractor = new PageExtractor(maxImages);
+        if (body != null) {
+            NodeTraversor.traverse(extractor, body);
+        }
+        extractor.boundary();
+        return extractor;
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    public List<String> getH1s() {
+        return h1s;
+    }
+
+    public List<String> getH2s() {
+        return h2s;
+    }
+
+    // Flat list: start0, end0, start1, end1, ...
+    public List<Integer> getBlocks() {
+        return blocks;
+    }
+
+    // Absolute hrefs in document order, not normalized yet
+    public Set<String> getLinks() {
+        return links;
+    }
+
+    public List<String> getImages() {
+        return new ArrayList<>(images);
+    }
+
+    @Override
+    public void head(Node node, int depth) {
+        if (node instanceof TextNode) {
+            appendNormalized(((TextNode) node).getWholeText());
+            return;
+        }
+        if (!(node instanceof Element)) return;
+
+        Element el = (Element) node;
+        String tag = el.normalName();
+        if (el.isBlock() || tag.equals("br")) {
+            boundary();
+        }
+        switch (tag) {
+            case "h1":
+                if (h1Start < 0) h1Start = text.length();
+                break;
+            case "h2":
+                if (h2Start < 0) h2Start = text.length();
+                break;
+            case "a":
+                if (el.hasAttr("href")) {
+                    String href = el.absUrl("href");
+                    if (!href.isEmpty()) links.add(href);
+                }
+                break;
+            case "img":
+                if (images.size() < maxImages && el.hasAttr("src")) {
+                    String src = el.absUrl("src");
+                    if (!src.isEmpty()) images.add(src);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void tail(Node node, int depth) {
+        if (!(node instanceof Element)) return;
+
+        Element el = (Element) node;
+        String tag = el.normalName();
+        if (tag.equals("h1") && h1Start >= 0) {
+            addHeading(h1s, h1Start);
+            h1Start = -1;
+        } else if (tag.equals("h2") && h2Start >= 0) {
+            addHeading(h2s, h2Start);
+            h2Start = -1;
+        }
+        if (el.isBlock()) {
+            boundary();
+        }
+    }
+
+    private void addHeading(List<String> target, int start) {
+        String heading = text.substring(Math.min(start, text.length())).trim();
+        if (!heading.isEmpty()) target.add(heading);
+    }
+
+    // Collapses whitespace runs into one space, like Element.text()
+    private void appendNormalized(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c) || c == '\u00a0') {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace && text.length() > 0) {
+                text.append(' ');
+            }
+            pendingSpace = false;
+            if (blockStart < 0) blockStart = text.length();
+            text.append(c);
+        }
+    }
+
+    // End of a block element: close the current text block
+    private void boundary() {
+        pendingSpace = true;
+        if (blockStart >= 0 && text.length() > blockStart) {
+            blocks.add(blockStart);
+            blocks.add(text.length());
+        }
+        blockStart = -1;
+    }
+}
@@ -0,0 +1,18 @@
+package Crawler;
+
+import java.io.IOException;
+
+public interface PageFetcher {
+    FetchResult fetch(String url) throws IOException, InterruptedException;
+
+    // Same, with a per-request timeout; fetchers without one use their default
+    default FetchResult fetch(String url, int timeoutMs) throws IOException, InterruptedException {
+        return fetch(url);
+    }
+
+    // Revalidates a previously fetched page; a 304 status means it did not change.
+    // Fetchers that can't send validators just fetch the page again.
+    default FetchResult fetchConditional(String url, String etag, String lastModified) throws IOException, InterruptedException {
+        return fetch(url);
+    }
+}
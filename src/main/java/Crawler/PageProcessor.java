@@ -0,0 +1,156 @@
+package Crawler;
+
+import org.bson.Document;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Turns a fetched and parsed page into a stored document plus new frontier URLs.
+// Shared by the blocking CrawlerWorker and the virtual-thread fetch stage.
+public class PageProcessor {
+    private final HostFrontier urlsToCrawl;
+    private final VisitedStore visited;
+    private final AtomicInteger pageCount;
+    private final int maxPages;
+    private final RobotsManager robotsM;
+    private final BlockingQueue<Document> documentQueue;
+    private final Crawler crawler;
+    private final NearDuplicateIndex duplicates;
+
+    private static final int MAX_IMAGES_PER_PAGE = 50;
+
+    public PageProcessor(
+            HostFrontier urlsToCrawl,
+            VisitedStore visited,
+            AtomicInteger pageCount,
+            int maxPages,
+            RobotsManager robotsM,
+            BlockingQueue<Document> documentQueue,
+            Crawler crawler,
+            NearDuplicateIndex duplicates) {
+        this.urlsToCrawl = urlsToCrawl;
+        this.visited = visited;
+        this.pageCount = pageCount;
+        this.maxPages = maxPages;
+        this.robotsM = robotsM;
+        this.documentQueue = documentQueue;
+        this.crawler = crawler;
+        this.duplicates = duplicates;
+    }
+
+    public boolean isDone() {
+        return pageCount.get() >= maxPages;
+    }
+
+    // Marks the URL visited and checks robots.txt; false means don't fetch it
+    public boolean shouldFetch(String url) {
+        // Skip if already visited
+        if (!crawler.markVisited(url)) {
+            return false;
+        }
+        // Check robots.txt (rules are cached per host)
+        return robotsM.canCrawl(url);
+    }
+
+    public void process(String url, org.jsoup.nodes.Document doc) throws InterruptedException {
+        process(url, doc, null, null);
+    }
+
+    // etag / lastModified are the response validators, kept for conditional revisits
+    public void process(String url, org.jsoup.nodes.Document doc, String etag, String lastModified) throws InterruptedException {
+        if (!isEnglish(url, doc)) {
+            CrawlerMetrics.skippedLanguage.increment();
+            return;
+        }
+
+        if (pageCount.incrementAndGet() > maxPages) {
+            return; // budget already spent by concurrent fetches
+        }
+
+        Document bsonDoc = buildDocument(crawler, url, doc);
+
+        // Mirrors, print views and session variants: store an alias instead of the page
+        String original = duplicates.findOrAdd(bsonDoc.getLong("simhash"), url);
+        if (original != null) {
+            pageCount.decrementAndGet();
+            CrawlerMetrics.duplicates.increment();
+            Document alias = new Document("url", url)
+                    .append("alias_of", original)
+                    .append("timestamp", System.currentTimeMillis());
+            if (!documentQueue.offer(alias, 5, TimeUnit.SECONDS)) {
+                CrawlerMetrics.recordError(url, "document_queue_full");
+                System.err.println("Failed to queue alias: " + url + " - queue full");
+            }
+            return;
+        }
+
+        bsonDoc.append("timestamp", System.currentTimeMillis())
+                .append("indexed", false)
+                .append("images_indexed", false);
+        RevisitScheduler.initSchedule(bsonDoc, etag, lastModified);
+
+        // OPIC: the page's cash is split evenly over its outlinks (0 in FIFO order)
+        List<String> links = bsonDoc.getList("links", String.class);
+        double share = links.isEmpty() ? 0 : urlsToCrawl.takeCash(url) / links.size();
+
+        // Only add to crawl queue if not visited and allowed by robots.txt
+        for (String link : links) {
+            if (crawler.forwardIfRemote(link, share)) {
+                continue; // the owning partition checks visited / robots itself
+            }
+            if (!visited.contains(link) && robotsM.canCrawl(link)) {
+                crawler.enqueue(link, share); // past the memory limit the frontier spills to disk
+            }
+        }
+
+        // Add to queue with timeout to prevent blocking forever
+        if (!documentQueue.offer(bsonDoc, 5, TimeUnit.SECONDS)) {
+            CrawlerMetrics.recordError(url, "document_queue_full");
+            System.err.println("Failed to queue document: " + url + " - queue full");
+        } else {
+            CrawlerMetrics.pagesStored.increment();
+        }
+    }
+
+    static boolean isEnglish(String url, org.jsoup.nodes.Document doc) {
+        try {
+            return isEnglishTag(doc.selectFirst("html").attr("lang"));
+        } catch (NullPointerException e) {
+            return true; // no lang attribute
+        }
+    }
+
+    // Language tag of <html lang> or Content-Language; a page without one isn't kept either
+    static boolean isEnglishTag(String lang) {
+        return lang.trim().toLowerCase().startsWith("en");
+    }
+
+    // Extracts the stored record of a page in one pass over the body:
+    // title, text, h1s, h2s, text blocks, normalized links, images and text simhash
+    static Document buildDocument(Crawler crawler, String url, org.jsoup.nodes.Document doc) {
+        String title = doc.title() != null && !doc.title().isEmpty() ? doc.title() : "Untitled";
+        PageExtractor page = PageExtractor.extract(doc.body(), MAX_IMAGES_PER_PAGE);
+
+        List<String> linksText = new ArrayList<>();
+        Set<String> seenLinks = new HashSet<>();
+        for (String newUrl : page.getLinks()) {
+            String normalizedUrl = crawler.normalizeUrl(newUrl, url);
+            if (normalizedUrl != null && normalizedUrl.length() < 500 && seenLinks.add(normalizedUrl)) { // Avoid extremely long URLs
+                linksText.add(normalizedUrl);
+            }
+        }
+
+        String text = page.getText();
+        return new Document("url", url)
+                .append("title", title)
+                .append("text", text)
+                .append("h1s", page.getH1s())
+                .append("h2s", page.getH2s())
+                .append("blocks", page.getBlocks())
+                .append("links", linksText)
+                .append("images", page.getImages())
+                .append("simhash", SimHash.fingerprint(text));
+    }
+}
@@ -0,0 +1,66 @@
+package Crawler;
+
+import java.nio.charset.StandardCharsets;
+
+// Splits the crawl between several Crawler processes by host: every host belongs to
+// exactly one partition, so its frontier queue, robots.txt and crawl delay live in one
+// process and politeness never has to be coordinated across processes.
+public class Partitioner {
+    private final int id;
+    private final int count;
+
+    public Partitioner(int id, int count) {
+        if (count < 1 || id < 0 || id >= count) {
+            throw new IllegalArgumentException("Invalid partition " + id + "/" + count);
+        }
+        this.id = id;
+        this.count = count;
+    }
+
+    // "2/4" -> partition 2 of 4
+    public static Partitioner parse(String spec) {
+        int slash = spec.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Partition must look like <id>/<count>: " + spec);
+        }
+        return new Partitioner(Integer.parseInt(spec.substring(0, slash).trim()),
+                Integer.parseInt(spec.substring(slash + 1).trim()));
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isPartitioned() {
+        return count > 1;
+    }
+
+    // Partition that owns the URL's host, -1 for URLs without a host
+    public int ownerOf(String url) {
+        String host = HostFrontier.hostOf(url);
+        return host == null ? -1 : ownerOfHost(host);
+    }
+
+    public int ownerOfHost(String host) {
+        if (count == 1) return 0;
+        // Stable across JVMs, unlike String.hashCode() it spreads similar host names well
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : host.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return (int) Long.remainderUnsigned(BloomFilter.mix(hash), count);
+    }
+
+    public boolean isLocal(String url) {
+        return count == 1 || ownerOf(url) == id;
+    }
+
+    @Override
+    public String toString() {
+        return id + "/" + count;
+    }
+}
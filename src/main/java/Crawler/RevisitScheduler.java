@@ -0,0 +1,214 @@
+package Crawler;
+
+import dbManager.dbManager;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.jsoup.Jsoup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Refreshes already stored pages with conditional GETs (If-None-Match / If-Modified-Since).
+// A 304 or an identical body only pushes the next visit further out; a changed page is
+// rewritten and flagged indexed=false so the indexer picks it up again.
+// Each page's revisit interval adapts to how often it was seen changing.
+public class RevisitScheduler {
+    static final long INITIAL_INTERVAL_MS = 24 * 60 * 60 * 1000L;   // 1 day
+    static final long MIN_INTERVAL_MS = 60 * 60 * 1000L;            // 1 hour
+    static final long MAX_INTERVAL_MS = 30 * 24 * 60 * 60 * 1000L;  // 30 days
+    private static final double UNCHANGED_FACTOR = 1.5;
+    private static final double CHANGED_FACTOR = 0.5;
+
+    private final dbManager mongo;
+    private final RobotsManager robotsM;
+    private final PageFetcher fetcher;
+    private final Crawler crawler;
+    private final int numThreads;
+
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private final AtomicInteger changed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public RevisitScheduler(dbManager mongo, RobotsManager robotsM, PageFetcher fetcher, Crawler crawler, int numThreads) {
+        this.mongo = mongo;
+        this.robotsM = robotsM;
+        this.fetcher = fetcher;
+        this.crawler = crawler;
+        this.numThreads = numThreads;
+    }
+
+    // Revisit fields of a freshly crawled page
+    static void initSchedule(Document doc, String etag, String lastModified) {
+        long now = System.currentTimeMillis();
+        doc.append("etag", etag)
+                .append("last_modified", lastModified)
+                .append("content_hash", contentHash(doc.getString("text")))
+                .append("revisit_interval", INITIAL_INTERVAL_MS)
+                .append("next_revisit", now + INITIAL_INTERVAL_MS)
+                .append("last_checked", now)
+                .append("change_count", 0);
+    }
+
+    static String contentHash(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Revisits every page that is due, batchSize pages at a time
+    public void run(int batchSize) {
+        long start = System.currentTimeMillis();
+        ObjectId lastId = null;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Document> due = mongo.getDocumentsDueForRevisit(start, lastId, batchSize);
+            if (due.isEmpty()) break;
+            lastId = due.get(due.size() - 1).getObjectId("_id");
+            revisitBatch(due);
+        }
+        System.out.println("Revisit finished: " + notModified.get() + " not modified (304), " +
+                unchanged.get() + " unchanged, " + changed.get() + " changed, " + failed.get() + " failed");
+    }
+
+    private void revisitBatch(List<Document> due) {
+        Map<String, Document> byUrl = new HashMap<>();
+        Map<String, Document> updates = new ConcurrentHashMap<>();
+
+        // Same per-host politeness as the crawl itself
+        HostFrontier frontier = new HostFrontier(robotsM, CrawlerConfig.HOST_MAX_CONCURRENCY, false);
+        for (Document doc : due) {
+            String url = doc.getString("url");
+            if (url != null && byUrl.containsKey(url)) continue; // duplicate record, revisited through the first
+            if (url == null || !frontier.add(url)) {
+                // No usable host: push it out so it doesn't stay due forever
+                failed.incrementAndGet();
+                updates.put(doc.getObjectId("_id").toString(), new Document("$set", reschedule(doc, MAX_INTERVAL_MS)));
+                continue;
+            }
+            byUrl.put(url, doc);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            pool.submit(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    String url;
+                    try {
+                        url = frontier.poll(100, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    if (url == null) {
+                        if (frontier.isEmpty()) break;
+                        continue;
+                    }
+
+                    Document stored = byUrl.get(url);
+                    String id = stored.getObjectId("_id").toString();
+                    boolean fetched = false;
+                    try {
+                        if (robotsM.canCrawl(url)) {
+                            fetched = true;
+                            updates.put(id, revisit(url, stored));
+                        } else {
+                            updates.put(id, new Document("$set", reschedule(stored, MAX_INTERVAL_MS)));
+                        }
+                    } catch (Exception e) {
+                        System.err.println("Failed to revisit: " + url + " - " + e.getMessage());
+                        failed.incrementAndGet();
+                        updates.put(id, new Document("$set", reschedule(stored, nextInterval(stored, UNCHANGED_FACTOR))));
+                    } finally {
+                        frontier.release(url, fetched);
+                    }
+                }
+            });
+        }
+
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        mongo.updateDocuments(updates);
+        System.out.println("Revisited " + updates.size() + " pages: " + changed.get() + " changed so far");
+    }
+
+    // Returns the update document for one stored page
+    private Document revisit(String url, Document stored) throws IOException, InterruptedException {
+        FetchResult result = fetcher.fetchConditional(url, stored.getString("etag"), stored.getString("last_modified"));
+        int status = result.getStatusCode();
+
+        if (status == 304) {
+            notModified.incrementAndGet();
+            return new Document("$set", reschedule(stored, nextInterval(stored, UNCHANGED_FACTOR)));
+        }
+        if (status >= 400) {
+            failed.incrementAndGet();
+            return new Document("$set", reschedule(stored, nextInterval(stored, UNCHANGED_FACTOR)));
+        }
+
+        org.jsoup.nodes.Document page = Jsoup.parse(
+                new ByteArrayInputStream(result.getBody()), result.getCharset(), result.getFinalUrl());
+        Document fresh = PageProcessor.buildDocument(crawler, url, page);
+        String hash = contentHash(fresh.getString("text"));
+
+        if (hash.equals(stored.getString("content_hash"))) {
+            // Server ignored the validators but the page is the same
+            unchanged.incrementAndGet();
+            return new Document("$set", reschedule(stored, nextInterval(stored, UNCHANGED_FACTOR))
+                    .append("etag", result.getHeader("ETag"))
+                    .append("last_modified", result.getHeader("Last-Modified")));
+        }
+
+        // Changed, or stored before pages had a content hash: replace with the fresh record
+        changed.incrementAndGet();
+        Document set = reschedule(stored, nextInterval(stored, CHANGED_FACTOR))
+                .append("title", fresh.getString("title"))
+                .append("text", fresh.getString("text"))
+                .append("h1s", fresh.get("h1s"))
+                .append("h2s", fresh.get("h2s"))
+                .append("blocks", fresh.get("blocks"))
+                .append("links", fresh.get("links"))
+                .append("images", fresh.get("images"))
+                .append("simhash", fresh.getLong("simhash"))
+                .append("timestamp", System.currentTimeMillis())
+                .append("indexed", false)
+                .append("images_indexed", false)
+                .append("etag", result.getHeader("ETag"))
+                .append("last_modified", result.getHeader("Last-Modified"))
+                .append("content_hash", hash)
+                .append("change_count", stored.getInteger("change_count", 0) + 1);
+        return new Document("$set", set).append("$unset", new Document("content", ""));
+    }
+
+    private static Document reschedule(Document stored, long interval) {
+        long now = System.currentTimeMillis();
+        return new Document("revisit_interval", interval)
+                .append("next_revisit", now + interval)
+                .append("last_checked", now);
+    }
+
+    // Pages that keep changing are checked more often, stable ones back off
+    private static long nextInterval(Document stored, double factor) {
+        Number current = (Number) stored.get("revisit_interval");
+        long interval = current != null ? current.longValue() : INITIAL_INTERVAL_MS;
+        return Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, (long) (interval * factor)));
+    }
+}
@@ -1,166 +1,158 @@
 package Crawler;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.URI;
-import java.net.URL;
-import java.net.URLConnection;
-import java.util.HashMap;
-import java.util.Map;
+import Utils.LruCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 public class RobotsManager {
 
-    //  Used to cache parsed robots.txt rules per domain (host)
-    // Format: domain -> map of [path -> true (disallow) or false (allow)]
-    private final ConcurrentHashMap<String, Map<String, Boolean>> robotsRules = new ConcurrentHashMap<>();
-
+    // Compiled robots.txt rules per host, bounded and expiring
+    private final LruCache<String, RobotsRules> robotsRules = new LruCache<>(MAX_CACHED_HOSTS, RULES_TTL_MS);
 
-    private static final String USER_AGENT = "Falcony/1.0";
+    // Hosts whose robots.txt is being downloaded right now; concurrent callers wait on the same future
+    private final ConcurrentHashMap<String, CompletableFuture<RobotsRules>> inFlight = new ConcurrentHashMap<>();
 
 
-    private static final int ROBOTS_TIMEOUT_MS = 15000; // 15 seconds
+    // Told about the Sitemap: directives of every robots.txt read (host, sitemap URLs)
+    private volatile BiConsumer<String, List<String>> sitemapListener;
 
+    private static final String AGENT_TOKEN = "falcony";
 
-    private static final int MAX_ROBOTS_SIZE = 1000000; // 1MB
 
-    // ✅ Fetches and parses robots.txt for the given URL's host
-    public void parseRobots(String url) {
-        try {
+    static final int ROBOTS_TIMEOUT_MS = 15000; // 15 seconds
 
-            URI uri = new URI(url);
-            String host = uri.getHost();
-            if (host == null || host.isEmpty()) return;
 
+    static final int MAX_ROBOTS_SIZE = 1000000; // 1MB
 
-            String scheme = uri.getScheme() == null ? "http" : uri.getScheme();
+    private final PageFetcher fetcher;
 
+    private static final int MAX_CACHED_HOSTS = 10000;
+    private static final long RULES_TTL_MS = 24 * 60 * 60 * 1000L;   // re-read robots.txt daily
+    private static final long FAILURE_TTL_MS = 10 * 60 * 1000L;      // retry unreachable robots.txt sooner
 
-            String robotsUrl = scheme + "://" + host;
-            if (uri.getPort() > 0 && uri.getPort() != 80 && uri.getPort() != 443) {
-                robotsUrl += ":" + uri.getPort(); // include non-standard ports
-            }
-            robotsUrl += "/robots.txt";
+    public RobotsManager() {
+        // Same pooled connection (and TLS session) the page fetches to the host will use
+        this(new HttpPageFetcher(ROBOTS_TIMEOUT_MS, MAX_ROBOTS_SIZE));
+    }
 
-            // Fetch and parse the robots.txt file
-            Map<String, Boolean> rules = fetchRobotsTxt(robotsUrl);
+    // fetcher = where robots.txt comes from, e.g. a WARC recording or replay fetcher
+    public RobotsManager(PageFetcher fetcher) {
+        this.fetcher = fetcher;
+    }
 
-            // Save the rules to cache
-            robotsRules.put(host, rules);
+    // The listener is called on the fetching thread and should only hand the work off
+    public void setSitemapListener(BiConsumer<String, List<String>> listener) {
+        this.sitemapListener = listener;
+    }
 
-        } catch (Exception ignored) {
-            // If error happens, treat the host as fully allowed (no rules)
-            try {
-                URI uri = new URI(url);
-                String host = uri.getHost();
-                if (host != null) {
-                    robotsRules.put(host, new HashMap<>());
-                }
-            } catch (Exception e) {
+    // Returns the rules for the URL's host, downloading robots.txt at most once at a time per host
+    public RobotsRules getRules(String scheme, String host, int port) {
+        RobotsRules rules = robotsRules.get(host);
+        if (rules != null) return rules;
 
-            }
+        CompletableFuture<RobotsRules> mine = new CompletableFuture<>();
+        CompletableFuture<RobotsRules> existing = inFlight.putIfAbsent(host, mine);
+        if (existing != null) {
+            return existing.join();
         }
-    }
 
-    //  Downloads robots.txt content and parses it into disallowed/allowed paths
-    private Map<String, Boolean> fetchRobotsTxt(String robotsUrl) {
-        Map<String, Boolean> disallowedPaths = new HashMap<>();
         try {
-
-            URL url = new URL(robotsUrl);
-            URLConnection connection = url.openConnection();
-            connection.setConnectTimeout(ROBOTS_TIMEOUT_MS);
-            connection.setReadTimeout(ROBOTS_TIMEOUT_MS);
-            connection.setRequestProperty("User-Agent", USER_AGENT);
-
-            // read
-            StringBuilder content = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null && content.length() < MAX_ROBOTS_SIZE) {
-                    content.append(line).append("\n");
-                }
+            // Another thread may have finished between our cache miss and putIfAbsent
+            rules = robotsRules.get(host);
+            if (rules == null) {
+                rules = fetchRobotsTxt(scheme, host, port);
             }
-
-            // Parse the content and extract rules
-            disallowedPaths = parseRobotsTxt(content.toString());
-
-        } catch (Exception ignored) {
-            // If failed to download robots.txt, treat as fully allowed
+            mine.complete(rules);
+            return rules;
+        } catch (RuntimeException e) {
+            mine.complete(RobotsRules.ALLOW_ALL);
+            return RobotsRules.ALLOW_ALL;
+        } finally {
+            inFlight.remove(host, mine);
         }
-
-        return disallowedPaths;
     }
 
-    //  Parses raw robots.txt content and returns a map of path rules
-    private Map<String, Boolean> parseRobotsTxt(String content) {
-        Map<String, Boolean> rules = new HashMap<>();
-        boolean inRelevantUserAgent = false;
-
-        // Process file line by line
-        for (String line : content.split("\n")) {
-            line = line.trim();
-
-            // Ignore empty lines and comments
-            if (line.isEmpty() || line.startsWith("#")) continue;
-
-            // Track if current rules belong to our User-Agent or wildcard '*'
-            if (line.toLowerCase().startsWith("user-agent:")) {
-                String agent = line.substring("user-agent:".length()).trim().toLowerCase();
-                inRelevantUserAgent = agent.equals("*") || agent.contains(USER_AGENT.toLowerCase());
-            }
+    //  Downloads robots.txt and compiles it; unreachable files are treated as fully allowed
+    private RobotsRules fetchRobotsTxt(String scheme, String host, int port) {
+        String robotsUrl = (scheme == null ? "http" : scheme) + "://" + host;
+        if (port > 0 && port != 80 && port != 443) {
+            robotsUrl += ":" + port; // include non-standard ports
+        }
+        robotsUrl += "/robots.txt";
 
-            // If the section is for us, read allow/disallow rules
-            if (inRelevantUserAgent && line.toLowerCase().startsWith("disallow:")) {
-                String path = line.substring("disallow:".length()).trim();
-                if (!path.isEmpty()) rules.put(path, true);
-                else rules.put(path, false);
+        CrawlerMetrics.robotsFetches.increment();
+        long start = System.nanoTime();
+        try {
+            FetchResult response = fetcher.fetch(robotsUrl);
+            int status = response.getStatusCode();
+            CrawlerMetrics.robotsLatency.recordNanos(System.nanoTime() - start);
+            if (status >= 400) {
+                // 4xx: no robots.txt, 5xx: try again later; both allow crawling meanwhile
+                robotsRules.put(host, RobotsRules.ALLOW_ALL, status >= 500 ? FAILURE_TTL_MS : RULES_TTL_MS);
+                return RobotsRules.ALLOW_ALL;
             }
+            String content = new String(response.getBody(), StandardCharsets.UTF_8);
 
-            if (inRelevantUserAgent && line.toLowerCase().startsWith("allow:")) {
-                String path = line.substring("allow:".length()).trim();
-                if (!path.isEmpty()) rules.put(path, false);
+            RobotsRules rules = RobotsRules.parse(content, AGENT_TOKEN);
+            robotsRules.put(host, rules);
+            BiConsumer<String, List<String>> listener = sitemapListener;
+            if (listener != null && !rules.getSitemaps().isEmpty()) {
+                listener.accept(host, rules.getSitemaps());
             }
+            return rules;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return RobotsRules.ALLOW_ALL;
+        } catch (Exception e) {
+            CrawlerMetrics.recordError(robotsUrl, "robots_" + e.getClass().getSimpleName());
+            // If failed to download robots.txt, treat as fully allowed for a while
+            robotsRules.put(host, RobotsRules.ALLOW_ALL, FAILURE_TTL_MS);
+            return RobotsRules.ALLOW_ALL;
         }
+    }
 
-        return rules;
+    // Crawl-delay declared by the host's robots.txt in milliseconds, or -1 if none (or not loaded yet)
+    public long getCrawlDelayMillis(String host) {
+        RobotsRules rules = robotsRules.get(host);
+        return rules == null ? -1 : rules.getCrawlDelayMillis();
     }
 
     //  Main function to check if a given URL is allowed to be crawled
     public boolean canCrawl(String url) {
         try {
-            URI uri = new URI(url);
-            String host = uri.getHost();
-            String path = uri.getPath() == null ? "/" : uri.getPath();
-
-            // If rules for the host are not loaded yet, fetch them
-            if (!robotsRules.containsKey(host)) {
-                parseRobots(url);
+            // Split scheme://authority/path?query by hand instead of building a URI per call
+            int schemeEnd = url.indexOf("://");
+            if (schemeEnd <= 0) return true;
+            int authorityStart = schemeEnd + 3;
+            int pathStart = authorityStart;
+            while (pathStart < url.length() && "/?#".indexOf(url.charAt(pathStart)) < 0) {
+                pathStart++;
             }
-
-            // Get the rules (or empty map if none)
-            Map<String, Boolean> rules = robotsRules.getOrDefault(host, new HashMap<>());
-
-            // Check path against all disallowed rules
-            for (Map.Entry<String, Boolean> entry : rules.entrySet()) {
-                String rulePath = entry.getKey();
-                boolean isDisallowed = entry.getValue();
-
-                if (!isDisallowed) continue; // skip allowed rules
-
-                // Match wildcard rules (ending with *)
-                if (rulePath.endsWith("*")) {
-                    String prefix = rulePath.substring(0, rulePath.length() - 1);
-                    if (path.startsWith(prefix)) return false;
-                }
-                // Match exact or prefix match
-                else if (path.equals(rulePath) || path.startsWith(rulePath + "/")) {
-                    return false;
+            int at = url.lastIndexOf('@', pathStart - 1); // skip user:password@
+            String authority = url.substring(at >= authorityStart ? at + 1 : authorityStart, pathStart);
+
+            String host = authority;
+            int port = -1;
+            int colon = authority.lastIndexOf(':');
+            if (colon > authority.lastIndexOf(']')) {
+                host = authority.substring(0, colon);
+                try {
+                    port = Integer.parseInt(authority.substring(colon + 1));
+                } catch (NumberFormatException ignored) {
                 }
             }
+            if (host.isEmpty()) return true;
+            host = host.toLowerCase();
 
-            return true;
+            int fragment = url.indexOf('#', pathStart);
+            String path = url.substring(pathStart, fragment < 0 ? url.length() : fragment);
+            if (path.isEmpty() || path.charAt(0) == '?') path = "/" + path;
 
+            return getRules(url.substring(0, schemeEnd), host, port).isAllowed(path);
         } catch (Exception e) {
             return true;
         }
@@ -0,0 +1,182 @@
+package Crawler;
+
+import java.util.*;
+
+// robots.txt rules of one host compiled into a trie.
+// Matching follows RFC 9309: the longest matching pattern wins and Allow wins a tie.
+// Patterns may use '*' (any sequence) and a trailing '$' (end of URL path).
+public class RobotsRules {
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(new Node(0), false, -1, Collections.emptyList());
+
+    private final Node root;
+    private final boolean hasWildcards;
+    private final long crawlDelayMillis;
+    private final List<String> sitemaps;
+
+    private static class Node {
+        final int id;          // unique within one trie, used for memoization
+        final Map<Character, Node> children = new HashMap<>(4);
+        Node star;             // child reached through '*'
+        int ruleLength = -1;   // length of the rule ending here, -1 if none
+        boolean allow;
+        int anchoredLength = -1; // same, for rules ending with '$'
+        boolean anchoredAllow;
+
+        Node(int id) {
+            this.id = id;
+        }
+    }
+
+    private RobotsRules(Node root, boolean hasWildcards, long crawlDelayMillis, List<String> sitemaps) {
+        this.root = root;
+        this.hasWildcards = hasWildcards;
+        this.crawlDelayMillis = crawlDelayMillis;
+        this.sitemaps = sitemaps;
+    }
+
+    public long getCrawlDelayMillis() {
+        return crawlDelayMillis;
+    }
+
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    // path should include the query string, e.g. "/search?q=x"
+    public boolean isAllowed(String path) {
+        if (root.children.isEmpty() && root.star == null) return true;
+        if (path == null || path.isEmpty()) path = "/";
+
+        int[] best = {-1, 1}; // {length, allow ? 1 : 0}
+        // Without '*' every path walks a single trie branch, no memo needed
+        Set<Long> seen = hasWildcards ? new HashSet<>() : null;
+        match(root, path, 0, best, seen);
+        return best[0] < 0 || best[1] == 1;
+    }
+
+    private static void match(Node node, String path, int pos, int[] best, Set<Long> seen) {
+        // Memoize (node, pos) so patterns with several '*' stay linear-ish
+        if (seen != null && !seen.add(((long) node.id << 32) | pos)) return;
+
+        if (node.ruleLength >= 0) record(node.ruleLength, node.allow, best);
+        if (node.anchoredLength >= 0 && pos == path.length()) record(node.anchoredLength, node.anchoredAllow, best);
+
+        if (node.star != null) {
+            for (int p = pos; p <= path.length(); p++) {
+                match(node.star, path, p, best, seen);
+            }
+        }
+        if (pos < path.length()) {
+            Node next = node.children.get(path.charAt(pos));
+            if (next != null) match(next, path, pos + 1, best, seen);
+        }
+    }
+
+    private static void record(int length, boolean allow, int[] best) {
+        if (length > best[0] || (length == best[0] && allow)) {
+            best[0] = length;
+            best[1] = allow ? 1 : 0;
+        }
+    }
+
+    // Parses robots.txt content for the given user agent token (e.g. "falcony").
+    // Uses the group naming our agent if there is one, otherwise the '*' group.
+    public static RobotsRules parse(String content, String agentToken) {
+        agentToken = agentToken.toLowerCase(Locale.ROOT);
+        List<String[]> ourRules = new ArrayList<>();
+        List<String[]> starRules = new ArrayList<>();
+        List<String> sitemaps = new ArrayList<>();
+        long ourDelay = -1, starDelay = -1;
+        boolean ourGroupSeen = false;
+
+        boolean inOurs = false, inStar = false, lastWasAgent = false;
+        for (String rawLine : content.split("\n")) {
+            String line = rawLine;
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            line = line.trim();
+            int colon = line.indexOf(':');
+            if (colon <= 0) continue;
+
+            String key = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            switch (key) {
+                case "user-agent": {
+                    if (!lastWasAgent) {
+                        inOurs = false;
+                        inStar = false;
+                    }
+                    String agent = value.toLowerCase(Locale.ROOT);
+                    if (agent.equals("*")) inStar = true;
+                    else if (agent.contains(agentToken)) {
+                        inOurs = true;
+                        ourGroupSeen = true;
+                    }
+                    lastWasAgent = true;
+                    continue;
+                }
+                case "allow":
+                case "disallow":
+                    if (!value.isEmpty()) {
+                        String[] rule = {key, value};
+                        if (inOurs) ourRules.add(rule);
+                        if (inStar) starRules.add(rule);
+                    }
+                    break;
+                case "crawl-delay":
+                    try {
+                        long millis = (long) (Double.parseDouble(value) * 1000);
+                        if (millis >= 0) {
+                            if (inOurs) ourDelay = millis;
+                            if (inStar) starDelay = millis;
+                        }
+                    } catch (NumberFormatException ignored) {
+                    }
+                    break;
+                case "sitemap":
+                    if (!value.isEmpty()) sitemaps.add(value);
+                    break;
+                default:
+                    break;
+            }
+            lastWasAgent = false;
+        }
+
+        List<String[]> rules = ourGroupSeen ? ourRules : starRules;
+        long delay = ourGroupSeen ? ourDelay : starDelay;
+        Node root = new Node(0);
+        int[] nextId = {1};
+        boolean hasWildcards = false;
+        for (String[] rule : rules) {
+            insert(root, rule[1], rule[0].equals("allow"), nextId);
+            hasWildcards |= rule[1].indexOf('*') >= 0;
+        }
+        return new RobotsRules(root, hasWildcards, delay, Collections.unmodifiableList(sitemaps));
+    }
+
+    private static void insert(Node root, String pattern, boolean allow, int[] nextId) {
+        boolean anchored = pattern.endsWith("$");
+        String body = anchored ? pattern.substring(0, pattern.length() - 1) : pattern;
+        Node node = root;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '*') {
+                if (node.star == null) node.star = new Node(nextId[0]++);
+                node = node.star;
+            } else {
+                node = node.children.computeIfAbsent(c, k -> new Node(nextId[0]++));
+            }
+        }
+        int length = pattern.length();
+        if (anchored) {
+            if (length > node.anchoredLength || (length == node.anchoredLength && allow)) {
+                node.anchoredLength = length;
+                node.anchoredAllow = allow;
+            }
+        } else if (length > node.ruleLength || (length == node.ruleLength && allow)) {
+            node.ruleLength = length;
+            node.allow = allow;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package Crawler;
+
+// 64-bit SimHash of a page's visible text, built from word 3-shingles.
+// Pages that differ only in boilerplate (session ids, print chrome, dates)
+// land a few bits apart, unrelated pages about 32 bits apart.
+public final class SimHash {
+    static final int SHINGLE_SIZE = 3;
+    // Below this many shingles the fingerprint is too noisy to compare
+    static final int MIN_SHINGLES = 10;
+
+    private SimHash() {}
+
+    // Returns 0 for texts too short to fingerprint
+    public static long fingerprint(String text) {
+        int[] weights = new int[64];
+        long[] window = new long[SHINGLE_SIZE];
+        int words = 0;
+        int shingles = 0;
+
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            // Next run of letters/digits, hashed lower-cased (FNV-1a)
+            while (i < n && !Character.isLetterOrDigit(text.charAt(i))) i++;
+            if (i >= n) break;
+            long h = 0xcbf29ce484222325L;
+            while (i < n && Character.isLetterOrDigit(text.charAt(i))) {
+                h ^= Character.toLowerCase(text.charAt(i++));
+                h *= 0x100000001b3L;
+            }
+
+            window[words % SHINGLE_SIZE] = h;
+            words++;
+            if (words < SHINGLE_SIZE) continue;
+
+            long shingle = 0;
+            for (int k = 0; k < SHINGLE_SIZE; k++) {
+                shingle = BloomFilter.mix(shingle ^ window[(words + k) % SHINGLE_SIZE]);
+            }
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += ((shingle >>> bit) & 1) != 0 ? 1 : -1;
+            }
+            shingles++;
+        }
+
+        if (shingles < MIN_SHINGLES) return 0;
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) fingerprint |= 1L << bit;
+        }
+        return fingerprint;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
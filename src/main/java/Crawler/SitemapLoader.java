@@ -0,0 +1,225 @@
+package Crawler;
+
+import Utils.LruCache;
+import Utils.NetworkLayer;
+import dbManager.dbManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Feeds the frontier from the sitemaps a host lists in its robots.txt.
+// Sitemaps (and sitemap indexes, gzipped or not) are stream-parsed on a small
+// background pool, so robots.txt lookups never wait on them. Each sitemap request
+// waits for its host's politeness slot in the frontier, like a page fetch. The URLs of one host
+// are sorted newest lastmod first and added to the frontier in one bulk call; with
+// OPIC ordering they also get a little cash that shrinks with the age of lastmod.
+// Pages we already stored whose lastmod is newer than our last check are moved to
+// the front of the revisit schedule instead.
+public class SitemapLoader {
+    // Cash of a sitemap URL modified just now, fresh pages rank below seeds but above
+    // most outlinks; halves after FRESHNESS_HALF_LIFE_DAYS
+    static final double SITEMAP_CASH = 0.1;
+    private static final double FRESHNESS_HALF_LIFE_DAYS = 30;
+    private static final double UNKNOWN_AGE_FACTOR = 0.25;
+
+    private static final int MAX_INDEX_DEPTH = 2;          // robots -> index -> sitemap
+    private static final int MAX_SITEMAPS_PER_HOST = 20;
+    private static final int FETCH_TIMEOUT_MS = 30000;
+    private static final long GATE_TIMEOUT_MS = 5 * 60 * 1000L; // wait for the host's politeness delay
+    private static final long RELOAD_INTERVAL_MS = 24 * 60 * 60 * 1000L; // like robots.txt
+
+    private final Crawler crawler;
+    private final HostFrontier frontier; // sitemap requests count against their host's politeness
+    private final VisitedStore visited;
+    private final RobotsManager robotsM;
+    private final dbManager mongo;
+    private final int maxUrlsPerHost;
+    // Sitemaps read recently, robots.txt is re-read daily and lists them again
+    private final LruCache<String, Boolean> loaded = new LruCache<>(50_000, RELOAD_INTERVAL_MS);
+    private final ExecutorService pool;
+    private final LongAdder sitemapsRead = new LongAdder();
+    private final LongAdder urlsQueued = new LongAdder();
+    private final LongAdder revisitsExpedited = new LongAdder();
+
+    private static class Entry {
+        final String url;
+        final long lastModified;
+
+        Entry(String url, long lastModified) {
+            this.url = url;
+            this.lastModified = lastModified;
+        }
+    }
+
+    public SitemapLoader(Crawler crawler, HostFrontier frontier, VisitedStore visited, RobotsManager robotsM,
+                         dbManager mongo, int maxUrlsPerHost, int threads) {
+        this.crawler = crawler;
+        this.frontier = frontier;
+        this.visited = visited;
+        this.robotsM = robotsM;
+        this.mongo = mongo;
+        this.maxUrlsPerHost = maxUrlsPerHost;
+        this.pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(10000), r -> {
+            Thread t = new Thread(r, "sitemap-loader");
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.DiscardPolicy()); // hosts beyond the backlog just aren't sitemap-seeded
+    }
+
+    // RobotsManager sitemap listener: queues the host's sitemaps for loading
+    public void submit(String host, List<String> sitemapUrls) {
+        if (maxUrlsPerHost <= 0) return;
+        List<String> urls = new ArrayList<>(sitemapUrls);
+        try {
+            pool.execute(() -> load(host, urls));
+        } catch (RejectedExecutionException ignored) {
+            // shut down
+        }
+    }
+
+    private void load(String host, List<String> sitemapUrls) {
+        List<Entry> entries = new ArrayList<>();
+        ArrayDeque<String> pending = new ArrayDeque<>(sitemapUrls);
+        Map<String, Integer> depth = new HashMap<>();
+        for (String url : sitemapUrls) depth.put(url, 0);
+        int read = 0;
+
+        while (!pending.isEmpty() && read < MAX_SITEMAPS_PER_HOST && entries.size() < maxUrlsPerHost) {
+            String sitemapUrl = pending.poll();
+            if (loaded.get(sitemapUrl) != null) continue;
+            loaded.put(sitemapUrl, Boolean.TRUE);
+            int level = depth.get(sitemapUrl);
+            read++;
+
+            try {
+                fetch(sitemapUrl, new SitemapParser.Handler() {
+                    @Override
+                    public void onUrl(String loc, long lastModified) {
+                        // Listing a sitemap in robots.txt vouches for it wherever it is
+                        // hosted (a CDN, S3), but only for pages of the robots.txt host
+                        if (entries.size() < maxUrlsPerHost && host.equalsIgnoreCase(HostFrontier.hostOf(loc))) {
+                            entries.add(new Entry(loc, lastModified));
+                        }
+                    }
+
+                    @Override
+                    public void onSitemap(String loc, long lastModified) {
+                        if (level < MAX_INDEX_DEPTH && !depth.containsKey(loc)) {
+                            depth.put(loc, level + 1);
+                            pending.add(loc);
+                        }
+                    }
+                });
+                sitemapsRead.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                CrawlerMetrics.recordError(sitemapUrl, "sitemap_" + e.getClass().getSimpleName());
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            enqueue(entries);
+            System.out.println("Sitemaps of " + host + ": " + read + " read, " + entries.size() + " URLs listed");
+        }
+    }
+
+    private void fetch(String sitemapUrl, SitemapParser.Handler handler) throws Exception {
+        String sitemapHost = HostFrontier.hostOf(sitemapUrl);
+        if (sitemapHost == null || !frontier.acquire(sitemapHost, GATE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            CrawlerMetrics.recordError(sitemapUrl, "sitemap_host_unavailable");
+            return;
+        }
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response;
+        try {
+            // Accepting gzip is safe here: the parser recognizes compressed bodies by their magic bytes
+            response = NetworkLayer.send(
+                    NetworkLayer.request(sitemapUrl, Duration.ofMillis(FETCH_TIMEOUT_MS))
+                            .header("Accept-Encoding", "gzip")
+                            .GET().build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            frontier.releaseFailed(sitemapUrl);
+            throw e;
+        } catch (InterruptedException | RuntimeException e) {
+            frontier.release(sitemapUrl, false);
+            throw e;
+        }
+        // The host's slot is held until the sitemap has been read
+        try (InputStream in = response.body()) {
+            if (response.statusCode() != 200) {
+                CrawlerMetrics.recordError(sitemapUrl, "sitemap_http_" + response.statusCode());
+                return;
+            }
+            SitemapParser.parse(in, handler);
+        } finally {
+            frontier.release(sitemapUrl, response.statusCode(), System.nanoTime() - start,
+                    response.headers().firstValue("Retry-After").orElse(null));
+        }
+    }
+
+    // Newest first; new URLs go to the frontier in one batch, known ones get an earlier revisit
+    private void enqueue(List<Entry> entries) {
+        entries.sort((a, b) -> Long.compare(b.lastModified, a.lastModified));
+        long now = System.currentTimeMillis();
+        List<String> urls = new ArrayList<>();
+        List<Double> cash = new ArrayList<>();
+        Map<String, Long> changed = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+
+        for (Entry entry : entries) {
+            String url = crawler.normalizeUrl(entry.url, null);
+            if (url == null || url.isEmpty() || !seen.add(url)) continue;
+            double amount = SITEMAP_CASH * freshness(entry.lastModified, now);
+            if (crawler.forwardIfRemote(url, amount)) {
+                continue;
+            }
+            if (visited.contains(url)) {
+                if (entry.lastModified > 0) {
+                    changed.put(url, entry.lastModified);
+                }
+            } else if (robotsM.canCrawl(url)) {
+                urls.add(url);
+                cash.add(amount);
+            }
+        }
+
+        if (!urls.isEmpty()) {
+            urlsQueued.add(crawler.enqueueAll(urls, cash));
+        }
+        if (!changed.isEmpty()) {
+            revisitsExpedited.add(mongo.expediteRevisits(changed));
+        }
+    }
+
+    // 1 for a page modified now, 1/2 after a half-life, ...
+    static double freshness(long lastModified, long now) {
+        if (lastModified <= 0) return UNKNOWN_AGE_FACTOR;
+        double ageDays = Math.max(0, now - lastModified) / (24 * 60 * 60 * 1000.0);
+        return 1 / (1 + ageDays / FRESHNESS_HALF_LIFE_DAYS);
+    }
+
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    public long getSitemapsRead() {
+        return sitemapsRead.sum();
+    }
+
+    public long getUrlsQueued() {
+        return urlsQueued.sum();
+    }
+
+    public long getRevisitsExpedited() {
+        return revisitsExpedited.sum();
+    }
+}
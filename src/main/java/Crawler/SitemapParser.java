@@ -0,0 +1,181 @@
+package Crawler;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.GZIPInputStream;
+
+// Streaming parser for sitemaps (sitemaps.org): <urlset> files, <sitemapindex> files
+// and plain-text lists of URLs, each optionally gzipped. Nothing is kept in memory
+// besides the current entry, so a 50 MB sitemap costs no more than a small one.
+public class SitemapParser {
+    // Limits from the sitemap protocol
+    public static final int MAX_URLS = 50_000;
+    public static final long MAX_UNCOMPRESSED_BYTES = 50L * 1024 * 1024;
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        // Sitemaps never need a DTD; refusing them also rules out XXE tricks
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    }
+
+    public interface Handler {
+        // A page listed by a <urlset> (or text sitemap); lastModified is -1 when unknown
+        void onUrl(String loc, long lastModified);
+
+        // A child sitemap listed by a <sitemapindex>
+        void onSitemap(String loc, long lastModified);
+    }
+
+    // Parses one sitemap; returns the number of entries reported to the handler
+    public static int parse(InputStream raw, Handler handler) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(raw);
+        in.mark(2);
+        int b1 = in.read();
+        int b2 = in.read();
+        in.reset();
+        InputStream body = in;
+        if (b1 == 0x1f && b2 == 0x8b) {
+            body = new GZIPInputStream(in);
+        }
+        body = new BoundedInputStream(body, MAX_UNCOMPRESSED_BYTES);
+
+        // Leading whitespace and a UTF-8 BOM are dropped, however long, and the first
+        // real byte pushed back: XML parsers reject whitespace before <?xml anyway
+        PushbackInputStream content = new PushbackInputStream(new BufferedInputStream(body), 1);
+        int first;
+        do {
+            first = content.read();
+        } while (first == ' ' || first == '\n' || first == '\r' || first == '\t' || first == 0xEF || first == 0xBB || first == 0xBF);
+        if (first != -1) content.unread(first);
+        if (first == '<') {
+            return parseXml(content, handler);
+        }
+        return parseText(content, handler);
+    }
+
+    private static int parseXml(InputStream in, Handler handler) throws IOException {
+        int count = 0;
+        XMLStreamReader reader = null;
+        try {
+            reader = FACTORY.createXMLStreamReader(in);
+            boolean inIndex = false;
+            String loc = null;
+            String lastmod = null;
+            String field = null;
+            StringBuilder text = new StringBuilder();
+
+            while (reader.hasNext() && count < MAX_URLS) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    switch (name) {
+                        case "sitemapindex" -> inIndex = true;
+                        case "url", "sitemap" -> {
+                            loc = null;
+                            lastmod = null;
+                        }
+                        case "loc", "lastmod" -> {
+                            field = name;
+                            text.setLength(0);
+                        }
+                        default -> field = null;
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    if (field != null) text.append(reader.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (name.equals("loc") && "loc".equals(field)) {
+                        loc = text.toString().trim();
+                        field = null;
+                    } else if (name.equals("lastmod") && "lastmod".equals(field)) {
+                        lastmod = text.toString().trim();
+                        field = null;
+                    } else if ((name.equals("url") || name.equals("sitemap")) && loc != null && !loc.isEmpty()) {
+                        if (inIndex || name.equals("sitemap")) {
+                            handler.onSitemap(loc, parseLastmod(lastmod));
+                        } else {
+                            handler.onUrl(loc, parseLastmod(lastmod));
+                        }
+                        count++;
+                        loc = null;
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            // Keep what was read before the error, broken sitemaps are common
+            if (count == 0) throw new IOException("Invalid sitemap: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                }
+            }
+        }
+        return count;
+    }
+
+    // One absolute URL per line
+    private static int parseText(InputStream in, Handler handler) throws IOException {
+        int count = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null && count < MAX_URLS) {
+            line = line.trim();
+            if (line.startsWith("http://") || line.startsWith("https://")) {
+                handler.onUrl(line, -1);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // W3C datetime ("2024-05-01", "2024-05-01T10:30:00+02:00", ...) to epoch millis, -1 if absent or invalid
+    static long parseLastmod(String value) {
+        if (value == null || value.isEmpty()) return -1;
+        try {
+            if (value.length() <= 10) {
+                return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            }
+            return OffsetDateTime.parse(value).toInstant().toEpochMilli();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    // Stops reading after limit bytes, so a decompression bomb can't exhaust memory or time
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+    }
+}
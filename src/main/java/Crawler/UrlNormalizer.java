@@ -0,0 +1,373 @@
+package Crawler;
+
+import Utils.LruCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+// RFC 3986 reference resolution and normalization for crawl URLs, done with index
+// arithmetic over the input instead of java.net.URI / Jsoup:
+//  - relative references are resolved against the base (section 5.2)
+//  - scheme and host are lower-cased, default ports and fragments dropped
+//  - percent-encodings are normalized and dot segments removed (section 6.2.2)
+//  - excluded query parameters (session ids, utm_*, ...) are stripped
+// Results, including rejections, are kept in a striped LRU cache.
+public class UrlNormalizer {
+    private static final String REJECTED = ""; // cached marker for URLs we don't crawl
+    private static final int CACHE_STRIPES = 16;
+
+    private static final String[] SKIPPED_PREFIXES = {"javascript:", "mailto:", "tel:", "data:", "#"};
+    private static final String[] SKIPPED_EXTENSIONS = {".pdf", ".jpg", ".jpeg", ".png", ".gif", ".css", ".js",
+            ".zip", ".mp4", ".mp3"};
+
+    // Characters allowed unencoded in a path or query (unreserved, sub-delims, ':' '@' '/' '?')
+    private static final boolean[] ALLOWED = new boolean[128];
+    static {
+        String allowed = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-._~!$&'()*+,;=:@/?";
+        for (int i = 0; i < allowed.length(); i++) {
+            ALLOWED[allowed.charAt(i)] = true;
+        }
+    }
+
+    private final Set<String> excludedParams;
+    private final int maxExcludedLength;
+    private final LruCache<String, String>[] cache;
+
+    @SuppressWarnings("unchecked")
+    public UrlNormalizer(Collection<String> excludedParams, int cacheSize) {
+        Set<String> params = new HashSet<>();
+        int maxLength = 0;
+        for (String param : excludedParams) {
+            params.add(param.toLowerCase(Locale.ROOT));
+            maxLength = Math.max(maxLength, param.length());
+        }
+        this.excludedParams = params;
+        this.maxExcludedLength = maxLength;
+        // cacheSize <= 0 disables caching: a miss costs about as much as normalizing
+        this.cache = cacheSize > 0 ? new LruCache[CACHE_STRIPES] : null;
+        for (int i = 0; cache != null && i < CACHE_STRIPES; i++) {
+            cache[i] = new LruCache<>(Math.max(1, cacheSize / CACHE_STRIPES));
+        }
+    }
+
+    // Absolute, normalized http(s) URL, or null if the link should not be crawled
+    public String normalize(String url, String baseUrl) {
+        if (url == null) return null;
+        url = url.trim();
+        if (url.isEmpty()) return null;
+        for (String prefix : SKIPPED_PREFIXES) {
+            if (url.regionMatches(true, 0, prefix, 0, prefix.length())) return null;
+        }
+
+        if (cache == null) {
+            return resolve(url, baseUrl);
+        }
+
+        // An absolute URL normalizes the same whatever page it was found on
+        String key = schemeEnd(url) > 0 || baseUrl == null ? url : baseUrl + '\n' + url;
+        LruCache<String, String> stripe = cache[(key.hashCode() & 0x7fffffff) % CACHE_STRIPES];
+        String cached = stripe.get(key);
+        if (cached != null) {
+            return cached.isEmpty() ? null : cached;
+        }
+
+        String normalized = resolve(url, baseUrl);
+        stripe.put(key, normalized == null ? REJECTED : normalized);
+        return normalized;
+    }
+
+    // Components of a URI reference; start/end indices into s, start -1 when absent
+    private static final class Ref {
+        final String s;
+        int schemeEnd = -1;
+        int authorityStart = -1, authorityEnd = -1;
+        int pathStart, pathEnd;
+        int queryStart = -1, queryEnd = -1;
+
+        Ref(String s) {
+            this.s = s;
+            int n = s.length();
+            int i = 0;
+            int colon = schemeEnd(s);
+            if (colon > 0) {
+                schemeEnd = colon;
+                i = colon + 1;
+            }
+            if (i + 1 < n && s.charAt(i) == '/' && s.charAt(i + 1) == '/') {
+                authorityStart = i + 2;
+                i = authorityStart;
+                while (i < n && "/?#".indexOf(s.charAt(i)) < 0) i++;
+                authorityEnd = i;
+            }
+            pathStart = i;
+            while (i < n && s.charAt(i) != '?' && s.charAt(i) != '#') i++;
+            pathEnd = i;
+            if (i < n && s.charAt(i) == '?') {
+                queryStart = ++i;
+                while (i < n && s.charAt(i) != '#') i++;
+                queryEnd = i;
+            }
+        }
+
+        String scheme() {
+            return schemeEnd < 0 ? null : s.substring(0, schemeEnd);
+        }
+
+        String authority() {
+            return authorityStart < 0 ? null : s.substring(authorityStart, authorityEnd);
+        }
+
+        String path() {
+            return s.substring(pathStart, pathEnd);
+        }
+
+        String query() {
+            return queryStart < 0 ? null : s.substring(queryStart, queryEnd);
+        }
+    }
+
+    private String resolve(String url, String baseUrl) {
+        Ref ref = new Ref(url);
+        String scheme, authority, path, query;
+
+        // RFC 3986 section 5.2.2
+        if (ref.schemeEnd > 0) {
+            scheme = ref.scheme();
+            authority = ref.authority();
+            path = ref.path();
+            query = ref.query();
+        } else {
+            if (baseUrl == null || baseUrl.isEmpty()) return null;
+            Ref base = new Ref(baseUrl);
+            if (base.schemeEnd <= 0 || base.authorityStart < 0) return null;
+            scheme = base.scheme();
+            if (ref.authorityStart >= 0) {
+                authority = ref.authority();
+                path = ref.path();
+                query = ref.query();
+            } else {
+                authority = base.authority();
+                if (ref.pathStart == ref.pathEnd) {
+                    path = base.path();
+                    query = ref.queryStart >= 0 ? ref.query() : base.query();
+                } else {
+                    path = ref.s.charAt(ref.pathStart) == '/' ? ref.path() : merge(base, ref.path());
+                    query = ref.query();
+                }
+            }
+        }
+
+        scheme = scheme.toLowerCase(Locale.ROOT);
+        boolean https = scheme.equals("https");
+        if (!https && !scheme.equals("http")) return null;
+        if (authority == null) return null;
+
+        StringBuilder out = new StringBuilder(url.length() + 16);
+        out.append(scheme).append("://");
+        if (!appendHost(authority, https, out)) return null;
+
+        int pathStart = out.length();
+        removeDotSegments(encode(path, false), out);
+        if (out.length() == pathStart) out.append('/');
+        if (!isAllowedPath(out, pathStart)) return null;
+
+        if (query != null) {
+            appendQuery(query, out);
+        }
+        return out.toString();
+    }
+
+    // "scheme:" at the start of s: returns the index of ':' or -1
+    private static int schemeEnd(String s) {
+        if (s.isEmpty() || !isAlpha(s.charAt(0))) return -1;
+        for (int i = 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == ':') return i;
+            if (!isAlpha(c) && !isDigit(c) && c != '+' && c != '-' && c != '.') return -1;
+        }
+        return -1;
+    }
+
+    private static String merge(Ref base, String refPath) {
+        String basePath = base.path();
+        if (basePath.isEmpty()) return "/" + refPath;
+        return basePath.substring(0, basePath.lastIndexOf('/') + 1) + refPath;
+    }
+
+    // Lower-cased host and non-default port; drops user info. False if the host is unusable.
+    private static boolean appendHost(String authority, boolean https, StringBuilder out) {
+        int at = authority.lastIndexOf('@');
+        int start = at + 1;
+        int end = authority.length();
+        int colon = authority.lastIndexOf(':');
+        int port = -1;
+        if (colon > start && colon > authority.lastIndexOf(']')) {
+            if (colon + 1 < end) {
+                port = 0;
+                for (int i = colon + 1; i < end; i++) {
+                    char c = authority.charAt(i);
+                    if (!isDigit(c) || port > 65535) return false;
+                    port = port * 10 + (c - '0');
+                }
+            }
+            end = colon;
+        }
+        if (start >= end) return false;
+
+        for (int i = start; i < end; i++) {
+            char c = authority.charAt(i);
+            if (c >= 'A' && c <= 'Z') c = (char) (c + 32);
+            if (!isAlpha(c) && !isDigit(c) && c != '-' && c != '.' && c != '[' && c != ']' && c != ':') return false;
+            out.append(c);
+        }
+        if (port >= 0 && port != (https ? 443 : 80)) {
+            out.append(':').append(port);
+        }
+        return true;
+    }
+
+    // RFC 3986 section 5.2.4, appending the result to out
+    private static void removeDotSegments(String path, StringBuilder out) {
+        int base = out.length();
+        int[] starts = new int[16];
+        int depth = 0;
+        int n = path.length();
+        int pos = path.startsWith("/") ? 1 : 0;
+        while (pos <= n) {
+            int end = path.indexOf('/', pos);
+            if (end < 0) end = n;
+            boolean last = end >= n - 1; // final segment, or followed only by a trailing '/'
+            int length = end - pos;
+
+            if (length == 1 && path.charAt(pos) == '.') {
+                if (last) out.append('/');
+            } else if (length == 2 && path.charAt(pos) == '.' && path.charAt(pos + 1) == '.') {
+                if (depth > 0) out.setLength(starts[--depth]);
+                if (last) out.append('/');
+            } else if (length > 0 || end < n) {
+                if (depth == starts.length) starts = Arrays.copyOf(starts, depth * 2);
+                starts[depth++] = out.length();
+                out.append('/').append(path, pos, end);
+                if (end == n - 1) out.append('/');
+            }
+            if (last) break;
+            pos = end + 1;
+        }
+        if (out.length() == base && n > 0) out.append('/');
+    }
+
+    // Same rules as before: only English-looking first path segments and no binary/static files
+    private static boolean isAllowedPath(StringBuilder out, int pathStart) {
+        int segmentEnd = pathStart + 1;
+        while (segmentEnd < out.length() && out.charAt(segmentEnd) != '/') segmentEnd++;
+        boolean hasFirstSegment = false;
+        for (int i = pathStart; i < out.length(); i++) {
+            if (out.charAt(i) != '/') {
+                hasFirstSegment = true;
+                break;
+            }
+        }
+        if (hasFirstSegment) {
+            // first segment must start with "en" (e.g. /en/, /en-us/, /english/)
+            if (segmentEnd - pathStart - 1 < 2) return false;
+            char c1 = Character.toLowerCase(out.charAt(pathStart + 1));
+            char c2 = Character.toLowerCase(out.charAt(pathStart + 2));
+            if (c1 != 'e' || c2 != 'n') return false;
+        }
+
+        for (String extension : SKIPPED_EXTENSIONS) {
+            int from = out.length() - extension.length();
+            if (from >= pathStart) {
+                boolean match = true;
+                for (int i = 0; i < extension.length() && match; i++) {
+                    match = Character.toLowerCase(out.charAt(from + i)) == extension.charAt(i);
+                }
+                if (match) return false;
+            }
+        }
+        return true;
+    }
+
+    // Keeps name=value parameters whose name isn't excluded; leading '?'s are dropped
+    private void appendQuery(String query, StringBuilder out) {
+        int n = query.length();
+        int pos = 0;
+        while (pos < n && query.charAt(pos) == '?') pos++;
+        boolean first = true;
+        while (pos < n) {
+            int end = query.indexOf('&', pos);
+            if (end < 0) end = n;
+            int eq = query.indexOf('=', pos);
+            if (eq > pos && eq < end && !isExcluded(query, pos, eq)) {
+                out.append(first ? '?' : '&');
+                out.append(encode(query.substring(pos, end), true));
+                first = false;
+            }
+            pos = end + 1;
+        }
+    }
+
+    private boolean isExcluded(String query, int start, int end) {
+        int length = end - start;
+        if (length > maxExcludedLength) return false;
+        return excludedParams.contains(query.substring(start, end).toLowerCase(Locale.ROOT));
+    }
+
+    // Normalizes percent-encoding: unreserved characters decoded, hex upper-cased,
+    // anything not allowed (spaces, non-ASCII, ...) encoded as UTF-8. Returns s itself when already clean.
+    private static String encode(String s, boolean inQuery) {
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c >= 128 || !ALLOWED[c] || (c == '?' && !inQuery)) break;
+            i++;
+        }
+        if (i == n && s.indexOf('%') < 0) return s;
+
+        StringBuilder out = new StringBuilder(n + 16);
+        out.append(s, 0, i);
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '%' && i + 2 < n && isHex(s.charAt(i + 1)) && isHex(s.charAt(i + 2))) {
+                int value = Character.digit(s.charAt(i + 1), 16) * 16 + Character.digit(s.charAt(i + 2), 16);
+                if (isUnreserved(value)) {
+                    out.append((char) value);
+                } else {
+                    out.append('%').append(Character.toUpperCase(s.charAt(i + 1))).append(Character.toUpperCase(s.charAt(i + 2)));
+                }
+                i += 2;
+            } else if (c < 128 && ALLOWED[c] && (c != '?' || inQuery)) {
+                out.append(c);
+            } else {
+                int cp = Character.codePointAt(s, i);
+                if (Character.charCount(cp) == 2) i++;
+                for (byte b : new String(Character.toChars(cp)).getBytes(StandardCharsets.UTF_8)) {
+                    out.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xf, 16)))
+                            .append(Character.toUpperCase(Character.forDigit(b & 0xf, 16)));
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean isUnreserved(int c) {
+        return isAlpha((char) c) || isDigit((char) c) || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static boolean isAlpha(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHex(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+}
@@ -0,0 +1,169 @@
+package Crawler;
+
+import java.util.*;
+
+// URLs waiting for one host. The FIFO variant keeps discovery order; the cash
+// variant (OPIC ordering) hands out the URL holding the most importance cash first
+// and merges repeated discoveries of a URL into a single entry.
+// Not thread safe: HostFrontier only touches it while holding its lock.
+abstract class UrlQueue {
+    static UrlQueue create(boolean byCash) {
+        return byCash ? new ByCash() : new Fifo();
+    }
+
+    // Queues url, or adds cash to it if already queued; true if it was not queued yet
+    abstract boolean add(String url, double cash);
+
+    // Adds cash to url only if it is queued here; true if it was
+    boolean credit(String url, double cash) {
+        return false;
+    }
+
+    abstract String poll();
+
+    // Cash of the URL poll() would return next, 0 when empty (or FIFO)
+    abstract double peekCash();
+
+    abstract int size();
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    abstract void clear();
+
+    abstract void addAllTo(Collection<String> out);
+
+    static final class Fifo extends UrlQueue {
+        private final ArrayDeque<String> urls = new ArrayDeque<>();
+
+        @Override
+        boolean add(String url, double cash) {
+            urls.add(url);
+            return true;
+        }
+
+        @Override
+        String poll() {
+            return urls.poll();
+        }
+
+        @Override
+        double peekCash() {
+            return 0;
+        }
+
+        @Override
+        int size() {
+            return urls.size();
+        }
+
+        @Override
+        void clear() {
+            urls.clear();
+        }
+
+        @Override
+        void addAllTo(Collection<String> out) {
+            out.addAll(urls);
+        }
+    }
+
+    // Max-heap on cash with lazy updates: a credited URL gets a new heap entry and
+    // entries whose cash no longer matches the map are skipped when they surface
+    static final class ByCash extends UrlQueue {
+        private static final class Entry {
+            final String url;
+            final double cash;
+            final long seq;
+
+            Entry(String url, double cash, long seq) {
+                this.url = url;
+                this.cash = cash;
+                this.seq = seq;
+            }
+        }
+
+        private final HashMap<String, Double> cash = new HashMap<>();
+        private final PriorityQueue<Entry> heap = new PriorityQueue<>((a, b) ->
+                a.cash != b.cash ? Double.compare(b.cash, a.cash) : Long.compare(a.seq, b.seq));
+        private long seq = 0;
+
+        @Override
+        boolean add(String url, double amount) {
+            Double current = cash.get(url);
+            if (current == null) {
+                cash.put(url, amount);
+                heap.add(new Entry(url, amount, seq++));
+                return true;
+            }
+            if (amount > 0) {
+                double total = current + amount;
+                cash.put(url, total);
+                heap.add(new Entry(url, total, seq++));
+                if (heap.size() > 2 * cash.size() + 16) {
+                    compact();
+                }
+            }
+            return false;
+        }
+
+        @Override
+        boolean credit(String url, double amount) {
+            if (amount <= 0 || !cash.containsKey(url)) return false;
+            add(url, amount);
+            return true;
+        }
+
+        @Override
+        String poll() {
+            Entry top = peekValid();
+            if (top == null) return null;
+            heap.poll();
+            cash.remove(top.url);
+            return top.url;
+        }
+
+        @Override
+        double peekCash() {
+            Entry top = peekValid();
+            return top == null ? 0 : top.cash;
+        }
+
+        private Entry peekValid() {
+            Entry top = heap.peek();
+            while (top != null) {
+                Double current = cash.get(top.url);
+                if (current != null && current == top.cash) {
+                    return top;
+                }
+                heap.poll(); // stale
+                top = heap.peek();
+            }
+            return null;
+        }
+
+        private void compact() {
+            heap.clear();
+            for (Map.Entry<String, Double> entry : cash.entrySet()) {
+                heap.add(new Entry(entry.getKey(), entry.getValue(), seq++));
+            }
+        }
+
+        @Override
+        int size() {
+            return cash.size();
+        }
+
+        @Override
+        void clear() {
+            cash.clear();
+            heap.clear();
+        }
+
+        @Override
+        void addAllTo(Collection<String> out) {
+            out.addAll(cash.keySet());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package Crawler;
+
+import org.jsoup.Jsoup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.*;
+
+// Crawl loop for CRAWLER_FETCH_MODE=virtual.
+// Every fetch runs on its own virtual thread through one shared HttpClient, so
+// thousands of slow servers can be waited on without thousands of platform threads.
+// Jsoup parsing and link extraction are CPU bound and go to a small fixed pool.
+public class VirtualFetchStage {
+    private final HostFrontier urlsToCrawl;
+    private final PageProcessor processor;
+    private final PageFetcher fetcher;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final ExecutorService parsePool;
+    private final int fetchTimeoutMs;
+
+    public VirtualFetchStage(HostFrontier urlsToCrawl, PageProcessor processor, PageFetcher fetcher,
+                             int maxInFlight, int parseThreads, int fetchTimeoutMs) {
+        this.urlsToCrawl = urlsToCrawl;
+        this.processor = processor;
+        this.fetcher = fetcher;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.parsePool = Executors.newFixedThreadPool(parseThreads);
+        this.fetchTimeoutMs = fetchTimeoutMs;
+    }
+
+    public void run() {
+        System.out.println("Virtual-thread fetch stage: " + maxInFlight + " in flight max");
+        try (ExecutorService fetchers = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (!Thread.currentThread().isInterrupted() && !processor.isDone()) {
+                inFlight.acquire();
+                String url = urlsToCrawl.poll(100, TimeUnit.MILLISECONDS);
+                if (url == null) {
+                    inFlight.release();
+                    continue;
+                }
+                fetchers.submit(() -> fetchAndParse(url));
+            }
+            // Wait for the requests that are still running
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            parsePool.shutdown();
+        }
+    }
+
+    private void fetchAndParse(String url) {
+        boolean released = false;
+        try {
+            if (!processor.shouldFetch(url)) {
+                return;
+            }
+            long start = System.nanoTime();
+            FetchResult result;
+            try {
+                result = fetcher.fetch(url, urlsToCrawl.timeoutMillis(url, fetchTimeoutMs));
+            } catch (IOException e) {
+                urlsToCrawl.releaseFailed(url);
+                released = true;
+                throw e;
+            }
+            long nanos = System.nanoTime() - start;
+            // Free the host before parsing, with the outcome its throttle adapts to
+            urlsToCrawl.release(url, result.getStatusCode(), nanos, result.getHeader("Retry-After"));
+            released = true;
+            CrawlerMetrics.recordFetch(url, nanos, result.getBody().length, result.getStatusCode());
+            if (result.isSkipped()) {
+                // Binary or foreign-language: dropped before the download finished, nothing to parse
+                CrawlerMetrics.recordEarlyAbort(result.getSkipReason(), result.getBytesSkipped());
+                return;
+            }
+
+            // Parse on the CPU pool, this virtual thread just parks until it is done
+            Future<?> parsed = parsePool.submit(() -> {
+                long cpuStart = CrawlerMetrics.threadCpuNanos();
+                org.jsoup.nodes.Document doc = Jsoup.parse(
+                        new ByteArrayInputStream(result.getBody()), result.getCharset(), result.getFinalUrl());
+                processor.process(url, doc, result.getHeader("ETag"), result.getHeader("Last-Modified"));
+                CrawlerMetrics.recordParse(CrawlerMetrics.threadCpuNanos() - cpuStart);
+                return null;
+            });
+            parsed.get();
+        } catch (IOException e) {
+            CrawlerMetrics.recordError(url, e);
+            System.err.println("Failed to fetch: " + url + " - " + e.getMessage());
+        } catch (ExecutionException e) {
+            CrawlerMetrics.recordError(url, e.getCause());
+            System.err.println("Failed to process: " + url + " - " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!released) {
+                urlsToCrawl.release(url, false);
+            }
+            inFlight.release();
+        }
+    }
+}
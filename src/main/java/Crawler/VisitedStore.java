@@ -0,0 +1,216 @@
+package Crawler;
+
+import java.io.*;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Visited-URL set for large crawls that runs in bounded memory.
+// URLs are reduced to 64-bit fingerprints. Lookups go:
+//   1. Bloom filter (lock free)  -> most new URLs stop here
+//   2. in-memory set of recent fingerprints
+//   3. binary search in a sorted, memory-mapped file of older fingerprints
+// When the recent set fills up it is merged into a new generation of the file.
+public class VisitedStore {
+    private static final String FILE_PREFIX = "visited-";
+    private static final String FILE_SUFFIX = ".bin";
+
+    private final Path dir;
+    private final int maxRecent;
+    private final BloomFilter bloom;
+    private final LongHashSet recent;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private LongBuffer disk = LongBuffer.allocate(0); // sorted fingerprints on disk
+    private long generation = 0;
+    private long size = 0;
+
+    public VisitedStore(Path dir, long expectedUrls, int maxRecent) {
+        this.dir = dir;
+        this.maxRecent = maxRecent;
+        this.bloom = new BloomFilter(expectedUrls, 0.01);
+        this.recent = new LongHashSet(maxRecent);
+        try {
+            Files.createDirectories(dir);
+            openLatestGeneration();
+        } catch (IOException e) {
+            System.err.println("Failed to open visited store in " + dir + ": " + e.getMessage());
+        }
+        System.out.println("Visited store: " + size + " URLs on disk, bloom filter " + (bloom.sizeInBytes() >> 20) + " MB");
+    }
+
+    // 64-bit URL fingerprint (FNV-1a over the chars, then a splitmix finalizer)
+    public static long fingerprint(String url) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            h ^= url.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return BloomFilter.mix(h);
+    }
+
+    // Same contract as Set.add: true if the URL was not visited before
+    public boolean add(String url) {
+        return addFingerprint(fingerprint(url));
+    }
+
+    public boolean addFingerprint(long fp) {
+        lock.writeLock().lock();
+        try {
+            if (bloom.mightContain(fp) && containsExact(fp)) {
+                return false;
+            }
+            bloom.add(fp);
+            recent.add(fp);
+            size++;
+            if (recent.size() >= maxRecent) {
+                mergeRecent();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addAll(Collection<String> urls) {
+        for (String url : urls) {
+            add(url);
+        }
+    }
+
+    public boolean contains(String url) {
+        return containsFingerprint(fingerprint(url));
+    }
+
+    public boolean containsFingerprint(long fp) {
+        if (!bloom.mightContain(fp)) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return containsExact(fp);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Persist the in-memory part so a restart sees every visited URL
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            if (recent.size() > 0) {
+                mergeRecent();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller must hold a lock
+    private boolean containsExact(long fp) {
+        if (recent.contains(fp)) return true;
+        int lo = 0, hi = disk.limit() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long v = disk.get(mid);
+            if (v < fp) lo = mid + 1;
+            else if (v > fp) hi = mid - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    // Caller must hold the write lock.
+    // Streams the old file and the sorted recent fingerprints into a new generation.
+    private void mergeRecent() {
+        long[] fresh = recent.toSortedArray();
+        long nextGeneration = generation + 1;
+        Path target = dir.resolve(FILE_PREFIX + nextGeneration + FILE_SUFFIX);
+        Path tmp = dir.resolve(FILE_PREFIX + nextGeneration + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            int i = 0, j = 0, n = disk.limit();
+            while (i < n || j < fresh.length) {
+                if (j >= fresh.length || (i < n && disk.get(i) < fresh[j])) {
+                    out.writeLong(disk.get(i++));
+                } else if (i >= n || fresh[j] < disk.get(i)) {
+                    out.writeLong(fresh[j++]);
+                } else {
+                    out.writeLong(fresh[j++]);
+                    i++;
+                }
+            }
+        } catch (IOException e) {
+            // Keep everything in memory and retry on the next merge
+            System.err.println("Failed to merge visited set: " + e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Path old = dir.resolve(FILE_PREFIX + generation + FILE_SUFFIX);
+            disk = map(target);
+            generation = nextGeneration;
+            recent.clear();
+            // May fail while the old mapping is alive (Windows); cleaned on next start
+            Files.deleteIfExists(old);
+        } catch (IOException e) {
+            System.err.println("Failed to install visited set generation " + nextGeneration + ": " + e.getMessage());
+        }
+    }
+
+    private void openLatestGeneration() throws IOException {
+        long latest = -1;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX)) {
+                    try {
+                        long gen = Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+                        latest = Math.max(latest, gen);
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+        }
+        if (latest < 0) return;
+
+        // Drop stale generations and unfinished merges
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (name.startsWith(FILE_PREFIX) && !name.equals(FILE_PREFIX + latest + FILE_SUFFIX)) {
+                    Files.deleteIfExists(p);
+                }
+            }
+        }
+
+        generation = latest;
+        disk = map(dir.resolve(FILE_PREFIX + latest + FILE_SUFFIX));
+        size = disk.limit();
+        for (int i = 0; i < disk.limit(); i++) {
+            bloom.add(disk.get(i));
+        }
+    }
+
+    private static LongBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long bytes = channel.size();
+            if (bytes == 0) return LongBuffer.allocate(0);
+            // A single mapping covers up to 2 GB, i.e. ~268M fingerprints
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes).asLongBuffer();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package Crawler;
+
+import java.io.IOException;
+
+// Decorator that archives every response the wrapped fetcher returns, so the crawl
+// can later be replayed offline with WarcReplayFetcher. A failed write is counted
+// and logged but never fails the fetch.
+public class WarcRecordingFetcher implements PageFetcher {
+    private final PageFetcher delegate;
+    private final WarcWriter writer;
+
+    public WarcRecordingFetcher(PageFetcher delegate, WarcWriter writer) {
+        this.delegate = delegate;
+        this.writer = writer;
+    }
+
+    @Override
+    public FetchResult fetch(String url) throws IOException, InterruptedException {
+        return record(delegate.fetch(url));
+    }
+
+    @Override
+    public FetchResult fetch(String url, int timeoutMs) throws IOException, InterruptedException {
+        return record(delegate.fetch(url, timeoutMs));
+    }
+
+    @Override
+    public FetchResult fetchConditional(String url, String etag, String lastModified) throws IOException, InterruptedException {
+        FetchResult result = delegate.fetchConditional(url, etag, lastModified);
+        // A 304 has no body worth replaying, the archive keeps the last full response
+        return result.getStatusCode() == 304 ? result : record(result);
+    }
+
+    private FetchResult record(FetchResult result) {
+        if (result.isSkipped()) {
+            return result; // only the sniffed head was downloaded, replay would see a truncated page
+        }
+        try {
+            writer.writeResponse(result);
+        } catch (IOException e) {
+            CrawlerMetrics.recordError(result.getUrl(), "warc_write_" + e.getClass().getSimpleName());
+            System.err.println("Failed to archive " + result.getUrl() + ": " + e.getMessage());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,203 @@
+package Crawler;
+
+import java.io.*;
+import java.net.http.HttpHeaders;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+// Serves pages from WARC archives written by WarcWriter instead of the network.
+// The .idx files next to the archives are loaded up front (the newest record of a URL
+// wins); each fetch is then one positional read and one gzip member to inflate.
+// URLs that were never archived come back as 404, so an offline crawl stays inside
+// the recorded one. Safe to call from many threads.
+public class WarcReplayFetcher implements PageFetcher {
+    private final Map<String, Location> locations = new HashMap<>();
+    private final ConcurrentHashMap<Path, FileChannel> channels = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private static final HttpHeaders NO_HEADERS = HttpHeaders.of(Collections.emptyMap(), (name, value) -> true);
+
+    private static class Location {
+        final Path archive;
+        final long offset;
+        final int length;
+
+        Location(Path archive, long offset, int length) {
+            this.archive = archive;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    public WarcReplayFetcher(Path dir) throws IOException {
+        List<Path> indexes;
+        try (Stream<Path> files = Files.walk(dir)) {
+            indexes = files.filter(f -> f.toString().endsWith(WarcWriter.ARCHIVE_SUFFIX + WarcWriter.INDEX_SUFFIX))
+                    .sorted() // file names start with the time they were opened
+                    .toList();
+        }
+        int archives = 0;
+        for (Path index : indexes) {
+            String name = index.getFileName().toString();
+            Path archive = index.resolveSibling(name.substring(0, name.length() - WarcWriter.INDEX_SUFFIX.length()));
+            if (!Files.exists(archive)) continue;
+            archives++;
+            try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int lengthStart = line.lastIndexOf(' ');
+                    int offsetStart = line.lastIndexOf(' ', lengthStart - 1);
+                    if (offsetStart <= 0) continue;
+                    try {
+                        locations.put(line.substring(0, offsetStart), new Location(archive,
+                                Long.parseLong(line.substring(offsetStart + 1, lengthStart)),
+                                Integer.parseInt(line.substring(lengthStart + 1))));
+                    } catch (NumberFormatException ignored) {
+                        // torn last line of an archive that was being written
+                    }
+                }
+            }
+        }
+        System.out.println("WARC replay: " + locations.size() + " URLs in " + archives + " archives under " + dir);
+    }
+
+    @Override
+    public FetchResult fetch(String url) throws IOException {
+        Location location = locations.get(url);
+        if (location == null) {
+            misses.increment();
+            return new FetchResult(url, url, 404, NO_HEADERS, new byte[0]);
+        }
+        hits.increment();
+        return read(url, location);
+    }
+
+    // Archived responses are always complete, validators don't apply
+    @Override
+    public FetchResult fetchConditional(String url, String etag, String lastModified) throws IOException {
+        return fetch(url);
+    }
+
+    public boolean contains(String url) {
+        return locations.containsKey(url);
+    }
+
+    public int size() {
+        return locations.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public void close() {
+        for (FileChannel channel : channels.values()) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+        channels.clear();
+    }
+
+    private FetchResult read(String url, Location location) throws IOException {
+        FileChannel channel = channels.computeIfAbsent(location.archive, path -> {
+            try {
+                return FileChannel.open(path, StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        ByteBuffer buffer = ByteBuffer.allocate(location.length);
+        long position = location.offset;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position); // positional: no shared file pointer
+            if (n < 0) throw new EOFException("Truncated WARC record for " + url);
+            position += n;
+        }
+
+        try (InputStream in = new BufferedInputStream(new GZIPInputStream(
+                new ByteArrayInputStream(buffer.array()), 8192))) {
+            Map<String, String> warcHeaders = readHeaders(in, null);
+            String target = warcHeaders.getOrDefault("warc-target-uri", url);
+            int blockLength = Integer.parseInt(warcHeaders.getOrDefault("content-length", "0"));
+
+            // HTTP response block: status line, headers, body
+            CountingInputStream block = new CountingInputStream(in);
+            String statusLine = readLine(block);
+            String[] parts = statusLine == null ? new String[0] : statusLine.split(" ", 3);
+            if (parts.length < 2) throw new IOException("Malformed WARC response for " + url);
+            int status = Integer.parseInt(parts[1]);
+            Map<String, List<String>> httpHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            readHeaders(block, httpHeaders);
+            byte[] body = block.readNBytes((int) Math.max(0, blockLength - block.count));
+            return new FetchResult(url, target, status, HttpHeaders.of(httpHeaders, (name, value) -> true), body,
+                    warcHeaders.containsKey("warc-truncated"));
+        }
+    }
+
+    // Reads "Name: value" lines up to the blank line; WARC headers are returned lower-cased,
+    // HTTP headers are collected into multi (if given)
+    private static Map<String, String> readHeaders(InputStream in, Map<String, List<String>> multi) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) continue;
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            headers.put(name.toLowerCase(Locale.ROOT), value);
+            if (multi != null) {
+                multi.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+            }
+        }
+        return headers;
+    }
+
+    // One CRLF (or LF) terminated header line, null at end of stream
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) >= 0 && b != '\n') {
+            if (b != '\r') line.write(b);
+        }
+        if (b < 0 && line.size() == 0) return null;
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
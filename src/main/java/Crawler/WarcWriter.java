@@ -0,0 +1,167 @@
+package Crawler;
+
+import java.io.*;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+// Appends raw HTTP responses to rotating WARC/1.1 files (<prefix>-<time>-<n>.warc.gz).
+// Every record is its own gzip member, so a record can be read back from its offset
+// alone. Next to each archive a plain-text .idx file lists "url offset length" per
+// record, which is what WarcReplayFetcher loads instead of scanning the archives.
+// Records are compressed by the calling thread; only the append is serialized.
+public class WarcWriter implements Closeable {
+    static final String ARCHIVE_SUFFIX = ".warc.gz";
+    static final String INDEX_SUFFIX = ".idx";
+    // Extension field: the URL that was requested when it redirected to WARC-Target-URI
+    static final String REQUESTED_URI_FIELD = "Falcony-Requested-URI";
+
+    private static final DateTimeFormatter FILE_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+
+    private final Path dir;
+    private final String prefix;
+    private final long maxFileBytes;
+    private OutputStream archive;
+    private Writer index;
+    private long offset;
+    private int fileNumber = 0;
+    private long records = 0;
+    private boolean closed = false;
+
+    public WarcWriter(Path dir, String prefix, long maxFileBytes) throws IOException {
+        this.dir = dir;
+        this.prefix = prefix;
+        this.maxFileBytes = maxFileBytes;
+        Files.createDirectories(dir);
+        rotate();
+    }
+
+    // Writes one response record, indexed under its final URL and, after a redirect, the requested one
+    public void writeResponse(FetchResult result) throws IOException {
+        byte[] record = gzip(responseRecord(result));
+        String target = result.getFinalUrl();
+        synchronized (this) {
+            if (closed) return;
+            if (offset > 0 && offset + record.length > maxFileBytes) {
+                rotate();
+            }
+            archive.write(record);
+            archive.flush();
+            index.write(target + " " + offset + " " + record.length + "\n");
+            if (!target.equals(result.getUrl())) {
+                index.write(result.getUrl() + " " + offset + " " + record.length + "\n");
+            }
+            index.flush();
+            offset += record.length;
+            records++;
+        }
+    }
+
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    // Caller must hold the lock (or be the constructor)
+    private void rotate() throws IOException {
+        closeFiles();
+        String name = prefix + "-" + FILE_TIME.format(Instant.now()) + "-" + String.format("%05d", fileNumber++);
+        archive = new BufferedOutputStream(new FileOutputStream(dir.resolve(name + ARCHIVE_SUFFIX).toFile()), 1 << 16);
+        index = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(dir.resolve(name + ARCHIVE_SUFFIX + INDEX_SUFFIX).toFile()), StandardCharsets.UTF_8));
+        offset = 0;
+
+        String info = "software: Falcony crawler\r\nformat: WARC File Format 1.1\r\n";
+        byte[] record = gzip(record("warcinfo", null, null, "application/warc-fields",
+                info.getBytes(StandardCharsets.UTF_8), false));
+        archive.write(record);
+        offset += record.length;
+    }
+
+    private void closeFiles() throws IOException {
+        if (archive != null) archive.close();
+        if (index != null) index.close();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            closeFiles();
+        } catch (IOException e) {
+            System.err.println("Failed to close WARC file: " + e.getMessage());
+        }
+    }
+
+    // HTTP status line + headers + body. The body is stored as the client returned it
+    // (de-chunked), so Transfer-Encoding is left out
+    private static byte[] responseRecord(FetchResult result) throws IOException {
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(result.getStatusCode()).append("\r\n");
+        HttpHeaders headers = result.getHeaders();
+        if (headers != null) {
+            for (Map.Entry<String, List<String>> header : headers.map().entrySet()) {
+                String name = header.getKey();
+                if (name.startsWith(":") || name.equalsIgnoreCase("transfer-encoding")) continue;
+                for (String value : header.getValue()) {
+                    head.append(name).append(": ").append(value.replace("\r", "").replace("\n", " ")).append("\r\n");
+                }
+            }
+        }
+        head.append("\r\n");
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+        byte[] body = result.getBody() == null ? new byte[0] : result.getBody();
+        byte[] block = new byte[headBytes.length + body.length];
+        System.arraycopy(headBytes, 0, block, 0, headBytes.length);
+        System.arraycopy(body, 0, block, headBytes.length, body.length);
+
+        String requested = result.getUrl().equals(result.getFinalUrl()) ? null : result.getUrl();
+        return record("response", result.getFinalUrl(), requested, "application/http;msgtype=response", block,
+                result.isTruncated());
+    }
+
+    private static byte[] record(String type, String targetUri, String requestedUri, String contentType, byte[] block,
+                                 boolean truncated) throws IOException {
+        StringBuilder head = new StringBuilder();
+        head.append("WARC/1.1\r\n");
+        head.append("WARC-Type: ").append(type).append("\r\n");
+        head.append("WARC-Record-ID: <urn:uuid:").append(UUID.randomUUID()).append(">\r\n");
+        head.append("WARC-Date: ").append(Instant.now().truncatedTo(ChronoUnit.SECONDS)).append("\r\n");
+        if (targetUri != null) {
+            head.append("WARC-Target-URI: ").append(targetUri).append("\r\n");
+        }
+        if (requestedUri != null) {
+            head.append(REQUESTED_URI_FIELD).append(": ").append(requestedUri).append("\r\n");
+        }
+        if (truncated) {
+            head.append("WARC-Truncated: length\r\n"); // body stopped at maxBodySize
+        }
+        head.append("Content-Type: ").append(contentType).append("\r\n");
+        head.append("Content-Length: ").append(block.length).append("\r\n");
+        head.append("\r\n");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(block.length + 512);
+        out.write(head.toString().getBytes(StandardCharsets.UTF_8));
+        out.write(block);
+        out.write("\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 3 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        }
+        return out.toByteArray();
+    }
+}
@@ -1,4 +1,5 @@
 import Crawler.Crawler;
+import Crawler.CrawlerMetrics;
 import Indexer.ImageIndexer;
 import Indexer.TextIndexer;
 import Pagerank.PageRank;
@@ -15,7 +16,10 @@ public class Engine {
         long endTime = System.currentTimeMillis();
         long duration = (endTime - startTime) / 1000;
 
-        System.out.println("Crawler took " + duration + " seconds.");
+        // Pages per second is what to compare between versions on the same WARC replay (Engine --replay <dir>)
+        long pages = CrawlerMetrics.pagesFetched.sum();
+        System.out.println("Crawler took " + duration + " seconds (" + pages + " pages, "
+                + String.format("%.1f", pages * 1000.0 / Math.max(1, endTime - startTime)) + " pages/s).");
         startTime = System.currentTimeMillis();
 
         TextIndexer indexer = new TextIndexer();
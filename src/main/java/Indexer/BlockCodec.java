@@ -0,0 +1,129 @@
+package Indexer;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Encoding of posting blocks. The doc id gaps of a block are bit-packed at one width,
+// chosen so that about 90% of them fit (PForDelta); the high bits of the larger gaps
+// are patched in afterwards as exceptions, so one outlier doesn't widen the whole
+// block. Field frequencies take one varint per posting: two bits each for title, h1
+// and h2 (3 means "3 or more", the rest follows as its own varint) and the zigzagged
+// body count above them. Most postings of a page body fit in one or two bytes.
+final class BlockCodec {
+    static final int BLOCK_SIZE = 128;
+    private static final int SMALL_MAX = 3;
+
+    private BlockCodec() {}
+
+    // Reading position in a mapped buffer
+    static final class Input {
+        final ByteBuffer buffer;
+        int position;
+
+        Input(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int readByte() {
+            return buffer.get(position++) & 0xFF;
+        }
+
+        int readVarInt() {
+            int value = 0, shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    static void writeGaps(DataOutput out, int[] gaps, int count) throws IOException {
+        int[] sorted = Arrays.copyOf(gaps, count);
+        Arrays.sort(sorted);
+        int width = Math.max(1, 32 - Integer.numberOfLeadingZeros(sorted[(count - 1) * 9 / 10]));
+
+        int exceptions = 0;
+        for (int i = 0; i < count; i++) {
+            if (width < 32 && gaps[i] >>> width != 0) exceptions++;
+        }
+        out.writeByte(width);
+        writeVarInt(out, exceptions);
+
+        long bits = 0;
+        int pending = 0;
+        long mask = (1L << width) - 1;
+        for (int i = 0; i < count; i++) {
+            bits |= (gaps[i] & mask) << pending;
+            pending += width;
+            while (pending >= 8) {
+                out.writeByte((int) bits);
+                bits >>>= 8;
+                pending -= 8;
+            }
+        }
+        if (pending > 0) out.writeByte((int) bits);
+
+        for (int i = 0; i < count && exceptions > 0; i++) {
+            if (width < 32 && gaps[i] >>> width != 0) {
+                writeVarInt(out, i);
+                writeVarInt(out, gaps[i] >>> width);
+            }
+        }
+    }
+
+    static void readGaps(Input in, int[] gaps, int count) {
+        int width = in.readByte();
+        int exceptions = in.readVarInt();
+
+        long bits = 0;
+        int available = 0;
+        long mask = (1L << width) - 1;
+        for (int i = 0; i < count; i++) {
+            while (available < width) {
+                bits |= (long) in.readByte() << available;
+                available += 8;
+            }
+            gaps[i] = (int) (bits & mask);
+            bits >>>= width;
+            available -= width;
+        }
+
+        for (int e = 0; e < exceptions; e++) {
+            int index = in.readVarInt();
+            gaps[index] |= in.readVarInt() << width;
+        }
+    }
+
+    static void writeFreqs(DataOutput out, int title, int h1, int h2, int body) throws IOException {
+        int zigzag = (body << 1) ^ (body >> 31); // body can be negative, see DocumentAnalyzer
+        writeVarInt(out, (zigzag << 6) | (Math.min(title, SMALL_MAX) << 4) | (Math.min(h1, SMALL_MAX) << 2) | Math.min(h2, SMALL_MAX));
+        if (title >= SMALL_MAX) writeVarInt(out, title - SMALL_MAX);
+        if (h1 >= SMALL_MAX) writeVarInt(out, h1 - SMALL_MAX);
+        if (h2 >= SMALL_MAX) writeVarInt(out, h2 - SMALL_MAX);
+    }
+
+    // into: title, h1, h2, body
+    static void readFreqs(Input in, int[] into) {
+        int packed = in.readVarInt();
+        int title = (packed >>> 4) & SMALL_MAX, h1 = (packed >>> 2) & SMALL_MAX, h2 = packed & SMALL_MAX;
+        into[0] = title == SMALL_MAX ? SMALL_MAX + in.readVarInt() : title;
+        into[1] = h1 == SMALL_MAX ? SMALL_MAX + in.readVarInt() : h1;
+        into[2] = h2 == SMALL_MAX ? SMALL_MAX + in.readVarInt() : h2;
+        int zigzag = packed >>> 6;
+        into[3] = (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
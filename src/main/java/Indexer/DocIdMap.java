@@ -0,0 +1,103 @@
+package Indexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Global dense int ids for documents, shared by all segments, so postings hold small
+// sorted ints instead of 24-char ObjectId strings. The ids live in docids.dat as
+// 12-byte ObjectIds: a document's id is its record number and stays the same when the
+// document is indexed again. The indexer appends new ids before it writes a segment
+// that uses them; query processes open it read-only and pick them up with reload().
+public class DocIdMap {
+    private static final int RECORD_BYTES = SegmentWriter.DOC_ID_BYTES;
+
+    private final Path file;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] docIds = new String[1024];
+    private int size = 0;
+
+    public DocIdMap(Path file, boolean writable) throws IOException {
+        this.file = file;
+        if (writable) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                if (channel.size() % RECORD_BYTES != 0) {
+                    channel.truncate(channel.size() - channel.size() % RECORD_BYTES); // torn by a crash
+                }
+            }
+        }
+        reload();
+    }
+
+    // Ids of the documents, assigning new ones (in the given order) where needed
+    public synchronized int[] assign(List<String> documents) throws IOException {
+        int[] result = new int[documents.size()];
+        HexFormat hex = HexFormat.of();
+        ByteBuffer added = ByteBuffer.allocate(documents.size() * RECORD_BYTES);
+        for (int i = 0; i < result.length; i++) {
+            Integer id = ids.get(documents.get(i));
+            if (id == null) {
+                id = add(documents.get(i));
+                added.put(hex.parseHex(documents.get(i)));
+            }
+            result[i] = id;
+        }
+        added.flip();
+        if (added.hasRemaining()) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (added.hasRemaining()) channel.write(added);
+                channel.force(false); // segments must never reference ids that aren't on disk
+            }
+        }
+        return result;
+    }
+
+    // Reads ids appended by the indexer since the last call
+    public synchronized void reload() throws IOException {
+        if (!Files.exists(file)) return; // nothing indexed yet
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long complete = channel.size() / RECORD_BYTES;
+            if (complete <= size) return;
+            ByteBuffer buffer = ByteBuffer.allocate((int) ((complete - size) * RECORD_BYTES));
+            long position = (long) size * RECORD_BYTES;
+            while (buffer.hasRemaining()) {
+                int n = channel.read(buffer, position);
+                if (n < 0) break;
+                position += n;
+            }
+            buffer.flip();
+            HexFormat hex = HexFormat.of();
+            byte[] record = new byte[RECORD_BYTES];
+            while (buffer.remaining() >= RECORD_BYTES) {
+                buffer.get(record);
+                add(hex.formatHex(record));
+            }
+        }
+    }
+
+    // -1 for a document that has never been indexed into a segment
+    public synchronized int lookup(String docId) {
+        Integer id = ids.get(docId);
+        return id == null ? -1 : id;
+    }
+
+    public synchronized String docId(int id) {
+        return docIds[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private int add(String docId) {
+        if (size == docIds.length) docIds = Arrays.copyOf(docIds, size * 2);
+        docIds[size] = docId;
+        ids.put(docId, size);
+        return size++;
+    }
+}
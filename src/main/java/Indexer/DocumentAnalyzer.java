@@ -0,0 +1,145 @@
+package Indexer;
+
+import Utils.Posting;
+import Utils.PositionCodec;
+import Utils.Utils;
+import Utils.WebDocument;
+import opennlp.tools.stemmer.PorterStemmer;
+import opennlp.tools.tokenize.TokenizerME;
+
+import java.util.*;
+
+// Turns a document into its postings in one pass over its fields. Each field is
+// tokenized once and every token is mapped to an interned term id; the title/h1/h2/body
+// counts of a term are four ints in a flat array indexed by that id, so counting is
+// an array increment instead of a Collections.frequency scan per distinct term.
+// Cleaning and stemming results are cached per raw token, most tokens of a batch are
+// words seen before. The body token positions of each term are kept too, for phrase
+// queries. One instance per worker thread, it is not thread-safe.
+public class DocumentAnalyzer {
+    private static final int TITLE = 0, H1 = 1, H2 = 2, BODY = 3;
+    private static final int FIELDS = 4;
+    private static final int STOP_WORD = -1;
+    private static final int MAX_CACHED_TOKENS = 200_000;
+    // A term this frequent is a poor phrase anchor and would bloat its token record;
+    // phrases on such documents fall back to matching the stored text
+    private static final int MAX_POSITIONS = 4096;
+
+    private final TokenizerME tokenizer;
+    private final PorterStemmer stemmer = new PorterStemmer();
+    private final HashMap<String, Integer> tokenCache = new HashMap<>(); // raw token -> term id or STOP_WORD
+    private final HashMap<String, Integer> termIds = new HashMap<>();     // stemmed term -> id
+    private final ArrayList<String> terms = new ArrayList<>();             // id -> stemmed term
+
+    private int[] counts = new int[4096 * FIELDS];
+    private int[] touched = new int[1024]; // ids counted in the current document
+    private int touchedCount = 0;
+    private int[] bodyIds = new int[4096];    // term id (or STOP_WORD) at each body token position
+    private int bodyLength = 0;
+    private int[] slot = new int[4096];       // per id: next free index in the flat position array
+
+    public DocumentAnalyzer(TokenizerME tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    // One posting per term of the body text; title/h1/h2 occurrences only count for
+    // terms that also appear in the body, and body excludes the h1/h2 occurrences
+    public Map<String, Posting> analyze(WebDocument document) {
+        try {
+            count(document.getTitle(), TITLE);
+            for (String h1 : document.getH1s()) count(h1, H1);
+            for (String h2 : document.getH2s()) count(h2, H2);
+            count(document.getSoupedContent(), BODY); // may decode the stored body, and fail
+        } catch (RuntimeException e) {
+            discard(); // the next document must not inherit this one's counts
+            throw e;
+        }
+        int[] positions = groupBodyPositions();
+
+        Map<String, Posting> postings = new HashMap<>(touchedCount * 2);
+        for (int i = 0; i < touchedCount; i++) {
+            int base = touched[i] * FIELDS;
+            if (counts[base + BODY] > 0) {
+                String term = terms.get(touched[i]);
+                Posting posting = new Posting(document.getId(), counts[base + TITLE], counts[base + H1],
+                        counts[base + H2], counts[base + BODY] - counts[base + H1] - counts[base + H2]);
+                if (counts[base + BODY] <= MAX_POSITIONS) {
+                    int end = slot[touched[i]]; // one past the term's last position
+                    posting.setPositions(PositionCodec.encode(positions, end - counts[base + BODY], counts[base + BODY]));
+                }
+                postings.put(term, posting);
+            }
+            Arrays.fill(counts, base, base + FIELDS, 0);
+        }
+        touchedCount = 0;
+        bodyLength = 0;
+        return postings;
+    }
+
+    private void discard() {
+        for (int i = 0; i < touchedCount; i++) {
+            Arrays.fill(counts, touched[i] * FIELDS, touched[i] * FIELDS + FIELDS, 0);
+        }
+        touchedCount = 0;
+        bodyLength = 0;
+    }
+
+    // Counting sort of the body positions by term: afterwards the positions of a term
+    // with n body occurrences are positions[slot[id] - n .. slot[id]), ascending
+    private int[] groupBodyPositions() {
+        int offset = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int id = touched[i];
+            slot[id] = offset;
+            offset += counts[id * FIELDS + BODY];
+        }
+        int[] positions = new int[offset];
+        for (int position = 0; position < bodyLength; position++) {
+            int id = bodyIds[position];
+            if (id != STOP_WORD) positions[slot[id]++] = position;
+        }
+        return positions;
+    }
+
+    private void count(String text, int field) {
+        if (text == null || text.isEmpty()) return;
+        for (String token : tokenizer.tokenize(text)) {
+            int id = termId(token);
+            if (field == BODY) {
+                // Stop words and punctuation keep their position, so phrases match with their gaps
+                if (bodyLength == bodyIds.length) bodyIds = Arrays.copyOf(bodyIds, bodyLength * 2);
+                bodyIds[bodyLength++] = id;
+            }
+            if (id == STOP_WORD) continue;
+            int base = id * FIELDS;
+            if (counts[base] == 0 && counts[base + 1] == 0 && counts[base + 2] == 0 && counts[base + 3] == 0) {
+                if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                touched[touchedCount++] = id;
+            }
+            counts[base + field]++;
+        }
+    }
+
+    private int termId(String token) {
+        Integer cached = tokenCache.get(token);
+        if (cached != null) return cached;
+
+        int id = STOP_WORD;
+        String cleaned = Utils.CLEAN_PATTERN.matcher(token.toLowerCase()).replaceAll("");
+        if (!cleaned.isEmpty() && !Utils.STOP_WORDS.contains(cleaned)) {
+            String stemmed = stemmer.stem(cleaned);
+            Integer known = termIds.get(stemmed);
+            if (known == null) {
+                known = terms.size();
+                termIds.put(stemmed, known);
+                terms.add(stemmed);
+                if (terms.size() * FIELDS > counts.length) counts = Arrays.copyOf(counts, counts.length * 2);
+                if (terms.size() > slot.length) slot = Arrays.copyOf(slot, slot.length * 2);
+            }
+            id = known;
+        }
+        if (tokenCache.size() >= MAX_CACHED_TOKENS) tokenCache.clear(); // term ids stay valid
+        tokenCache.put(token, id);
+        return id;
+    }
+}
@@ -2,18 +2,33 @@ package Indexer;
 
 import Utils.Tokenizer;
 import Utils.WebDocument;
-import opennlp.tools.tokenize.TokenizerME;
 
+import java.util.List;
+
+// Indexes a slice of the batch into its own PartialIndex; documents must be sorted by id
 public class IndexerWorker implements Runnable {
-    WebDocument document;
-    TokenizerME tokenizer;
-    public IndexerWorker(WebDocument document, Tokenizer tokenizer) {
-        this.document = document;
-        this.tokenizer = tokenizer.getTokenizerME();
+    List<WebDocument> documents;
+    DocumentAnalyzer analyzer;
+    private final PartialIndex index = new PartialIndex();
+
+    public IndexerWorker(List<WebDocument> documents, Tokenizer tokenizer) {
+        this.documents = documents;
+        this.analyzer = new DocumentAnalyzer(tokenizer.getTokenizerME());
     }
+
+    public PartialIndex getIndex() {
+        return index;
+    }
+
     @Override
     public void run() {
-        System.out.println("indexing document: " + document.getId());
-        TextIndexer.indexDocument(document, tokenizer);
+        for (WebDocument document : documents) {
+            try {
+                TextIndexer.indexDocument(document, analyzer, index);
+            } catch (RuntimeException e) {
+                // e.g. an undecodable body: skip the page rather than fail the batch
+                System.err.println("Failed to index document " + document.getId() + ": " + e);
+            }
+        }
     }
 }
@@ -0,0 +1,49 @@
+package Indexer;
+
+import java.util.Collections;
+import java.util.List;
+
+// Decides which segments to merge. Segments are grouped into tiers by size: tier 0
+// holds everything up to floorBytes, and each further tier is mergeFactor times
+// larger. When mergeFactor adjacent segments share a tier they are merged into one
+// segment of the next tier, so each posting is rewritten about log(index size)
+// times. Only neighbours are merged, which keeps the newer-segment-wins order of
+// re-indexed documents intact. Segments that would grow past maxSegmentBytes are
+// left alone, which also keeps every mapped file under 2 GB.
+public class MergePolicy {
+    private final int mergeFactor;
+    private final long floorBytes;
+    private final long maxSegmentBytes;
+
+    public MergePolicy(int mergeFactor, long floorBytes, long maxSegmentBytes) {
+        this.mergeFactor = mergeFactor;
+        this.floorBytes = floorBytes;
+        this.maxSegmentBytes = maxSegmentBytes;
+    }
+
+    // segments oldest first; returns the newest run that qualifies (oldest first), or an empty list
+    public List<SegmentReader> findMerge(List<SegmentReader> segments) {
+        for (int start = segments.size() - mergeFactor; start >= 0; start--) {
+            int tier = tier(segments.get(start).sizeInBytes());
+            long total = 0;
+            boolean sameTier = true;
+            for (int i = start; i < start + mergeFactor && sameTier; i++) {
+                long size = segments.get(i).sizeInBytes();
+                sameTier = tier(size) == tier;
+                total += size;
+            }
+            if (sameTier && total <= maxSegmentBytes) {
+                return segments.subList(start, start + mergeFactor);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    int tier(long sizeInBytes) {
+        int tier = 0;
+        for (long limit = floorBytes; sizeInBytes > limit; limit *= mergeFactor) {
+            tier++;
+        }
+        return tier;
+    }
+}
@@ -0,0 +1,102 @@
+package Indexer;
+
+import Utils.Posting;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// Inverted index of the documents one IndexerWorker processed. It is confined to that
+// worker's thread, so adding a posting is a plain HashMap/ArrayList append, and a
+// document's postings are added once (its terms are already unique), so there is no
+// duplicate scan. Terms are pre-split into RANGES buckets by hash so the merge can
+// give each bucket to its own task without any locking.
+public class PartialIndex {
+    static final int RANGES = 64; // power of two
+
+    private final List<Map<String, List<Posting>>> ranges = new ArrayList<>(RANGES);
+    private String lastDocId; // documents must arrive in increasing id order
+
+    public PartialIndex() {
+        for (int i = 0; i < RANGES; i++) {
+            ranges.add(new HashMap<>());
+        }
+    }
+
+    static int rangeOf(String term) {
+        int h = term.hashCode();
+        return (h ^ (h >>> 16)) & (RANGES - 1);
+    }
+
+    // All postings of one document; docId must not be smaller than the previous one
+    public void addDocument(String docId, Map<String, Posting> postingsByTerm) {
+        if (lastDocId != null && docId.compareTo(lastDocId) < 0) {
+            throw new IllegalArgumentException("Documents out of order: " + docId + " after " + lastDocId);
+        }
+        lastDocId = docId;
+        for (Map.Entry<String, Posting> entry : postingsByTerm.entrySet()) {
+            String term = entry.getKey();
+            ranges.get(rangeOf(term)).computeIfAbsent(term, k -> new ArrayList<>()).add(entry.getValue());
+        }
+    }
+
+    // Merges the partial indexes range by range on the given pool. Every posting list
+    // in the result is sorted by docId; a document indexed by two workers keeps the
+    // posting of the later one.
+    public static Map<String, List<Posting>> merge(List<PartialIndex> parts, ExecutorService pool) throws Exception {
+        List<Future<Map<String, List<Posting>>>> merged = new ArrayList<>(RANGES);
+        for (int r = 0; r < RANGES; r++) {
+            final int range = r;
+            merged.add(pool.submit(() -> mergeRange(parts, range)));
+        }
+        Map<String, List<Posting>> index = new HashMap<>();
+        for (Future<Map<String, List<Posting>>> future : merged) {
+            index.putAll(future.get());
+        }
+        return index;
+    }
+
+    private static Map<String, List<Posting>> mergeRange(List<PartialIndex> parts, int range) {
+        Map<String, List<List<Posting>>> listsByTerm = new HashMap<>();
+        for (PartialIndex part : parts) {
+            for (Map.Entry<String, List<Posting>> entry : part.ranges.get(range).entrySet()) {
+                listsByTerm.computeIfAbsent(entry.getKey(), k -> new ArrayList<>(parts.size())).add(entry.getValue());
+            }
+        }
+        Map<String, List<Posting>> out = new HashMap<>(listsByTerm.size() * 2);
+        for (Map.Entry<String, List<List<Posting>>> entry : listsByTerm.entrySet()) {
+            List<List<Posting>> lists = entry.getValue();
+            out.put(entry.getKey(), lists.size() == 1 ? lists.get(0) : mergeSorted(lists));
+        }
+        return out;
+    }
+
+    // k-way merge of docId-sorted lists; k is the worker count, so picking the smallest
+    // head by a linear scan beats a heap
+    static List<Posting> mergeSorted(List<List<Posting>> lists) {
+        int total = 0;
+        for (List<Posting> list : lists) total += list.size();
+        List<Posting> out = new ArrayList<>(total);
+        int[] cursor = new int[lists.size()];
+        while (true) {
+            int best = -1;
+            String bestId = null;
+            for (int i = 0; i < lists.size(); i++) {
+                if (cursor[i] >= lists.get(i).size()) continue;
+                String id = lists.get(i).get(cursor[i]).getDocId();
+                if (best < 0 || id.compareTo(bestId) < 0) {
+                    best = i;
+                    bestId = id;
+                }
+            }
+            if (best < 0) return out;
+            Posting next = lists.get(best).get(cursor[best]++);
+            int last = out.size() - 1;
+            if (last >= 0 && out.get(last).getDocId().equals(bestId)) {
+                out.set(last, next); // same document indexed twice
+            } else {
+                out.add(next);
+            }
+        }
+    }
+}
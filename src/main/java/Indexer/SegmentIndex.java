@@ -0,0 +1,464 @@
+package Indexer;
+
+import Utils.Posting;
+import Utils.PostingsSource;
+import dbManager.dbManager;
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Inverted index kept as immutable segments in a local directory (INDEX_DIR).
+// TextIndexer writes one segment per batch; a background thread merges them as
+// MergePolicy decides. Query processing reads them through SegmentReader's memory
+// maps, so looking up a term is a local read instead of a MongoDB round trip.
+// Documents are numbered once for the whole index (DocIdMap); ObjectId strings are
+// only produced for the postings a query actually returns.
+//
+// A segment is named seg_<first>_<last> after the range of batch generations it
+// holds. When a document is indexed again, the copy in the newest segment wins and
+// older copies are masked. A merged segment replaces the segments whose range it
+// covers; those are deleted, or just ignored while a reader still has them mapped.
+//
+// Pages indexed into MongoDB before INDEX_DIR was set are backfilled by TextIndexer;
+// the backfill file records how far it got. The read-only (query) side never creates
+// or writes anything in the directory.
+public class SegmentIndex implements PostingsSource, Closeable {
+    private static final String SEGMENT_PREFIX = "seg_";
+    private static final String TEMP_PREFIX = ".tmp_";
+    private static final String DOC_IDS = "docids.dat";
+    private static final String BACKFILL = "backfill";
+    private static final String BACKFILL_DONE = "done";
+    private static final long REFRESH_INTERVAL_MS = 10_000; // read-only side: picks up new segments
+    private static final int MERGE_FACTOR = 10;
+    private static final long MERGE_FLOOR_BYTES = 1L << 20;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final Path dir;
+    private final boolean writable;
+    private final DocIdMap docIds;
+    private final MergePolicy mergePolicy = new MergePolicy(MERGE_FACTOR, MERGE_FLOOR_BYTES, MAX_SEGMENT_BYTES);
+    private final ExecutorService merger;
+    private final AtomicLong nextGeneration = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(new SegmentReader[0], new int[0]);
+    private volatile long lastRefresh = 0;
+    private long maxGenerationSeen = -1;
+
+    // The open segments, oldest first, and for every doc id the segment holding its
+    // newest copy (-1 if none)
+    private static class Snapshot {
+        final SegmentReader[] segments;
+        final int[] owner;
+
+        Snapshot(SegmentReader[] segments, int[] owner) {
+            this.segments = segments;
+            this.owner = owner;
+        }
+
+        boolean isLive(int segment, int doc) {
+            return owner[doc] == segment;
+        }
+    }
+
+    // Position of a merge in one segment's term dictionary
+    private static class Head {
+        final int segment;
+        int term;
+        String text;
+
+        Head(int segment, int term, String text) {
+            this.segment = segment;
+            this.term = term;
+            this.text = text;
+        }
+    }
+
+    private static class MergedPosting {
+        final int doc;
+        final int title, h1, h2, body;
+        final byte[] positions;
+
+        MergedPosting(int doc, int title, int h1, int h2, int body, byte[] positions) {
+            this.doc = doc;
+            this.title = title;
+            this.h1 = h1;
+            this.h2 = h2;
+            this.body = body;
+            this.positions = positions;
+        }
+    }
+
+    public SegmentIndex(Path dir, boolean writable) throws IOException {
+        this.dir = dir;
+        this.writable = writable;
+        if (writable) {
+            Files.createDirectories(dir);
+        }
+        docIds = new DocIdMap(dir.resolve(DOC_IDS), writable);
+        if (writable) {
+            try (DirectoryStream<Path> temps = Files.newDirectoryStream(dir, TEMP_PREFIX + "*")) {
+                for (Path temp : temps) { // left by a crash
+                    if (Files.isDirectory(temp)) SegmentWriter.deleteDirectory(temp);
+                    else Files.deleteIfExists(temp);
+                }
+            }
+            merger = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "segment-merger");
+                t.setDaemon(true);
+                return t;
+            });
+        } else {
+            merger = null;
+        }
+        refresh();
+        nextGeneration.set(maxGenerationSeen + 1);
+        System.out.println("Segment index: " + snapshot.segments.length + " segments, "
+                + docIds.size() + " documents in " + dir);
+    }
+
+    // INDEX_DIR from the environment or .env, null when the segment index is not used
+    public static Path configuredDir() {
+        String value = Dotenv.configure().ignoreIfMissing().load().get("INDEX_DIR");
+        return value == null || value.isBlank() ? null : Paths.get(value.trim());
+    }
+
+    // The segment index when INDEX_DIR is set, otherwise the MongoDB tokens collection
+    public static PostingsSource configuredSource(dbManager db) throws IOException {
+        Path dir = configuredDir();
+        return dir == null ? db : new SegmentIndex(dir, false);
+    }
+
+    // Writes one batch as a new segment
+    public void addBatch(Collection<String> batchDocIds, Map<String, List<Posting>> index) throws IOException {
+        List<String> documents = new ArrayList<>(batchDocIds);
+        Collections.sort(documents); // new documents get ids in ObjectId order
+        int[] ids = docIds.assign(documents);
+        Map<String, Integer> idOf = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) idOf.put(documents.get(i), ids[i]);
+
+        long generation = nextGeneration.getAndIncrement();
+        String name = segmentName(generation, generation);
+        List<String> terms = new ArrayList<>(index.keySet());
+        Collections.sort(terms);
+
+        try (SegmentWriter writer = new SegmentWriter(dir.resolve(TEMP_PREFIX + name), dir.resolve(name), ids)) {
+            List<Posting> sorted = new ArrayList<>();
+            for (String term : terms) {
+                sorted.clear();
+                sorted.addAll(index.get(term));
+                // documents indexed before keep their old, smaller ids
+                sorted.sort(Comparator.comparingInt(p -> idOf.get(p.getDocId())));
+                writer.startTerm(term);
+                for (Posting posting : sorted) {
+                    writer.addPosting(idOf.get(posting.getDocId()), posting.getFrequency("title"), posting.getFrequency("h1"),
+                            posting.getFrequency("h2"), posting.getFrequency("body"), posting.getPositions());
+                }
+            }
+            writer.finish();
+        }
+        refresh();
+        System.out.println("Wrote segment " + name + ": " + ids.length + " documents, " + terms.size() + " terms");
+        merger.execute(this::mergeWhileNeeded);
+    }
+
+    // Re-reads the directory: opens new segments, drops the ones a merge replaced
+    public synchronized void refresh() throws IOException {
+        if (!writable) {
+            docIds.reload(); // before the segments, which may use the new ids
+        }
+        Map<Path, SegmentReader> open = new HashMap<>();
+        for (SegmentReader segment : snapshot.segments) open.put(segment.dir, segment);
+
+        List<long[]> ranges = new ArrayList<>();
+        List<Path> dirs = new ArrayList<>();
+        try (DirectoryStream<Path> found = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*")) {
+            for (Path path : found) {
+                long[] range = parseName(path.getFileName().toString());
+                if (range != null) {
+                    ranges.add(range);
+                    dirs.add(path);
+                    maxGenerationSeen = Math.max(maxGenerationSeen, range[1]);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // query side started before the indexer created the directory: no segments yet
+        }
+
+        List<SegmentReader> readers = new ArrayList<>();
+        for (int i = 0; i < dirs.size(); i++) {
+            if (isReplaced(ranges.get(i), ranges)) {
+                if (writable) deleteQuietly(dirs.get(i));
+                continue;
+            }
+            SegmentReader reader = open.get(dirs.get(i));
+            if (reader == null) {
+                try {
+                    reader = new SegmentReader(dirs.get(i), ranges.get(i)[0], ranges.get(i)[1]);
+                } catch (IOException e) {
+                    System.err.println("Skipping unreadable segment " + dirs.get(i) + ": " + e.getMessage());
+                    continue;
+                }
+            }
+            readers.add(reader);
+        }
+        readers.sort(Comparator.comparingLong(r -> r.maxGeneration));
+
+        // Oldest to newest, so every document ends up owned by its newest segment
+        int[] owner = new int[docIds.size()];
+        Arrays.fill(owner, -1);
+        for (int s = 0; s < readers.size(); s++) {
+            SegmentReader reader = readers.get(s);
+            for (int ord = 0; ord < reader.docCount(); ord++) {
+                owner[reader.doc(ord)] = s;
+            }
+        }
+        snapshot = new Snapshot(readers.toArray(new SegmentReader[0]), owner);
+        lastRefresh = System.currentTimeMillis();
+    }
+
+    @Override
+    public Set<String> getDocIdsForTokens(List<String> tokens, boolean intersect) {
+        Snapshot current = current();
+        Set<String> docIdSet = new HashSet<>();
+        for (String token : tokens) {
+            Set<String> found = null;
+            for (int s = 0; s < current.segments.length; s++) {
+                int term = current.segments[s].findTerm(token);
+                if (term < 0) continue;
+                if (found == null) found = new HashSet<>();
+                SegmentReader.Postings postings = current.segments[s].postings(term);
+                while (postings.next()) {
+                    if (current.isLive(s, postings.doc())) found.add(docIds.docId(postings.doc()));
+                }
+            }
+            if (found == null) continue; // unknown token, same as a missing tokens document
+            if (intersect && !docIdSet.isEmpty()) {
+                docIdSet.retainAll(found);
+            } else {
+                docIdSet.addAll(found);
+            }
+        }
+        return docIdSet;
+    }
+
+    @Override
+    public Map<String, List<Posting>> getPostingsForTokens(List<String> tokens, Set<String> docIdSet) {
+        Snapshot current = current();
+        int[] candidates = toDocs(docIdSet);
+        Map<String, List<Posting>> tokenToPostings = new HashMap<>();
+        for (String token : tokens) {
+            for (int s = 0; s < current.segments.length; s++) {
+                int term = current.segments[s].findTerm(token);
+                if (term < 0) continue;
+                List<Posting> list = tokenToPostings.computeIfAbsent(token, k -> new ArrayList<>());
+                SegmentReader.Postings postings = current.segments[s].postings(term);
+                for (int i = 0; i < candidates.length && postings.advance(candidates[i]); ) {
+                    int doc = postings.doc();
+                    if (doc == candidates[i]) {
+                        if (current.isLive(s, doc)) {
+                            list.add(new Posting(docIds.docId(doc), postings.title(), postings.h1(), postings.h2(), postings.body()));
+                        }
+                        i++;
+                    } else {
+                        i = SegmentReader.lowerBound(candidates, i, doc);
+                    }
+                }
+            }
+        }
+        return tokenToPostings;
+    }
+
+    @Override
+    public Map<String, Map<String, byte[]>> getPositionsForTokens(Collection<String> tokens, Set<String> docIdSet) {
+        Snapshot current = current();
+        int[] candidates = toDocs(docIdSet);
+        Map<String, Map<String, byte[]>> result = new HashMap<>();
+        for (String token : tokens) {
+            for (int s = 0; s < current.segments.length; s++) {
+                int term = current.segments[s].findTerm(token);
+                if (term < 0) continue;
+                Map<String, byte[]> byDoc = result.computeIfAbsent(token, k -> new HashMap<>());
+                SegmentReader.Postings postings = current.segments[s].postings(term);
+                for (int i = 0; i < candidates.length && postings.advance(candidates[i]); ) {
+                    int doc = postings.doc();
+                    if (doc == candidates[i]) {
+                        if (current.isLive(s, doc)) byDoc.put(docIds.docId(doc), postings.positions());
+                        i++;
+                    } else {
+                        i = SegmentReader.lowerBound(candidates, i, doc);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // Last page the backfill covered: null once it is complete, "" before it started
+    public String backfillPosition() throws IOException {
+        Path file = dir.resolve(BACKFILL);
+        if (!Files.exists(file)) return "";
+        String position = Files.readString(file).trim();
+        return position.equals(BACKFILL_DONE) ? null : position;
+    }
+
+    // Called after the segment holding every page up to lastDocId was written
+    public void saveBackfillPosition(String lastDocId) throws IOException {
+        Path temp = dir.resolve(TEMP_PREFIX + BACKFILL);
+        Files.writeString(temp, lastDocId);
+        Files.move(temp, dir.resolve(BACKFILL), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void finishBackfill() throws IOException {
+        saveBackfillPosition(BACKFILL_DONE);
+    }
+
+    // Waits for a running merge; segments stay on disk for the next run
+    @Override
+    public void close() {
+        if (merger == null) return;
+        merger.shutdown();
+        try {
+            if (!merger.awaitTermination(10, TimeUnit.MINUTES)) {
+                System.err.println("Segment merge still running, abandoning it");
+                merger.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            merger.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Snapshot current() {
+        if (!writable && System.currentTimeMillis() - lastRefresh > REFRESH_INTERVAL_MS) {
+            try {
+                refresh();
+            } catch (IOException e) {
+                System.err.println("Failed to refresh segment index: " + e.getMessage());
+            }
+        }
+        return snapshot;
+    }
+
+    // Sorted doc ids of the given documents, leaving out those never indexed into a segment
+    private int[] toDocs(Set<String> documents) {
+        int[] docs = new int[documents.size()];
+        int n = 0;
+        for (String document : documents) {
+            int doc = docIds.lookup(document);
+            if (doc >= 0) docs[n++] = doc;
+        }
+        docs = Arrays.copyOf(docs, n);
+        Arrays.sort(docs);
+        return docs;
+    }
+
+    private void mergeWhileNeeded() {
+        try {
+            while (true) {
+                Snapshot current = snapshot;
+                List<SegmentReader> run = mergePolicy.findMerge(Arrays.asList(current.segments));
+                if (run.isEmpty()) return;
+                merge(current, Arrays.asList(current.segments).indexOf(run.get(0)), run.size());
+                refresh();
+            }
+        } catch (Exception e) {
+            System.err.println("Segment merge failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Rewrites count adjacent segments as one, leaving out superseded documents
+    private void merge(Snapshot current, int first, int count) throws IOException {
+        long start = System.currentTimeMillis();
+        SegmentReader[] run = Arrays.copyOfRange(current.segments, first, first + count);
+        String name = segmentName(run[0].minGeneration, run[count - 1].maxGeneration);
+
+        int liveDocs = 0;
+        int[] docs = new int[0];
+        for (int r = 0; r < count; r++) {
+            docs = Arrays.copyOf(docs, liveDocs + run[r].docCount());
+            for (int ord = 0; ord < run[r].docCount(); ord++) {
+                if (current.isLive(first + r, run[r].doc(ord))) docs[liveDocs++] = run[r].doc(ord);
+            }
+        }
+        docs = Arrays.copyOf(docs, liveDocs);
+
+        // k-way merge of the sorted term dictionaries
+        PriorityQueue<Head> heads = new PriorityQueue<>((a, b) -> a.text.compareTo(b.text));
+        for (int r = 0; r < count; r++) {
+            if (run[r].termCount() > 0) heads.add(new Head(r, 0, run[r].term(0)));
+        }
+
+        int termCount = 0;
+        try (SegmentWriter writer = new SegmentWriter(dir.resolve(TEMP_PREFIX + name), dir.resolve(name), docs)) {
+            List<MergedPosting> postings = new ArrayList<>();
+            while (!heads.isEmpty()) {
+                String term = heads.peek().text;
+                postings.clear();
+                while (!heads.isEmpty() && heads.peek().text.equals(term)) {
+                    Head head = heads.poll();
+                    SegmentReader.Postings source = run[head.segment].postings(head.term);
+                    while (source.next()) {
+                        if (current.isLive(first + head.segment, source.doc())) {
+                            postings.add(new MergedPosting(source.doc(), source.title(), source.h1(), source.h2(),
+                                    source.body(), source.positions()));
+                        }
+                    }
+                    if (++head.term < run[head.segment].termCount()) {
+                        head.text = run[head.segment].term(head.term);
+                        heads.add(head);
+                    }
+                }
+                if (postings.isEmpty()) continue; // only superseded documents had the term
+                postings.sort(Comparator.comparingInt(p -> p.doc));
+                writer.startTerm(term);
+                for (MergedPosting posting : postings) {
+                    writer.addPosting(posting.doc, posting.title, posting.h1, posting.h2, posting.body, posting.positions);
+                }
+                termCount++;
+            }
+            writer.finish();
+        }
+        System.out.printf("Merged %d segments into %s: %d documents, %d terms in %.2f seconds%n",
+                count, name, liveDocs, termCount, (System.currentTimeMillis() - start) / 1000.0);
+    }
+
+    private static String segmentName(long first, long last) {
+        return String.format("%s%010d_%010d", SEGMENT_PREFIX, first, last);
+    }
+
+    private static long[] parseName(String name) {
+        String[] parts = name.substring(SEGMENT_PREFIX.length()).split("_");
+        if (parts.length != 2) return null;
+        try {
+            return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // A range inside a wider one belongs to segments that were merged
+    private static boolean isReplaced(long[] range, List<long[]> ranges) {
+        for (long[] other : ranges) {
+            if (other != range && other[0] <= range[0] && range[1] <= other[1]
+                    && (other[0] != range[0] || other[1] != range[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void deleteQuietly(Path segment) {
+        try {
+            SegmentWriter.deleteDirectory(segment);
+        } catch (IOException e) {
+            // still mapped somewhere (Windows); retried on the next refresh
+        }
+    }
+}
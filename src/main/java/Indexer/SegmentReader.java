@@ -0,0 +1,261 @@
+package Indexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read side of a segment written by SegmentWriter. The term dictionary, postings and
+// positions are memory-mapped: a term lookup is a binary search over the mapped
+// dictionary and postings are decoded straight from the mapped files, one block at
+// a time. Only absolute reads are used, so one reader can be shared by any number
+// of threads (each with its own Postings).
+public class SegmentReader {
+    final Path dir;
+    final long minGeneration;
+    final long maxGeneration;
+    private final int[] docs; // global doc ids, ascending
+    private final MappedByteBuffer termIndex;
+    private final MappedByteBuffer terms;
+    private final MappedByteBuffer postings;
+    private final MappedByteBuffer positions;
+    private final int termCount;
+    private final long sizeInBytes;
+
+    public SegmentReader(Path dir, long minGeneration, long maxGeneration) throws IOException {
+        this.dir = dir;
+        this.minGeneration = minGeneration;
+        this.maxGeneration = maxGeneration;
+
+        ByteBuffer docsFile = ByteBuffer.wrap(Files.readAllBytes(dir.resolve(SegmentWriter.DOCS)));
+        if (docsFile.getInt() != SegmentWriter.FORMAT) {
+            throw new IOException("Unsupported segment format, rebuild the index");
+        }
+        docs = new int[docsFile.getInt()];
+        BlockCodec.Input in = new BlockCodec.Input(docsFile, 8);
+        int doc = -1;
+        for (int i = 0; i < docs.length; i++) {
+            doc += in.readVarInt();
+            docs[i] = doc;
+        }
+
+        termIndex = map(dir.resolve(SegmentWriter.TERMS_INDEX));
+        terms = map(dir.resolve(SegmentWriter.TERMS));
+        postings = map(dir.resolve(SegmentWriter.POSTINGS));
+        positions = map(dir.resolve(SegmentWriter.POSITIONS));
+        termCount = termIndex.getInt(0);
+        sizeInBytes = docsFile.capacity() + termIndex.capacity() + terms.capacity() + postings.capacity() + positions.capacity();
+    }
+
+    public int docCount() {
+        return docs.length;
+    }
+
+    // Global id of the segment's ord-th document
+    public int doc(int ord) {
+        return docs[ord];
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public String term(int index) {
+        int entry = entryOffset(index);
+        byte[] bytes = new byte[terms.getShort(entry)];
+        terms.get(entry + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Index of the term in the dictionary, -1 if the segment doesn't contain it
+    public int findTerm(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int low = 0, high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareTerm(mid, key);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    public Postings postings(int index) {
+        return new Postings(index);
+    }
+
+    // Iterator over one term's postings. next() walks them in doc id order; advance()
+    // uses the skip table to jump over whole blocks without decoding them.
+    public class Postings {
+        private final int docFreq;
+        private final int[] blockLastDoc;
+        private final int[] blockOffset;          // in postings.dat
+        private final int[] blockPositionsOffset; // in positions.dat
+        private int block = -1;
+        private int blockCount = 0; // postings in the decoded block
+        private int index = 0;      // current posting within it, -1 before the first
+        private final int[] blockDocs = new int[BlockCodec.BLOCK_SIZE];
+        private final int[][] blockFreqs = new int[BlockCodec.BLOCK_SIZE][4];
+        private final int[] blockPositionsStart = new int[BlockCodec.BLOCK_SIZE];
+        private final int[] blockPositionsLength = new int[BlockCodec.BLOCK_SIZE];
+        private boolean exhausted = false;
+
+        Postings(int termIndex) {
+            int entry = entryOffset(termIndex);
+            int afterTerm = entry + 2 + terms.getShort(entry);
+            int start = (int) terms.getLong(afterTerm);
+            int positionsStart = (int) terms.getLong(afterTerm + 12);
+            docFreq = terms.getInt(afterTerm + 20);
+
+            int blocks = (docFreq + BlockCodec.BLOCK_SIZE - 1) / BlockCodec.BLOCK_SIZE;
+            blockLastDoc = new int[blocks];
+            blockOffset = new int[blocks];
+            blockPositionsOffset = new int[blocks];
+            int[] blockLength = new int[blocks];
+            int[] positionsLength = new int[blocks];
+            BlockCodec.Input in = new BlockCodec.Input(postings, start);
+            int doc = -1;
+            for (int b = 0; b < blocks; b++) {
+                doc += in.readVarInt();
+                blockLastDoc[b] = doc;
+                blockLength[b] = in.readVarInt();
+                positionsLength[b] = in.readVarInt();
+            }
+            int offset = in.position, positionsOffset = positionsStart;
+            for (int b = 0; b < blocks; b++) {
+                blockOffset[b] = offset;
+                blockPositionsOffset[b] = positionsOffset;
+                offset += blockLength[b];
+                positionsOffset += positionsLength[b];
+            }
+        }
+
+        public int docFreq() {
+            return docFreq;
+        }
+
+        // Moves to the next posting, false at the end
+        public boolean next() {
+            if (exhausted) return false;
+            if (block >= 0 && index + 1 < blockCount) {
+                index++;
+                return true;
+            }
+            if (block + 1 >= blockLastDoc.length) {
+                exhausted = true;
+                return false;
+            }
+            decode(block + 1);
+            return true;
+        }
+
+        // Moves to the first posting with doc >= target, false if there is none. Doesn't
+        // move back: if the current posting is already at or past target it stays.
+        public boolean advance(int target) {
+            if (exhausted) return false;
+            if (block >= 0 && blockDocs[index] >= target) return true;
+            if (block < 0 || blockLastDoc[block] < target) {
+                int b = lowerBound(blockLastDoc, block + 1, target);
+                if (b == blockLastDoc.length) {
+                    exhausted = true;
+                    return false;
+                }
+                decode(b);
+            }
+            while (blockDocs[index] < target) index++; // the block's last doc is >= target
+            return true;
+        }
+
+        public int doc() {
+            return blockDocs[index];
+        }
+
+        public int title() {
+            return blockFreqs[index][0];
+        }
+
+        public int h1() {
+            return blockFreqs[index][1];
+        }
+
+        public int h2() {
+            return blockFreqs[index][2];
+        }
+
+        public int body() {
+            return blockFreqs[index][3];
+        }
+
+        // PositionCodec bytes of the current posting, null if they weren't recorded
+        public byte[] positions() {
+            if (blockPositionsLength[index] < 0) return null;
+            byte[] bytes = new byte[blockPositionsLength[index]];
+            positions.get(blockPositionsStart[index], bytes);
+            return bytes;
+        }
+
+        private void decode(int b) {
+            block = b;
+            blockCount = Math.min(BlockCodec.BLOCK_SIZE, docFreq - b * BlockCodec.BLOCK_SIZE);
+            BlockCodec.Input in = new BlockCodec.Input(postings, blockOffset[b]);
+            BlockCodec.readGaps(in, blockDocs, blockCount);
+            int doc = b == 0 ? -1 : blockLastDoc[b - 1];
+            for (int i = 0; i < blockCount; i++) {
+                doc += blockDocs[i];
+                blockDocs[i] = doc;
+            }
+            for (int i = 0; i < blockCount; i++) {
+                BlockCodec.readFreqs(in, blockFreqs[i]);
+            }
+            int position = blockPositionsOffset[b];
+            for (int i = 0; i < blockCount; i++) {
+                int length = in.readVarInt() - 1;
+                blockPositionsStart[i] = position;
+                blockPositionsLength[i] = length;
+                if (length > 0) position += length;
+            }
+            index = 0;
+        }
+    }
+
+    // First index >= from whose value is >= target, values.length if there is none
+    static int lowerBound(int[] values, int from, int target) {
+        int low = from, high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < target) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private int entryOffset(int index) {
+        return (int) termIndex.getLong(4 + 8 * index);
+    }
+
+    private int compareTerm(int index, byte[] key) {
+        int entry = entryOffset(index);
+        int length = terms.getShort(entry);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(terms.get(entry + 2 + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) return cmp;
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after close
+        }
+    }
+}
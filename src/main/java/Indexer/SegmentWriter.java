@@ -0,0 +1,201 @@
+package Indexer;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Writes one immutable index segment:
+//   docs.dat       FORMAT, count, then the global ids (DocIdMap) of its documents as
+//                  ascending varint gaps
+//   terms.idx      int count, then the offset of each term's entry in terms.dat
+//   terms.dat      per term: short length, UTF-8 bytes, long postings offset,
+//                  int postings length, long positions offset, int document frequency
+//   postings.dat   per term: a skip table with, per block of BLOCK_SIZE documents, the
+//                  varint gap to its last doc id, its byte length and the byte length
+//                  of its positions; then the blocks. A block holds the doc id gaps
+//                  (BlockCodec), the packed field frequencies, and per document the
+//                  length + 1 of its positions (0 = not recorded).
+//   positions.dat  PositionCodec bytes, block after block
+// Terms must come in ascending byte order, and the postings of a term in ascending
+// doc id order. Everything is written to a temporary directory that finish() renames
+// into place, so readers never see half a segment.
+public class SegmentWriter implements Closeable {
+    static final int FORMAT = 0x53454732; // "SEG2"
+    static final String DOCS = "docs.dat";
+    static final String TERMS_INDEX = "terms.idx";
+    static final String TERMS = "terms.dat";
+    static final String POSTINGS = "postings.dat";
+    static final String POSITIONS = "positions.dat";
+    static final int DOC_ID_BYTES = 12;
+
+    private final Path temp;
+    private final Path target;
+    private final int[] docs;
+    private final DataOutputStream terms;
+    private final DataOutputStream postings;
+    private final DataOutputStream positions;
+    private long[] termOffsets = new long[1024];
+    private int termCount = 0;
+    private long termsBytes = 0;
+    private long postingsBytes = 0;
+    private long positionsBytes = 0;
+
+    // postings of the term being written
+    private byte[] term;
+    private byte[] previousTerm;
+    private int termDocs = 0;
+    private int[] docIds = new int[BlockCodec.BLOCK_SIZE];
+    private int[][] freqs = new int[4][BlockCodec.BLOCK_SIZE];
+    private byte[][] termPositions = new byte[BlockCodec.BLOCK_SIZE][];
+    private boolean finished = false;
+
+    public SegmentWriter(Path temp, Path target, int[] docs) throws IOException {
+        this.temp = temp;
+        this.target = target;
+        this.docs = docs.clone();
+        Arrays.sort(this.docs);
+        Files.createDirectories(temp);
+        terms = open(temp.resolve(TERMS));
+        postings = open(temp.resolve(POSTINGS));
+        positions = open(temp.resolve(POSITIONS));
+    }
+
+    public void startTerm(String text) throws IOException {
+        finishTerm();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (previousTerm != null && Arrays.compareUnsigned(previousTerm, bytes) >= 0) {
+            throw new IllegalArgumentException("Terms out of order: " + text);
+        }
+        term = bytes;
+        termDocs = 0;
+    }
+
+    public void addPosting(int doc, int title, int h1, int h2, int body, byte[] docPositions) {
+        if ((termDocs > 0 && doc <= docIds[termDocs - 1]) || Arrays.binarySearch(docs, doc) < 0) {
+            throw new IllegalArgumentException("Posting for doc " + doc + " is not in the segment or out of order");
+        }
+        if (termDocs == docIds.length) {
+            docIds = Arrays.copyOf(docIds, termDocs * 2);
+            for (int f = 0; f < 4; f++) freqs[f] = Arrays.copyOf(freqs[f], termDocs * 2);
+            termPositions = Arrays.copyOf(termPositions, termDocs * 2);
+        }
+        docIds[termDocs] = doc;
+        freqs[0][termDocs] = title;
+        freqs[1][termDocs] = h1;
+        freqs[2][termDocs] = h2;
+        freqs[3][termDocs] = body;
+        termPositions[termDocs] = docPositions;
+        termDocs++;
+    }
+
+    // Closes the files and moves the segment into place
+    public void finish() throws IOException {
+        finishTerm();
+        terms.close();
+        postings.close();
+        positions.close();
+
+        try (DataOutputStream out = open(temp.resolve(TERMS_INDEX))) {
+            out.writeInt(termCount);
+            for (int i = 0; i < termCount; i++) {
+                out.writeLong(termOffsets[i]);
+            }
+        }
+        try (DataOutputStream out = open(temp.resolve(DOCS))) {
+            out.writeInt(FORMAT);
+            out.writeInt(docs.length);
+            int previous = -1;
+            for (int doc : docs) {
+                BlockCodec.writeVarInt(out, doc - previous);
+                previous = doc;
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (finished) return;
+        terms.close();
+        postings.close();
+        positions.close();
+        deleteDirectory(temp);
+    }
+
+    private void finishTerm() throws IOException {
+        if (term == null) return;
+        int blocks = (termDocs + BlockCodec.BLOCK_SIZE - 1) / BlockCodec.BLOCK_SIZE;
+        ByteArrayOutputStream skips = new ByteArrayOutputStream();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream skipOut = new DataOutputStream(skips);
+        DataOutputStream dataOut = new DataOutputStream(data);
+        long positionsStart = positionsBytes;
+        int[] gaps = new int[BlockCodec.BLOCK_SIZE];
+        int previousDoc = -1;
+
+        for (int block = 0; block < blocks; block++) {
+            int from = block * BlockCodec.BLOCK_SIZE;
+            int count = Math.min(BlockCodec.BLOCK_SIZE, termDocs - from);
+            int before = data.size();
+            int blockPositions = 0;
+
+            for (int i = 0; i < count; i++) {
+                gaps[i] = docIds[from + i] - (i == 0 ? previousDoc : docIds[from + i - 1]);
+            }
+            BlockCodec.writeGaps(dataOut, gaps, count);
+            for (int i = from; i < from + count; i++) {
+                BlockCodec.writeFreqs(dataOut, freqs[0][i], freqs[1][i], freqs[2][i], freqs[3][i]);
+            }
+            for (int i = from; i < from + count; i++) {
+                byte[] docPositions = termPositions[i];
+                BlockCodec.writeVarInt(dataOut, docPositions == null ? 0 : docPositions.length + 1);
+                if (docPositions != null) {
+                    positions.write(docPositions);
+                    blockPositions += docPositions.length;
+                }
+                termPositions[i] = null;
+            }
+
+            int lastDoc = docIds[from + count - 1];
+            BlockCodec.writeVarInt(skipOut, lastDoc - previousDoc);
+            BlockCodec.writeVarInt(skipOut, data.size() - before);
+            BlockCodec.writeVarInt(skipOut, blockPositions);
+            previousDoc = lastDoc;
+            positionsBytes += blockPositions;
+        }
+
+        long postingsStart = postingsBytes;
+        skips.writeTo(postings);
+        data.writeTo(postings);
+        postingsBytes += skips.size() + data.size();
+        if (postingsBytes > Integer.MAX_VALUE || positionsBytes > Integer.MAX_VALUE) {
+            throw new IOException("Segment files exceed 2 GB"); // can't be mapped
+        }
+
+        if (termCount == termOffsets.length) termOffsets = Arrays.copyOf(termOffsets, termCount * 2);
+        termOffsets[termCount++] = termsBytes;
+        terms.writeShort(term.length);
+        terms.write(term);
+        terms.writeLong(postingsStart);
+        terms.writeInt((int) (postingsBytes - postingsStart));
+        terms.writeLong(positionsStart);
+        terms.writeInt(termDocs);
+        termsBytes += 2 + term.length + 8 + 4 + 8 + 4;
+        previousTerm = term;
+        term = null;
+    }
+
+    private static DataOutputStream open(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    }
+
+    static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(dir);
+    }
+}
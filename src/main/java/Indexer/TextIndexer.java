@@ -1,132 +1,53 @@
 package Indexer;
 
-import Utils.Utils;
 import Utils.Tokenizer;
 import Utils.WebDocument;
 import dbManager.dbManager;
-import opennlp.tools.stemmer.PorterStemmer;
-import opennlp.tools.tokenize.TokenizerME;
 import Utils.Posting;
+import org.bson.types.ObjectId;
 
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
 
 public class TextIndexer implements IndexerInterface {
     // Keeping static variables as in original code
-    private static ConcurrentHashMap<String, List<Posting>> invertedIndex;
+    private static Map<String, List<Posting>> invertedIndex; // merged from the workers' partial indexes
     private static ConcurrentHashMap<String, WebDocument> indexedDocuments;
     private static ConcurrentHashMap<String, WebDocument> unindexedDocs;
     private static Tokenizer tokenizer;
     private final dbManager dbManager;
+    private final SegmentIndex segments; // null unless INDEX_DIR is set
     private static final int numThreads = 9;
     private static final int batchSize = 200;
 
     public TextIndexer() throws Exception {
-        invertedIndex = new ConcurrentHashMap<>();
+        invertedIndex = new HashMap<>();
         indexedDocuments = new ConcurrentHashMap<>();
         tokenizer = new Tokenizer();
         dbManager = new dbManager();
+        Path indexDir = SegmentIndex.configuredDir();
+        segments = indexDir == null ? null : new SegmentIndex(indexDir, true);
         unindexedDocs = dbManager.getNonIndexedDocuments(batchSize, false);
     }
 
-    public static void indexDocument(WebDocument document, TokenizerME tokenizer) {
+    // Adds the document's postings to index; analyzer and index belong to the calling worker
+    public static void indexDocument(WebDocument document, DocumentAnalyzer analyzer, PartialIndex index) {
+        // Registered first: a page that fails to analyze is still marked indexed, so it
+        // can't hold back every later run
         indexedDocuments.put(document.getId(), document);
-        String soup = document.getSoupedContent();
-        String title = document.getTitle();
-        List<String> H1s = document.getH1s();
-        List<String> H2s = document.getH2s();
-        // TODO Remove
-        String[] tokens = tokenizer.tokenize(soup);
-
-        // Initialize stemmer
-        PorterStemmer stemmer = new PorterStemmer();
-
-        // Process each component to get stemmed tokens
-        List<String> titleStemmedTokens = processText(title, tokenizer, stemmer);
-        List<String> h1StemmedTokens = processTextList(H1s, tokenizer, stemmer);
-        List<String> h2StemmedTokens = processTextList(H2s, tokenizer, stemmer);
-
-
-        Map<String, Map<String, Integer>> freqs = new HashMap<>();
-        int count = 0;
-        for (String token : tokens) {
-            // Clean token using regex
-            // TODO: check this regex
-            String cleaned = Utils.CLEAN_PATTERN.matcher(token.toLowerCase()).replaceAll("");
-            if (cleaned.isEmpty() || Utils.STOP_WORDS.contains(cleaned)) {
-                continue;
-            }
-
-            // Stem token
-            String stemmed = stemmer.stem(cleaned);
-
-            Map<String, Integer> postingFreqs = freqs.computeIfAbsent(stemmed, k -> new HashMap<>());
-
-            if(!postingFreqs.containsKey("title")) { // to only count it one time
-                int titleCount = Collections.frequency(titleStemmedTokens, stemmed);
-                int h1Count = Collections.frequency(h1StemmedTokens, stemmed);
-                int h2Count = Collections.frequency(h2StemmedTokens, stemmed);
-                postingFreqs.putIfAbsent("title", titleCount);
-                postingFreqs.putIfAbsent("h1", h1Count);
-                postingFreqs.putIfAbsent("h2", h2Count);
-                postingFreqs.put("body", postingFreqs.getOrDefault("body", 0) - h1Count - h2Count);
-            }
-            postingFreqs.put("body", postingFreqs.getOrDefault("body", 0) + 1);
-        }
-
-        // Update inverted index
-        for (Map.Entry<String, Map<String, Integer>> entry : freqs.entrySet()) {
-            String term = entry.getKey();
-            Map<String, Integer> postingFreqs = entry.getValue();
-            Posting tInfo = new Posting(term, document.getId(), postingFreqs);
-            invertedIndex.computeIfAbsent(term, k -> new ArrayList<>());
-            boolean dup = false;
-            for (Posting tokenInfo : invertedIndex.get(term)) {
-                if(tokenInfo.getDocId().equals(document.getId())) {
-                    tokenInfo.setTokenInfo(tInfo);
-                    dup = true;
-                    break;
-                }
-            }
-            if(!dup) {
-                invertedIndex.get(term).add(tInfo);
-            }
-        }
-    }
-
-    // Helper method to process a single text string
-    private static List<String> processText(String text, TokenizerME tokenizer, PorterStemmer stemmer) {
-        List<String> stemmedTokens = new ArrayList<>();
-        if (text != null && !text.isEmpty()) {
-            String[] tokens = tokenizer.tokenize(text);
-            for (String token : tokens) {
-                // Clean token
-                String cleaned = Utils.CLEAN_PATTERN.matcher(token.toLowerCase()).replaceAll("");
-                if (!cleaned.isEmpty() && !Utils.STOP_WORDS.contains(cleaned)) {
-                    // Stem token and add to list
-                    String stemmed = stemmer.stem(cleaned);
-                    stemmedTokens.add(stemmed);
-                }
-            }
-        }
-        return stemmedTokens;
-    }
-
-    // Helper method to process a list of text strings
-    private static List<String> processTextList(List<String> textList, TokenizerME tokenizer, PorterStemmer stemmer) {
-        List<String> stemmedTokens = new ArrayList<>();
-        for (String text : textList) {
-            stemmedTokens.addAll(processText(text, tokenizer, stemmer));
-        }
-        return stemmedTokens;
+        index.addDocument(document.getId(), analyzer.analyze(document));
     }
 
     public void runIndexer() throws Exception {
         System.out.println("Starting indexer...");
+        if (segments != null) {
+            backfillSegments();
+        }
 
         while (!unindexedDocs.isEmpty()) {
             // Process text content
-            processDocuments();
+            processDocuments(unindexedDocs.values());
 
             // Update database and clear collections
             saveDataAndPrepareNextBatch();
@@ -137,39 +58,82 @@ public class TextIndexer implements IndexerInterface {
             }
         }
 
+        if (segments != null) {
+            segments.close(); // lets a running merge finish
+        }
         System.out.println("Indexing completed.");
     }
 
-    private void processDocuments() throws InterruptedException {
+    // Pages indexed into MongoDB before INDEX_DIR was set have no segment: write segments
+    // for them first, in _id order so an interrupted backfill resumes where it stopped.
+    // The tokens collection already holds their postings and their flags stay as they are.
+    private void backfillSegments() throws Exception {
+        String position = segments.backfillPosition();
+        if (position == null) return;
+        System.out.println("Backfilling segment index with already indexed documents...");
+        Map<String, WebDocument> batch = dbManager.getIndexedDocuments(
+                position.isEmpty() ? null : new ObjectId(position), batchSize);
+        while (!batch.isEmpty()) {
+            processDocuments(batch.values());
+            segments.addBatch(indexedDocuments.keySet(), invertedIndex);
+            invertedIndex.clear();
+            indexedDocuments.clear();
+            String last = Collections.max(batch.keySet()); // hex ObjectIds sort like the ids
+            segments.saveBackfillPosition(last);
+            batch = dbManager.getIndexedDocuments(new ObjectId(last), batchSize);
+        }
+        segments.finishBackfill();
+        System.out.println("Segment index backfill completed.");
+    }
+
+    // Each worker indexes a contiguous slice of the batch (in id order) into its own
+    // partial index; the partial indexes are then merged per term range in parallel
+    private void processDocuments(Collection<WebDocument> batch) throws Exception {
         System.out.println("Processing text content...");
         ExecutorService executor = Executors.newFixedThreadPool(numThreads);
 
         try {
-            // Submit text processing tasks
-            for (WebDocument doc : unindexedDocs.values()) {
-                executor.submit(new IndexerWorker(doc, tokenizer));
+            List<WebDocument> docs = new ArrayList<>(batch);
+            docs.sort(Comparator.comparing(WebDocument::getId));
+            int sliceSize = (docs.size() + numThreads - 1) / numThreads;
+
+            List<IndexerWorker> workers = new ArrayList<>();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int start = 0; start < docs.size(); start += sliceSize) {
+                IndexerWorker worker = new IndexerWorker(docs.subList(start, Math.min(start + sliceSize, docs.size())), tokenizer);
+                workers.add(worker);
+                futures.add(executor.submit(worker));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.MINUTES);
             }
 
-            // Initiate shutdown and wait for completion
-            executor.shutdown();
-            if (!executor.awaitTermination(10, TimeUnit.MINUTES)) {
-                System.err.println("Text indexing timed out, forcing shutdown");
-                executor.shutdownNow();
+            List<PartialIndex> parts = new ArrayList<>(workers.size());
+            for (IndexerWorker worker : workers) {
+                parts.add(worker.getIndex());
             }
-        } catch (Exception e) {
-            executor.shutdownNow();
-            Thread.currentThread().interrupt();
+            invertedIndex = PartialIndex.merge(parts, executor);
+        } catch (TimeoutException e) {
+            System.err.println("Text indexing timed out");
             throw e;
+        } finally {
+            executor.shutdownNow();
         }
 
-        System.out.println("Text processing completed.");
+        System.out.println("Text processing completed: " + invertedIndex.size() + " terms");
     }
 
     private void saveDataAndPrepareNextBatch() {
         try {
             // Insert tokens into database
             System.out.println("Updating tokens in database...");
+            if (segments != null) {
+                segments.addBatch(indexedDocuments.keySet(), invertedIndex);
+            }
+            // A revisited page replaces its old postings instead of adding to them
+            dbManager.removeOldPostings(indexedDocuments.keySet());
             dbManager.insertTokens(invertedIndex);
+            dbManager.saveDocumentTerms(invertedIndex);
             invertedIndex.clear();
 
             // Mark documents as indexed
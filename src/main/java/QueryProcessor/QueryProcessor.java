@@ -1,9 +1,11 @@
 package QueryProcessor;
 
 import Backend.ResultsResponse;
+import Indexer.SegmentIndex;
 import Ranker.TokenBasedRanker;
 import Ranker.PhraseBasedRanker;
 import Ranker.RankerContext;
+import Utils.PostingsSource;
 import Utils.Tokenizer;
 import Utils.Utils;
 import Utils.WebDocument;
@@ -16,6 +18,7 @@ import java.util.regex.Pattern;
 public class QueryProcessor {
 
     dbManager db;
+    PostingsSource postings;
     Tokenizer tokenizer;
     private static final int SUGGESTION_LIMIT = 10;
     private static final int SNIPPETS_LENGTH = 100;
@@ -23,6 +26,7 @@ public class QueryProcessor {
     public QueryProcessor() throws Exception {
         db = new dbManager();  // Fixed: Assign to instance variable, not local variable
         tokenizer = new Tokenizer();
+        postings = SegmentIndex.configuredSource(db);
     }
 
     public ResultsResponse process(String query, int page, int limit) throws Exception {
@@ -92,8 +96,8 @@ public class QueryProcessor {
         List<String> queryTerms = new ArrayList<>();
         if (isUsingOperator || isUsingPhrase) {
 
-            candidateDocIds = db.getDocIdsForTokens(tokensFirst, true);
-            Set<String> candidateDocIdsSecond = db.getDocIdsForTokens(tokensSecond, true);
+            candidateDocIds = postings.getDocIdsForTokens(tokensFirst, true);
+            Set<String> candidateDocIdsSecond = postings.getDocIdsForTokens(tokensSecond, true);
 
             if (operator.equals("and")) {
                 candidateDocIds.retainAll(candidateDocIdsSecond);
@@ -101,12 +105,12 @@ public class QueryProcessor {
                 candidateDocIds.addAll(candidateDocIdsSecond);
             }
 
-            rankerContext.setRanker(new PhraseBasedRanker(9));
+            rankerContext.setRanker(new PhraseBasedRanker(9, tokenizer, postings));
 //            queryTerms = queryTexts;
         }
         else {
-            candidateDocIds = db.getDocIdsForTokens(tokensFirst , false);
-            rankerContext.setRanker(new TokenBasedRanker(9));
+            candidateDocIds = postings.getDocIdsForTokens(tokensFirst , false);
+            rankerContext.setRanker(new TokenBasedRanker(9, postings));
 //            queryTerms = tokensFirst;
             System.out.println("Token Based");
         }
@@ -1,6 +1,8 @@
 package Ranker;
 
 import Utils.Posting;
+import Utils.PostingsSource;
+import Utils.Tokenizer;
 import Utils.WebDocument;
 import dbManager.dbManager;
 import java.util.*;
@@ -11,15 +13,20 @@ public class PhraseBasedRanker implements Ranker {
     private final double popularityAlpha;
     private final Helpers.WeightConfig weightConfig;
     private dbManager db;
+    private final PostingsSource postings;
+    private final PhraseMatcher phraseMatcher;
 
-    public PhraseBasedRanker(double popularityAlpha) throws Exception {
-        this(popularityAlpha, new Helpers.WeightConfig(1.0, 1.5, 1.3, 1.2)); // Default weights
+    public PhraseBasedRanker(double popularityAlpha, Tokenizer tokenizer, PostingsSource postings) throws Exception {
+        this(popularityAlpha, new Helpers.WeightConfig(1.0, 1.5, 1.3, 1.2), tokenizer, postings); // Default weights
     }
 
-    public PhraseBasedRanker(double popularityAlpha, Helpers.WeightConfig weightConfig) throws Exception {
+    public PhraseBasedRanker(double popularityAlpha, Helpers.WeightConfig weightConfig, Tokenizer tokenizer,
+                             PostingsSource postings) throws Exception {
         this.popularityAlpha = popularityAlpha;
         this.weightConfig = weightConfig;
         this.db = new dbManager();
+        this.postings = postings;
+        this.phraseMatcher = new PhraseMatcher(db, postings, tokenizer);
     }
 
     @Override
@@ -45,7 +52,7 @@ public class PhraseBasedRanker implements Ranker {
         List<String> combinedTokens = new ArrayList<>(combinedTokensSet);
 
         // Apply TF_IDF
-        Map<String, List<Posting>> tokenToPostings = db.getPostingsForTokens(combinedTokens, filteredCandidateIds);
+        Map<String, List<Posting>> tokenToPostings = postings.getPostingsForTokens(combinedTokens, filteredCandidateIds);
         Map<String, WebDocument> filteredDocs = db.getDocumentsByIdsForRanking(filteredCandidateIds);
 
         // Get relevance scores - pass weightConfig
@@ -91,15 +98,15 @@ public class PhraseBasedRanker implements Ranker {
     }
 
     Set<String> FilterCandidates(String firstPhrase, String logicalOperator, String secondPhrase, Set<String> candidateDocsIds) {
-        Set<String> filteredDocsIds = db.FilterDocsIdsByPhrase(candidateDocsIds, firstPhrase);
+        Set<String> filteredDocsIds = phraseMatcher.match(firstPhrase, candidateDocsIds);
         if (filteredDocsIds.size() == 0 && !logicalOperator.equals("or"))
             return new HashSet<String>();
         else if (logicalOperator.equals("or"))
-            filteredDocsIds.addAll(db.FilterDocsIdsByPhrase(candidateDocsIds, secondPhrase));
+            filteredDocsIds.addAll(phraseMatcher.match(secondPhrase, candidateDocsIds));
         else if (logicalOperator.equals("and"))
-            filteredDocsIds.retainAll(db.FilterDocsIdsByPhrase(candidateDocsIds, secondPhrase));
+            filteredDocsIds.retainAll(phraseMatcher.match(secondPhrase, filteredDocsIds));
         else if (logicalOperator.equals("not"))
-            filteredDocsIds.removeAll(db.FilterDocsIdsByPhrase(candidateDocsIds, secondPhrase));
+            filteredDocsIds.removeAll(phraseMatcher.match(secondPhrase, filteredDocsIds));
 
         return filteredDocsIds;
     }
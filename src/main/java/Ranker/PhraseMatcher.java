@@ -0,0 +1,88 @@
+package Ranker;
+
+import Utils.PositionCodec;
+import Utils.PostingsSource;
+import Utils.Tokenizer;
+import dbManager.dbManager;
+
+import java.util.*;
+
+// Finds the candidates that contain a phrase using the positional index: the phrase
+// is tokenized like the indexer tokenizes page bodies, and a document matches when
+// every phrase term occurs at the same relative position as in the phrase. Starting
+// from the term with the fewest positions, each start is checked by binary search in
+// the other terms' lists, so the cost follows posting sizes, not page sizes.
+// Documents indexed before positions were recorded (and phrases made only of stop
+// words) are still matched by the text regex in dbManager.FilterDocsIdsByPhrase.
+public class PhraseMatcher {
+    private final dbManager db;
+    private final PostingsSource postings;
+    private final Tokenizer tokenizer;
+
+    public PhraseMatcher(dbManager db, PostingsSource postings, Tokenizer tokenizer) {
+        this.db = db;
+        this.postings = postings;
+        this.tokenizer = tokenizer;
+    }
+
+    public Set<String> match(String phrase, Set<String> candidateDocIds) {
+        List<Tokenizer.PositionedToken> terms = tokenizer.TokenizeWithPositions(phrase);
+        if (terms.isEmpty() || candidateDocIds.isEmpty()) {
+            return db.FilterDocsIdsByPhrase(candidateDocIds, phrase);
+        }
+
+        Set<String> distinctTerms = new HashSet<>();
+        for (Tokenizer.PositionedToken term : terms) distinctTerms.add(term.term);
+        Map<String, Map<String, byte[]>> positions = postings.getPositionsForTokens(distinctTerms, candidateDocIds);
+
+        Set<String> matched = new HashSet<>();
+        Set<String> legacy = new HashSet<>();
+        int[][] lists = new int[terms.size()][];
+
+        candidates:
+        for (String docId : candidateDocIds) {
+            for (int i = 0; i < terms.size(); i++) {
+                Map<String, byte[]> byDoc = positions.get(terms.get(i).term);
+                if (byDoc == null || !byDoc.containsKey(docId)) {
+                    continue candidates; // a phrase term the page doesn't contain
+                }
+                byte[] encoded = byDoc.get(docId);
+                if (encoded == null) {
+                    legacy.add(docId);
+                    continue candidates;
+                }
+                lists[i] = PositionCodec.decode(encoded);
+            }
+            if (containsPhrase(terms, lists)) {
+                matched.add(docId);
+            }
+        }
+
+        if (!legacy.isEmpty()) {
+            matched.addAll(db.FilterDocsIdsByPhrase(legacy, phrase));
+        }
+        return matched;
+    }
+
+    // lists[i] holds the ascending positions of terms[i] in the document
+    static boolean containsPhrase(List<Tokenizer.PositionedToken> terms, int[][] lists) {
+        int anchor = 0;
+        for (int i = 1; i < lists.length; i++) {
+            if (lists[i].length < lists[anchor].length) anchor = i;
+        }
+        int anchorOffset = terms.get(anchor).position;
+
+        starts:
+        for (int position : lists[anchor]) {
+            int start = position - anchorOffset;
+            if (start < 0) continue;
+            for (int i = 0; i < lists.length; i++) {
+                if (i != anchor && Arrays.binarySearch(lists[i], start + terms.get(i).position) < 0) {
+                    continue starts;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
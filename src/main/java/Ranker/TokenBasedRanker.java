@@ -1,6 +1,7 @@
 package Ranker;
 
 import Utils.Posting;
+import Utils.PostingsSource;
 import Utils.WebDocument;
 import dbManager.dbManager;
 import java.util.*;
@@ -9,17 +10,19 @@ import java.util.stream.Stream;
 public class TokenBasedRanker implements Ranker {
 
     private dbManager db;
+    private final PostingsSource postings;
     private final double popularityAlpha;
     private final Helpers.WeightConfig weightConfig;
 
-    public TokenBasedRanker(double popularityAlpha) throws Exception {
-        this(popularityAlpha, new Helpers.WeightConfig(1.0, 1.5, 1.3, 1.2)); // Default weights
+    public TokenBasedRanker(double popularityAlpha, PostingsSource postings) throws Exception {
+        this(popularityAlpha, new Helpers.WeightConfig(1.0, 1.5, 1.3, 1.2), postings); // Default weights
     }
 
-    public TokenBasedRanker(double popularityAlpha, Helpers.WeightConfig weightConfig) throws Exception {
+    public TokenBasedRanker(double popularityAlpha, Helpers.WeightConfig weightConfig, PostingsSource postings) throws Exception {
         this.popularityAlpha = popularityAlpha;
         this.weightConfig = weightConfig;
         this.db = new dbManager();
+        this.postings = postings;
     }
 
     @Override
@@ -38,7 +41,7 @@ public class TokenBasedRanker implements Ranker {
         List<String> combinedTokens = new ArrayList<>(combinedTokensSet);
 
         double startTime = System.currentTimeMillis();
-        Map<String, List<Posting>> tokenToPostings = db.getPostingsForTokens(combinedTokens, candidateDocsIds);
+        Map<String, List<Posting>> tokenToPostings = postings.getPostingsForTokens(combinedTokens, candidateDocsIds);
         double endTime = System.currentTimeMillis();
         double duration = (endTime - startTime) / 1000;
         System.out.println("Get postings for tokens took " + duration + " seconds");
@@ -0,0 +1,179 @@
+package Utils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver;
+import java.net.spi.InetAddressResolverProvider;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// JVM-wide DNS cache, installed through META-INF/services so every lookup goes
+// through it: HttpClient, Jsoup, URLConnection and the image downloads alike.
+//
+// Bounded LRU of resolved hosts. An entry is served fresh for TTL_MS; for another
+// STALE_MS it is still served while a background refresh runs, so hot hosts never
+// wait on DNS. Failures are cached briefly. Concurrent misses for one host share a
+// single lookup, and prefetch() resolves newly discovered hosts ahead of their first fetch.
+public class CachingDnsResolver implements InetAddressResolver {
+    private static final int MAX_HOSTS = 20000;
+    private static final long TTL_MS = 5 * 60 * 1000L;
+    private static final long STALE_MS = 10 * 60 * 1000L;
+    private static final long NEGATIVE_TTL_MS = 60 * 1000L;
+    private static final int LOOKUP_THREADS = 8;
+
+    private static volatile CachingDnsResolver instance;
+
+    private final InetAddressResolver builtin;
+    private final LruCache<String, Resolved> cache = new LruCache<>(MAX_HOSTS);
+    private final ConcurrentHashMap<String, CompletableFuture<Resolved>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService lookups = Executors.newFixedThreadPool(LOOKUP_THREADS, r -> {
+        Thread t = new Thread(r, "dns-lookup");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Policy of the latest real lookup; prefetch() resolves with it so its entries
+    // land under the key the next lookup for that host will use
+    private volatile LookupPolicy lastPolicy = platformPolicy();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private static class Resolved {
+        final InetAddress[] addresses; // null when the lookup failed
+        final UnknownHostException failure;
+        final long resolvedAt;
+
+        Resolved(InetAddress[] addresses, UnknownHostException failure) {
+            this.addresses = addresses;
+            this.failure = failure;
+            this.resolvedAt = System.currentTimeMillis();
+        }
+
+        long age() {
+            return System.currentTimeMillis() - resolvedAt;
+        }
+    }
+
+    public static class Provider extends InetAddressResolverProvider {
+        @Override
+        public InetAddressResolver get(Configuration configuration) {
+            CachingDnsResolver resolver = new CachingDnsResolver(configuration.builtinResolver());
+            instance = resolver;
+            return resolver;
+        }
+
+        @Override
+        public String name() {
+            return "caching-dns-resolver";
+        }
+    }
+
+    CachingDnsResolver(InetAddressResolver builtin) {
+        this.builtin = builtin;
+    }
+
+    // null until the JVM performed its first lookup (or when the provider isn't installed)
+    public static CachingDnsResolver getInstance() {
+        return instance;
+    }
+
+    @Override
+    public Stream<InetAddress> lookupByName(String host, LookupPolicy policy) throws UnknownHostException {
+        lastPolicy = policy;
+        String key = host.toLowerCase() + '|' + policy.characteristics();
+        Resolved resolved = cache.get(key);
+        if (resolved != null) {
+            long age = resolved.age();
+            if (resolved.addresses == null ? age < NEGATIVE_TTL_MS : age < TTL_MS) {
+                hits.increment();
+                return result(resolved);
+            }
+            if (resolved.addresses != null && age < TTL_MS + STALE_MS) {
+                hits.increment();
+                refresh(host, policy, key); // serve stale, update behind the caller's back
+                return result(resolved);
+            }
+        }
+        misses.increment();
+        try {
+            return result(refresh(host, policy, key).join());
+        } catch (CompletionException e) {
+            throw new UnknownHostException(host);
+        }
+    }
+
+    @Override
+    public String lookupByAddress(byte[] addr) throws UnknownHostException {
+        return builtin.lookupByAddress(addr);
+    }
+
+    // Resolves host in the background if it isn't cached yet
+    public void prefetch(String host) {
+        LookupPolicy policy = lastPolicy;
+        String key = host.toLowerCase() + '|' + policy.characteristics();
+        Resolved resolved = cache.get(key);
+        if (resolved == null || resolved.age() >= TTL_MS) {
+            refresh(host, policy, key);
+        }
+    }
+
+    // Single-flight lookup through the JDK resolver
+    private CompletableFuture<Resolved> refresh(String host, LookupPolicy policy, String key) {
+        CompletableFuture<Resolved> mine = new CompletableFuture<>();
+        CompletableFuture<Resolved> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            lookups.execute(() -> {
+                Resolved resolved;
+                try {
+                    resolved = new Resolved(builtin.lookupByName(host, policy).toArray(InetAddress[]::new), null);
+                } catch (UnknownHostException e) {
+                    resolved = new Resolved(null, e);
+                } catch (RuntimeException e) {
+                    resolved = new Resolved(null, new UnknownHostException(host + ": " + e.getMessage()));
+                }
+                cache.put(key, resolved);
+                inFlight.remove(key, mine);
+                mine.complete(resolved);
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+        }
+        return mine;
+    }
+
+    // What InetAddress passes to resolvers, from the same system properties
+    private static LookupPolicy platformPolicy() {
+        if (Boolean.getBoolean("java.net.preferIPv4Stack")) {
+            return LookupPolicy.of(LookupPolicy.IPV4);
+        }
+        String prefer = System.getProperty("java.net.preferIPv6Addresses", "false");
+        if (prefer.equalsIgnoreCase("true")) {
+            return LookupPolicy.of(LookupPolicy.IPV4 | LookupPolicy.IPV6 | LookupPolicy.IPV6_FIRST);
+        }
+        if (prefer.equalsIgnoreCase("system")) {
+            return LookupPolicy.of(LookupPolicy.IPV4 | LookupPolicy.IPV6);
+        }
+        return LookupPolicy.of(LookupPolicy.IPV4 | LookupPolicy.IPV6 | LookupPolicy.IPV4_FIRST);
+    }
+
+    private static Stream<InetAddress> result(Resolved resolved) throws UnknownHostException {
+        if (resolved.addresses == null) {
+            throw resolved.failure;
+        }
+        return Stream.of(resolved.addresses);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,78 @@
+package Utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// Thread-safe bounded LRU cache with optional per-entry expiry.
+// Least recently used entries are evicted once maxEntries is reached.
+public class LruCache<K, V> {
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long defaultTtlMillis;
+    private final LinkedHashMap<K, Entry<V>> map;
+
+    public LruCache(int maxEntries) {
+        this(maxEntries, 0);
+    }
+
+    // ttlMillis <= 0 means entries never expire
+    public LruCache(int maxEntries, long ttlMillis) {
+        this.defaultTtlMillis = ttlMillis;
+        this.map = new LinkedHashMap<>(Math.min(maxEntries, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) return null;
+        if (entry.expiresAt > 0 && entry.expiresAt < System.currentTimeMillis()) {
+            map.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, defaultTtlMillis);
+    }
+
+    public synchronized void put(K key, V value, long ttlMillis) {
+        long expiresAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : 0;
+        map.put(key, new Entry<>(value, expiresAt));
+    }
+
+    // Computes outside the lock, so concurrent misses may compute twice (last one wins)
+    public V computeIfAbsent(K key, Function<K, V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) put(key, value);
+        }
+        return value;
+    }
+
+    public synchronized void remove(K key) {
+        map.remove(key);
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+}
@@ -0,0 +1,181 @@
+package Utils;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// The one HTTP client of the process, shared by the crawler, robots.txt downloads and
+// image downloads.
+//
+// - Keep-alive connections are pooled per host and reused across callers
+// - HTTPS requests negotiate HTTP/2 when the server offers it, so one connection
+//   carries many requests to the same host
+// - One SSLContext, so TLS sessions are resumed instead of doing full handshakes
+// - DNS answers come from CachingDnsResolver, and hosts can be resolved ahead of time
+// - At most MAX_REQUESTS_PER_HOST requests to one host at once, whoever sends them
+public final class NetworkLayer {
+    public static final String USER_AGENT = "Falcony/1.0";
+
+    private static final int MAX_REQUESTS_PER_HOST = 8;
+    private static final int HOST_STRIPES = 4096; // hosts share a limit only on hash collision
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final HttpClient CLIENT;
+    private static final Semaphore[] HOST_PERMITS = new Semaphore[HOST_STRIPES];
+    private static final ExecutorService PREFETCH = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "dns-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final LongAdder requests = new LongAdder();
+
+    static {
+        // Idle pooled connections are kept for a minute (the JDK default is 30 s)
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", "60");
+        }
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(CONNECT_TIMEOUT);
+        try {
+            builder.sslContext(SSLContext.getDefault());
+        } catch (NoSuchAlgorithmException e) {
+            System.err.println("Default SSL context unavailable: " + e.getMessage());
+        }
+        CLIENT = builder.build();
+        for (int i = 0; i < HOST_STRIPES; i++) {
+            HOST_PERMITS[i] = new Semaphore(MAX_REQUESTS_PER_HOST);
+        }
+    }
+
+    private NetworkLayer() {}
+
+    public static HttpClient client() {
+        return CLIENT;
+    }
+
+    // GET request with the crawler's User-Agent. Plain http stays on HTTP/1.1:
+    // an h2c upgrade attempt confuses enough servers to not be worth it.
+    public static HttpRequest.Builder request(String url, Duration timeout) throws IOException {
+        try {
+            URI uri = URI.create(url);
+            return HttpRequest.newBuilder(uri)
+                    .version("https".equalsIgnoreCase(uri.getScheme()) ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                    .timeout(timeout)
+                    .header("User-Agent", USER_AGENT);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid URL: " + url, e);
+        }
+    }
+
+    // Sends through the shared client, waiting for a free slot of the request's host.
+    // A streamed body keeps the slot until the caller closes it, so the download
+    // counts against the host's limit too, not just the wait for the headers.
+    public static <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        String host = request.uri().getHost();
+        Semaphore permits = HOST_PERMITS[host == null ? 0 : Math.floorMod(host.toLowerCase().hashCode(), HOST_STRIPES)];
+        permits.acquire();
+        boolean handedOff = false;
+        try {
+            requests.increment();
+            HttpResponse<T> response = CLIENT.send(request, handler);
+            if (response.body() instanceof InputStream in) {
+                handedOff = true;
+                return new PermitResponse<>(response, new PermitStream(in, permits));
+            }
+            return response;
+        } finally {
+            if (!handedOff) permits.release();
+        }
+    }
+
+    // Body stream that gives the host slot back once, on close
+    private static final class PermitStream extends FilterInputStream {
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PermitStream(InputStream in, Semaphore permits) {
+            super(in);
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (released.compareAndSet(false, true)) permits.release();
+            }
+        }
+    }
+
+    // The client's response with its body stream swapped for a PermitStream
+    private static final class PermitResponse<T> implements HttpResponse<T> {
+        private final HttpResponse<T> response;
+        private final T body;
+
+        @SuppressWarnings("unchecked")
+        PermitResponse(HttpResponse<T> response, InputStream body) {
+            this.response = response;
+            this.body = (T) body;
+        }
+
+        @Override public int statusCode() { return response.statusCode(); }
+        @Override public HttpRequest request() { return response.request(); }
+        @Override public Optional<HttpResponse<T>> previousResponse() { return response.previousResponse(); }
+        @Override public HttpHeaders headers() { return response.headers(); }
+        @Override public T body() { return body; }
+        @Override public Optional<SSLSession> sslSession() { return response.sslSession(); }
+        @Override public URI uri() { return response.uri(); }
+        @Override public HttpClient.Version version() { return response.version(); }
+    }
+
+    // Warms the DNS cache for a host that is about to be fetched
+    public static void prefetchDns(String host) {
+        CachingDnsResolver resolver = CachingDnsResolver.getInstance();
+        if (resolver != null) {
+            resolver.prefetch(host);
+            return;
+        }
+        // Provider not installed: at least fill the JDK's own cache
+        PREFETCH.execute(() -> {
+            try {
+                InetAddress.getAllByName(host);
+            } catch (IOException ignored) {
+            }
+        });
+    }
+
+    public static long getRequestCount() {
+        return requests.sum();
+    }
+
+    public static long getDnsCacheHits() {
+        CachingDnsResolver resolver = CachingDnsResolver.getInstance();
+        return resolver == null ? 0 : resolver.getHits();
+    }
+
+    public static long getDnsCacheMisses() {
+        CachingDnsResolver resolver = CachingDnsResolver.getInstance();
+        return resolver == null ? 0 : resolver.getMisses();
+    }
+}
@@ -0,0 +1,46 @@
+package Utils;
+
+import java.util.Arrays;
+
+// Token positions of a posting, stored as gaps between ascending positions in
+// LEB128 varints (7 bits per byte, high bit = more bytes follow). Words a few
+// dozen tokens apart take one byte per occurrence.
+public class PositionCodec {
+
+    public static byte[] encode(int[] positions, int from, int count) {
+        byte[] out = new byte[count * 5];
+        int length = 0;
+        int previous = 0;
+        for (int i = from; i < from + count; i++) {
+            int gap = positions[i] - previous;
+            previous = positions[i];
+            while ((gap & ~0x7F) != 0) {
+                out[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            out[length++] = (byte) gap;
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    public static int[] decode(byte[] data) {
+        int count = 0;
+        for (byte b : data) {
+            if (b >= 0) count++; // last byte of a varint
+        }
+        int[] positions = new int[count];
+        int value = 0, shift = 0, previous = 0, n = 0;
+        for (byte b : data) {
+            value |= (b & 0x7F) << shift;
+            if (b < 0) {
+                shift += 7;
+            } else {
+                previous += value;
+                positions[n++] = previous;
+                value = 0;
+                shift = 0;
+            }
+        }
+        return positions;
+    }
+}
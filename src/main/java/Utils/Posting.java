@@ -1,26 +1,49 @@
 package Utils;
 
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
 
+// One document's entry in a term's posting list. The title/h1/h2 counts are packed
+// into one int (10 bits each, saturating), body keeps its own int
 public class Posting {
-    private Map<String, Integer> freqs;
+    private static final int SMALL_BITS = 10;
+    private static final int SMALL_MAX = (1 << SMALL_BITS) - 1;
+
+    private int headings; // title | h1 << 10 | h2 << 20
+    private int body;
     public String docId;
+    private byte[] positions; // body token positions (PositionCodec), null if not recorded
 
 
     public Posting(String token, String docId, Map<String, Integer> freqs) {
-        this.freqs = freqs;
+        this(docId, freqs.getOrDefault("title", 0), freqs.getOrDefault("h1", 0),
+                freqs.getOrDefault("h2", 0), freqs.getOrDefault("body", 0));
+    }
+
+    public Posting(String docId, int title, int h1, int h2, int body) {
         this.docId = docId;
+        this.headings = small(title) | small(h1) << SMALL_BITS | small(h2) << (2 * SMALL_BITS);
+        this.body = body;
     }
 
+    // Built on demand, for writing the posting to MongoDB
     public Map<String, Integer> getFrequencies() {
+        Map<String, Integer> freqs = new HashMap<>(8);
+        freqs.put("title", getFrequency("title"));
+        freqs.put("h1", getFrequency("h1"));
+        freqs.put("h2", getFrequency("h2"));
+        freqs.put("body", body);
         return freqs;
     }
-    public void setFrequency(String key, int frequency) {
-        freqs.putIfAbsent(key, frequency);
-    }
+
     public int getFrequency(String key) {
-        return freqs.getOrDefault(key, 0);
+        switch (key) {
+            case "title": return headings & SMALL_MAX;
+            case "h1": return (headings >>> SMALL_BITS) & SMALL_MAX;
+            case "h2": return (headings >>> (2 * SMALL_BITS)) & SMALL_MAX;
+            case "body": return body;
+            default: return 0;
+        }
     }
 
     public String getDocId() {
@@ -28,6 +51,20 @@ public class Posting {
     }
 
     public void setTokenInfo(Posting tInfo) {
-        this.freqs = tInfo.freqs;
+        this.headings = tInfo.headings;
+        this.body = tInfo.body;
+        this.positions = tInfo.positions;
+    }
+
+    public byte[] getPositions() {
+        return positions;
+    }
+
+    public void setPositions(byte[] positions) {
+        this.positions = positions;
+    }
+
+    private static int small(int count) {
+        return Math.max(0, Math.min(count, SMALL_MAX));
     }
 }
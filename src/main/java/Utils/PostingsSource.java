@@ -0,0 +1,19 @@
+package Utils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Where query processing reads the inverted index from: the MongoDB tokens collection
+// (dbManager) or the local memory-mapped segments written by the indexer (SegmentIndex)
+public interface PostingsSource {
+    // Documents containing the tokens, intersected or united across tokens
+    Set<String> getDocIdsForTokens(List<String> tokens, boolean intersect);
+
+    // Postings of each token restricted to docIdSet
+    Map<String, List<Posting>> getPostingsForTokens(List<String> tokens, Set<String> docIdSet);
+
+    // Encoded body positions (PositionCodec) of each token per document, null where not recorded
+    Map<String, Map<String, byte[]>> getPositionsForTokens(Collection<String> tokens, Set<String> docIds);
+}
@@ -4,6 +4,7 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,82 +36,111 @@ public class SnippetGenerator {
      */
     public static String getSnippet(String htmlContent, String query, int maxWords) {
         Document document = Jsoup.parse(htmlContent);
-
-        // Process the query
-        String processedQuery = query;
-        String operator = null;
-        String secondTerm = null;
-
-        // Check for quoted terms with boolean operators
-        Pattern pattern = Pattern.compile("\"([^\"]*)\"\\s*(AND|OR|NOT)\\s*\"([^\"]*)\"", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(query);
-
-        if (matcher.find()) {
-            // Extract the first term without quotes
-            processedQuery = matcher.group(1);
-            // Get the operator
-            operator = matcher.group(2).toUpperCase();
-            // Get the second term without quotes
-            secondTerm = matcher.group(3);
-        } else {
-            // Check for simple quoted term
-            Pattern quotePattern = Pattern.compile("\"([^\"]*)\"");
-            Matcher quoteMatcher = quotePattern.matcher(query);
-            if (quoteMatcher.find()) {
-                processedQuery = quoteMatcher.group(1);
-            }
-        }
-
-        // Convert to lowercase for case-insensitive matching
-        String lowerProcessedQuery = processedQuery.toLowerCase();
-        String lowerSecondTerm = secondTerm != null ? secondTerm.toLowerCase() : null;
+        SnippetQuery snippetQuery = new SnippetQuery(query);
 
         Elements paragraphs = document.select("p, li, div, h1, h2, h3, h4, h5, h6");
 
         for (Element paragraph : paragraphs) {
             String paragraphText = paragraph.text();
-            String lowerParagraphText = paragraphText.toLowerCase();
+            if (snippetQuery.matches(paragraphText.toLowerCase())) {
+                return truncate(paragraphText, maxWords);
+            }
+        }
 
-            boolean matches = false;
+        return generateSnippet(htmlContent, maxWords);
+    }
 
-            if (operator == null) {
-                // Simple query - just check if the paragraph contains the term
-                matches = lowerParagraphText.contains(lowerProcessedQuery);
-            } else {
-                // Apply boolean logic
-                boolean firstTermMatch = lowerParagraphText.contains(lowerProcessedQuery);
-                boolean secondTermMatch = lowerParagraphText.contains(lowerSecondTerm);
-
-                switch (operator) {
-                    case "AND":
-                        matches = firstTermMatch && secondTermMatch;
-                        break;
-                    case "OR":
-                        matches = firstTermMatch || secondTermMatch;
-                        break;
-                    case "NOT":
-                        matches = firstTermMatch && !secondTermMatch;
-                        break;
+    /**
+     * Same as above for pages stored with extracted text: blocks holds
+     * [start, end) offsets of each text block, so no HTML is parsed
+     */
+    public static String getSnippet(String text, List<Integer> blocks, String query, int maxWords) {
+        SnippetQuery snippetQuery = new SnippetQuery(query);
+
+        if (blocks != null) {
+            for (int i = 0; i + 1 < blocks.size(); i += 2) {
+                int start = Math.min(blocks.get(i), text.length());
+                int end = Math.min(blocks.get(i + 1), text.length());
+                String paragraphText = text.substring(start, end);
+                if (snippetQuery.matches(paragraphText.toLowerCase())) {
+                    return truncate(paragraphText, maxWords);
                 }
             }
+        }
 
-            if (matches) {
-                String[] words = paragraphText.split("\\s+");
+        return truncate(text, maxWords);
+    }
 
-                if (words.length <= maxWords) {
-                    return paragraphText;
-                }
+    private static String truncate(String paragraphText, int maxWords) {
+        String[] words = paragraphText.split("\\s+");
 
-                StringBuilder snippet = new StringBuilder();
-                for (int i = 0; i < maxWords; i++) {
-                    snippet.append(words[i]).append(" ");
-                }
+        if (words.length <= maxWords) {
+            return paragraphText;
+        }
 
-                return snippet.toString().trim() + "...";
+        StringBuilder snippet = new StringBuilder();
+        for (int i = 0; i < maxWords; i++) {
+            snippet.append(words[i]).append(" ");
+        }
+
+        return snippet.toString().trim() + "...";
+    }
+
+    // Query terms and boolean operator, lower-cased for case-insensitive matching
+    private static class SnippetQuery {
+        private String processedQuery;
+        private String operator = null;
+        private String secondTerm = null;
+
+        SnippetQuery(String query) {
+            processedQuery = query;
+
+            // Check for quoted terms with boolean operators
+            Pattern pattern = Pattern.compile("\"([^\"]*)\"\\s*(AND|OR|NOT)\\s*\"([^\"]*)\"", Pattern.CASE_INSENSITIVE);
+            Matcher matcher = pattern.matcher(query);
+
+            if (matcher.find()) {
+                // Extract the first term without quotes
+                processedQuery = matcher.group(1);
+                // Get the operator
+                operator = matcher.group(2).toUpperCase();
+                // Get the second term without quotes
+                secondTerm = matcher.group(3);
+            } else {
+                // Check for simple quoted term
+                Pattern quotePattern = Pattern.compile("\"([^\"]*)\"");
+                Matcher quoteMatcher = quotePattern.matcher(query);
+                if (quoteMatcher.find()) {
+                    processedQuery = quoteMatcher.group(1);
+                }
             }
+
+            // Convert to lowercase for case-insensitive matching
+            processedQuery = processedQuery.toLowerCase();
+            secondTerm = secondTerm != null ? secondTerm.toLowerCase() : null;
         }
 
-        return generateSnippet(htmlContent, maxWords);
+        boolean matches(String lowerParagraphText) {
+            if (operator == null) {
+                // Simple query - just check if the paragraph contains the term
+                return lowerParagraphText.contains(processedQuery);
+            }
+
+            // Apply boolean logic
+            boolean firstTermMatch = lowerParagraphText.contains(processedQuery);
+            boolean secondTermMatch = lowerParagraphText.contains(secondTerm);
+
+            switch (operator) {
+                case "AND":
+                    return firstTermMatch && secondTermMatch;
+                case "OR":
+                    return firstTermMatch || secondTermMatch;
+                case "NOT":
+                    return firstTermMatch && !secondTermMatch;
+                default:
+                    return false;
+            }
+        }
     }
 
     public static void main(String[] args) {
@@ -12,6 +12,16 @@ import java.util.List;
 public class Tokenizer {
     private static TokenizerModel tmodel;
 
+    public static class PositionedToken {
+        public final String term;
+        public final int position; // index in the raw token stream, stop words included
+
+        public PositionedToken(String term, int position) {
+            this.term = term;
+            this.position = position;
+        }
+    }
+
     public Tokenizer() throws Exception {
         try {
             InputStream modelInput = Tokenizer.class.getResourceAsStream("/en-token.bin");
@@ -45,4 +55,21 @@ public class Tokenizer {
         }
         return stemmedList;
     }
+
+    // Like Tokenize, but every term keeps its token position, counted the way the
+    // indexer counts body positions, so phrases can be matched against the index
+    public List<PositionedToken> TokenizeWithPositions(String text) {
+        String[] tokens = getTokenizerME().tokenize(text);
+        PorterStemmer stemmer = new PorterStemmer();
+        List<PositionedToken> terms = new ArrayList<>();
+
+        for (int i = 0; i < tokens.length; i++) {
+            String cleaned = Utils.CLEAN_PATTERN.matcher(tokens[i].toLowerCase()).replaceAll("");
+            if (cleaned.isEmpty() || Utils.STOP_WORDS.contains(cleaned)) {
+                continue;
+            }
+            terms.add(new PositionedToken(stemmer.stem(cleaned), i));
+        }
+        return terms;
+    }
 }
@@ -1,9 +1,8 @@
 package Utils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
@@ -15,61 +14,34 @@ public class Utils {
     public static final Set<String> STOP_WORDS = StopWords.getStopWords();
     private static final long MAX_IMAGE_SIZE = 2_097_152; // 2MB in bytes
 
+    // Single GET through the shared NetworkLayer client (pooled connections, cached DNS).
+    // The size limit is checked on Content-Length and while reading, so there is no
+    // separate HEAD round trip.
     public static byte[] downloadImage(String url) throws IOException, InterruptedException {
-        // Configure HttpClient with redirect handling and timeout
-        HttpClient client = HttpClient.newBuilder()
-                .followRedirects(HttpClient.Redirect.ALWAYS)
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
-
-        // Step 1: Send HEAD request to check Content-Length
-        HttpRequest headRequest = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+        HttpRequest request = NetworkLayer.request(url, Duration.ofSeconds(10))
                 .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
-                .timeout(Duration.ofSeconds(10))
+                .GET()
                 .build();
 
-        try {
-            HttpResponse<Void> headResponse = client.send(headRequest, HttpResponse.BodyHandlers.discarding());
-            if (headResponse.statusCode() == HttpURLConnection.HTTP_OK) {
-                String contentLength = headResponse.headers().firstValue("Content-Length").orElse("");
-                if (!contentLength.isEmpty()) {
-                    try {
-                        long size = Long.parseLong(contentLength);
-                        if (size > MAX_IMAGE_SIZE) {
-                            throw new IOException("Image size (" + size + " bytes) exceeds 2MB limit");
-                        }
-                    } catch (NumberFormatException e) {
-                        // Content-Length header is invalid, proceed with download
-                    }
-                }
+        HttpResponse<InputStream> response = NetworkLayer.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream in = response.body()) {
+            // Check response status
+            if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Failed to download image. HTTP status: " + response.statusCode());
             }
-        } catch (IOException | InterruptedException e) {
-            // HEAD request failed, proceed with full download as fallback
-        }
-
-        // Step 2: Send GET request to download image
-        HttpRequest getRequest = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
-                .timeout(Duration.ofSeconds(10))
-                .build();
 
-        HttpResponse<byte[]> response = client.send(getRequest, HttpResponse.BodyHandlers.ofByteArray());
-
-        // Check response status
-        if (response.statusCode() != HttpURLConnection.HTTP_OK) {
-            throw new IOException("Failed to download image. HTTP status: " + response.statusCode());
-        }
+            long size = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+            if (size > MAX_IMAGE_SIZE) {
+                throw new IOException("Image size (" + size + " bytes) exceeds 2MB limit");
+            }
 
-        // Optional: Double-check size after download
-        byte[] imageData = response.body();
-        if (imageData.length > MAX_IMAGE_SIZE) {
-            throw new IOException("Downloaded image size (" + imageData.length + " bytes) exceeds 2MB limit");
+            // Read one byte past the limit to tell "exactly 2MB" from "too big"
+            byte[] imageData = in.readNBytes((int) MAX_IMAGE_SIZE + 1);
+            if (imageData.length > MAX_IMAGE_SIZE) {
+                throw new IOException("Downloaded image size exceeds 2MB limit");
+            }
+            return imageData;
         }
-
-        return imageData;
     }
 
 }
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 public class WebDocument {
     public final String docId; // Made final for immutability
@@ -17,6 +18,10 @@ public class WebDocument {
     public int[] children;
     private List<String> images;
     private Document parsedDocument; // Cache the parsed document for better performance
+    // Pre-extracted at crawl time; null for documents stored as raw HTML
+    private Supplier<String> textSource;
+    private String text;
+    private List<String> h1s, h2s;
     private double tfscore, totalscore;
 
     public WebDocument(String docId, String url, String title, String html, Double popularity, int[] children) {
@@ -53,6 +58,26 @@ public class WebDocument {
         this.images = images;
     }
 
+    // Uses the crawler's extracted fields instead of parsing html
+    public void setExtracted(String text, List<String> h1s, List<String> h2s) {
+        setExtracted(() -> text, h1s, h2s);
+    }
+
+    // textSource is only called (once) when the text is first needed, e.g. to decompress it
+    public void setExtracted(Supplier<String> textSource, List<String> h1s, List<String> h2s) {
+        this.textSource = textSource;
+        this.text = null;
+        this.h1s = h1s;
+        this.h2s = h2s;
+    }
+
+    private String getText() {
+        if (text == null && textSource != null) {
+            text = textSource.get();
+        }
+        return text;
+    }
+
     // Get the parsed document, creating it if necessary
     private Document getParsedDocument() {
         if (parsedDocument == null && html != null) {
@@ -85,6 +110,9 @@ public class WebDocument {
 
     // Get content of all h1 elements
     public List<String> getH1s() {
+        if (textSource != null) {
+            return h1s != null ? h1s : new ArrayList<>();
+        }
         List<String> h1Texts = new ArrayList<>();
         Document doc = getParsedDocument();
 
@@ -99,6 +127,9 @@ public class WebDocument {
 
     // Get content of all h2 elements
     public List<String> getH2s() {
+        if (textSource != null) {
+            return h2s != null ? h2s : new ArrayList<>();
+        }
         List<String> h2Texts = new ArrayList<>();
         Document doc = getParsedDocument();
 
@@ -112,6 +143,9 @@ public class WebDocument {
     }
 
     public String getSoupedContent() {
+        if (textSource != null) {
+            return getText(); // already whitespace-normalized
+        }
         Document doc = getParsedDocument();
         if (doc != null) {
             return doc.text().replaceAll("\\s+", " ").trim();
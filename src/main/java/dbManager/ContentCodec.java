@@ -0,0 +1,195 @@
+package dbManager;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Compresses page bodies (text / legacy content) into BSON binary.
+//
+// Layout: [version][dictionary id: int][raw length: int][deflate stream]
+// The deflate stream is primed with a preset dictionary trained on stored pages,
+// so even short pages compress well. Dictionary 0 means plain deflate; every
+// dictionary ever used stays in the codec_dictionaries collection so old values decode.
+// A process that meets a dictionary trained after it started reloads the collection.
+public class ContentCodec {
+    public static final byte VERSION = 1;
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024; // deflate window
+    private static final int HEADER_SIZE = 9;
+    private static final long RELOAD_INTERVAL_MS = 10_000; // a truly missing id can't cost a query per body
+
+    private final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+    private volatile int currentDictionary = 0;
+    private volatile Runnable reloader; // re-reads codec_dictionaries
+    private long lastReload = 0;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_COMPRESSION));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    public void setReloader(Runnable reloader) {
+        this.reloader = reloader;
+    }
+
+    public void addDictionary(int id, byte[] dictionary) {
+        dictionaries.put(id, dictionary);
+    }
+
+    // New values are compressed with this dictionary
+    public void useDictionary(int id) {
+        if (id != 0 && !dictionaries.containsKey(id)) {
+            throw new IllegalArgumentException("Unknown content dictionary " + id);
+        }
+        currentDictionary = id;
+    }
+
+    public int getCurrentDictionary() {
+        return currentDictionary;
+    }
+
+    public Binary encode(String value) {
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        int dictionaryId = currentDictionary;
+
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        if (dictionaryId != 0) {
+            deflater.setDictionary(dictionaries.get(dictionaryId));
+        }
+        deflater.setInput(raw);
+        deflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        out.write(VERSION);
+        out.writeBytes(ByteBuffer.allocate(8).putInt(dictionaryId).putInt(raw.length).array());
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+        }
+        return new Binary(out.toByteArray());
+    }
+
+    public String decode(byte[] data) {
+        if (data.length < HEADER_SIZE || data[0] != VERSION) {
+            throw new IllegalArgumentException("Not an encoded page body");
+        }
+        ByteBuffer header = ByteBuffer.wrap(data, 1, HEADER_SIZE - 1);
+        int dictionaryId = header.getInt();
+        int rawLength = header.getInt();
+
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(data, HEADER_SIZE, data.length - HEADER_SIZE);
+        byte[] raw = new byte[rawLength];
+        try {
+            int offset = 0;
+            while (offset < rawLength) {
+                int n = inflater.inflate(raw, offset, rawLength - offset);
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        byte[] dictionary = dictionary(dictionaryId);
+                        if (dictionary == null) {
+                            throw new IllegalStateException("Missing content dictionary " + dictionaryId);
+                        }
+                        inflater.setDictionary(dictionary);
+                    } else if (inflater.finished() || inflater.needsInput()) {
+                        break;
+                    }
+                }
+                offset += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt page body", e);
+        }
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    // Dictionaries stored by another process after this one loaded them are fetched on first use
+    private byte[] dictionary(int id) {
+        byte[] dictionary = dictionaries.get(id);
+        if (dictionary != null || reloader == null) return dictionary;
+        synchronized (this) {
+            dictionary = dictionaries.get(id);
+            long now = System.currentTimeMillis();
+            if (dictionary == null && now - lastReload >= RELOAD_INTERVAL_MS) {
+                lastReload = now;
+                reloader.run();
+                dictionary = dictionaries.get(id);
+            }
+        }
+        return dictionary;
+    }
+
+    // Reads a field stored either as a plain string (older documents) or as encoded binary
+    public String readString(Document doc, String field) {
+        Object value = doc.get(field);
+        if (value == null) return null;
+        if (value instanceof Binary) {
+            return decode(((Binary) value).getData());
+        }
+        return value.toString();
+    }
+
+    // Replaces the given string fields of doc (if present) with their encoded form
+    public Document encodeFields(Document doc, String... fields) {
+        for (String field : fields) {
+            Object value = doc.get(field);
+            if (value instanceof String) {
+                doc.put(field, encode((String) value));
+            }
+        }
+        return doc;
+    }
+
+    // Builds a preset dictionary from sample page texts: the word 1-3 grams that save
+    // the most bytes (count * length), most valuable last since deflate favours short distances.
+    public static byte[] trainDictionary(List<String> samples, int maxSize) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String sample : samples) {
+            String[] words = sample.split("\\s+");
+            // Count each gram once per sample so one huge page can't dominate
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < words.length; i++) {
+                StringBuilder gram = new StringBuilder();
+                for (int n = 0; n < 3 && i + n < words.length; n++) {
+                    if (n > 0) gram.append(' ');
+                    gram.append(words[i + n]);
+                    if (gram.length() >= 4 && gram.length() <= 64) {
+                        String key = gram.toString();
+                        if (seen.add(key)) counts.merge(key, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+
+        List<Map.Entry<String, Integer>> grams = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > 1) grams.add(entry);
+        }
+        grams.sort((a, b) -> Long.compare(
+                (long) b.getValue() * b.getKey().length(), (long) a.getValue() * a.getKey().length()));
+
+        List<String> picked = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> gram : grams) {
+            int length = gram.getKey().getBytes(StandardCharsets.UTF_8).length + 1;
+            if (size + length > maxSize) continue;
+            picked.add(gram.getKey());
+            size += length;
+        }
+        Collections.reverse(picked);
+
+        StringBuilder dictionary = new StringBuilder(size);
+        for (String gram : picked) {
+            dictionary.append(gram).append(' ');
+        }
+        return dictionary.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,33 @@
+package dbManager;
+
+// One-off tool: trains a compression dictionary on stored pages, then rewrites
+// every page body still stored as a plain string in compressed form.
+//   ContentMigration [--samples N] [--batch N] [--no-train]
+public class ContentMigration {
+    public static void main(String[] args) {
+        int samples = 2000;
+        int batchSize = 500;
+        boolean train = true;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--samples" -> samples = Integer.parseInt(args[++i]);
+                case "--batch" -> batchSize = Integer.parseInt(args[++i]);
+                case "--no-train" -> train = false;
+                default -> System.err.println("Unknown argument: " + args[i]);
+            }
+        }
+
+        dbManager db = new dbManager();
+        if (train) {
+            long start = System.currentTimeMillis();
+            byte[] dictionary = ContentCodec.trainDictionary(db.sampleTexts(samples), ContentCodec.MAX_DICTIONARY_SIZE);
+            int id = db.saveDictionary(dictionary);
+            System.out.println("Trained dictionary " + id + " (" + dictionary.length + " bytes) in " +
+                    (System.currentTimeMillis() - start) + " ms");
+        }
+
+        long start = System.currentTimeMillis();
+        long migrated = db.compressStoredContent(batchSize);
+        System.out.println("Compressed " + migrated + " documents in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -3,12 +3,15 @@ package dbManager;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import Utils.SnippetGenerator;
 import com.mongodb.MongoException;
 import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
 import org.bson.types.ObjectId;
 
 import com.mongodb.ConnectionString;
@@ -20,10 +23,11 @@ import com.mongodb.client.model.*;
 
 import Backend.Image;
 import Utils.Posting;
+import Utils.PostingsSource;
 import Utils.WebDocument;
 import io.github.cdimascio.dotenv.Dotenv;
 
-public class dbManager {
+public class dbManager implements PostingsSource {
     private static final Dotenv dotenv = Dotenv.load();
     private static final String CONNECTION_STRING = dotenv.get("MONGO_URL");
     private static final String IMAGES_CONNECTION_STRING = dotenv.get("MONGO_IMAGES_URL");
@@ -38,11 +42,18 @@ public class dbManager {
     private MongoDatabase imagesDatabase;
     private final MongoCollection<Document> docsCollections;
     private final MongoCollection<Document> crawlerStateCollection;
+    private final MongoCollection<Document> aliasesCollection;
+    private final MongoCollection<Document> exchangeCollection;
     private final MongoCollection<Document> imageCollection;
     private final MongoCollection<Document> queryCollection;
 
     private static final int BULK_WRITE_BATCH_SIZE = 2500;
 
+    // Page bodies are stored compressed (see ContentCodec)
+    private static final String[] COMPRESSED_FIELDS = {"text", "content"};
+    private final ContentCodec codec = new ContentCodec();
+    private final MongoCollection<Document> dictionariesCollection;
+
     public dbManager() {
 
         mongoClient = MongoClients.create(CONNECTION_STRING);
@@ -59,50 +70,160 @@ public class dbManager {
         imageCollection = imagesDatabase.getCollection("images");
 
         crawlerStateCollection= database.getCollection("crawler_state");
+        aliasesCollection = database.getCollection("aliases");
+        exchangeCollection = database.getCollection("crawl_exchange");
+        dictionariesCollection = database.getCollection("codec_dictionaries");
+        loadDictionaries();
+        codec.setReloader(this::loadDictionaries);
         System.out.println("Connected to MongoDB Atlas.");
         addIndexes();
     }
 
+    private void loadDictionaries() {
+        int latest = 0;
+        for (Document doc : dictionariesCollection.find()) {
+            int id = doc.getInteger("_id");
+            codec.addDictionary(id, doc.get("dictionary", Binary.class).getData());
+            latest = Math.max(latest, id);
+        }
+        codec.useDictionary(latest);
+    }
+
+    public ContentCodec getCodec() {
+        return codec;
+    }
+
+    // Stores a new compression dictionary and compresses new bodies with it from now on
+    public int saveDictionary(byte[] dictionary) {
+        int id = codec.getCurrentDictionary() + 1;
+        dictionariesCollection.insertOne(new Document("_id", id)
+                .append("dictionary", new Binary(dictionary))
+                .append("timestamp", System.currentTimeMillis()));
+        codec.addDictionary(id, dictionary);
+        codec.useDictionary(id);
+        return id;
+    }
+
+    // Text of up to limit random stored pages, used to train a dictionary
+    public List<String> sampleTexts(int limit) {
+        List<String> samples = new ArrayList<>();
+        for (Document doc : docsCollections.aggregate(List.of(
+                Aggregates.sample(limit),
+                Aggregates.project(Projections.include("text", "content"))))) {
+            String body = doc.containsKey("text") ? codec.readString(doc, "text") : codec.readString(doc, "content");
+            if (body != null) samples.add(body);
+        }
+        return samples;
+    }
+
+    // Rewrites stored bodies that are still plain strings as compressed binary; returns how many changed
+    public long compressStoredContent(int batchSize) {
+        long migrated = 0;
+        List<WriteModel<Document>> bulkUpdates = new ArrayList<>();
+        for (Document doc : docsCollections.find(Filters.or(
+                        Filters.type("text", "string"), Filters.type("content", "string")))
+                .projection(Projections.include("_id", "text", "content"))
+                .batchSize(batchSize)) {
+            Document set = new Document();
+            for (String field : COMPRESSED_FIELDS) {
+                if (doc.get(field) instanceof String) {
+                    set.append(field, codec.encode(doc.getString(field)));
+                }
+            }
+            bulkUpdates.add(new UpdateOneModel<>(Filters.eq("_id", doc.get("_id")), new Document("$set", set)));
+            if (bulkUpdates.size() >= batchSize) {
+                bulkUpdateDocuments(bulkUpdates);
+                migrated += bulkUpdates.size();
+                bulkUpdates = new ArrayList<>();
+                System.out.println("Compressed " + migrated + " documents");
+            }
+        }
+        if (!bulkUpdates.isEmpty()) {
+            bulkUpdateDocuments(bulkUpdates);
+            migrated += bulkUpdates.size();
+        }
+        return migrated;
+    }
+
     private void addIndexes() {
         queryCollection.createIndex(Indexes.ascending("_id")); // Already exists for _id
         queryCollection.createIndex(Indexes.text("_id")); // For text search
         queryCollection.createIndex(Indexes.ascending("normalized"));
+        docsCollections.createIndex(Indexes.ascending("next_revisit")); // For the revisit scheduler
+        docsCollections.createIndex(Indexes.ascending("url")); // Lookups by URL (sitemap lastmod)
+        aliasesCollection.createIndex(Indexes.ascending("alias_of"));
+        exchangeCollection.createIndex(Indexes.ascending("to", "_id")); // Per-partition inbox
     }
 
     public void insertDocuments(List<Document> documents) {
         try {
             if (!documents.isEmpty()) {
-                docsCollections.insertMany(documents);
+                for (Document doc : documents) {
+                    codec.encodeFields(doc, COMPRESSED_FIELDS);
+                }
+                // Unordered: one bad document doesn't stop the rest of the batch
+                docsCollections.insertMany(documents, new InsertManyOptions().ordered(false));
                 System.out.println("Inserted " + documents.size() + " documents");
             }
+        } catch (MongoBulkWriteException e) {
+            System.err.println("Failed to insert " + e.getWriteErrors().size() + " of " + documents.size() + " documents: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("Failed to insert documents: " + e.getMessage());
         }
     }
 
-    public void saveCrawlerState(Queue<String> urlsToCrawl, Set<String> visited, int pageCount) {
+    // Near-duplicate pages: {url, alias_of: url of the stored original}
+    public void insertAliases(List<Document> aliases) {
+        try {
+            if (!aliases.isEmpty()) {
+                aliasesCollection.insertMany(aliases, new InsertManyOptions().ordered(false));
+                System.out.println("Recorded " + aliases.size() + " near-duplicate aliases");
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to insert aliases: " + e.getMessage());
+        }
+    }
+
+    // Streams the SimHash of every stored page
+    public void forEachSimHash(BiConsumer<Long, String> consumer) {
+        docsCollections.find(Filters.exists("simhash"))
+                .projection(Projections.include("url", "simhash"))
+                .forEach(doc -> consumer.accept(doc.getLong("simhash"), doc.getString("url")));
+    }
+
+    // Progress summary only: the frontier and visited set are checkpointed locally by the crawler
+    public void saveCrawlerState(long frontierSize, long visitedCount, int pageCount) {
+        saveCrawlerState("crawler_state", frontierSize, visitedCount, pageCount);
+    }
+
+    // stateId is "crawler_state" for a single crawler, "crawler_state-<partition>" otherwise
+    public void saveCrawlerState(String stateId, long frontierSize, long visitedCount, int pageCount) {
         try {
-            Document stateDoc = new Document("_id", "crawler_state")
-                    .append("urlsToCrawl", new ArrayList<>(urlsToCrawl))
-                    .append("visited", new ArrayList<>(visited))
+            Document stateDoc = new Document("_id", stateId)
+                    .append("frontierSize", frontierSize)
+                    .append("visitedCount", visitedCount)
                     .append("pageCount", pageCount)
                     .append("timestamp", System.currentTimeMillis());
 
             crawlerStateCollection.replaceOne(
-                    Filters.eq("_id", "crawler_state"),
+                    Filters.eq("_id", stateId),
                     stateDoc,
                     new ReplaceOptions().upsert(true)
             );
-            System.out.println("Saved crawler state: " + pageCount + " pages, " +
-                    urlsToCrawl.size() + " URLs to crawl, " + visited.size() + " visited");
+            System.out.println("Saved " + stateId + ": " + pageCount + " pages, " +
+                    frontierSize + " URLs to crawl, " + visitedCount + " visited");
         } catch (Exception e) {
             System.err.println("Failed to save crawler state: " + e.getMessage());
         }
     }
 
     public Map<String, Object> loadCrawlerState() {
+        return loadCrawlerState("crawler_state");
+    }
+
+    public Map<String, Object> loadCrawlerState(String stateId) {
         try {
-            Document stateDoc = crawlerStateCollection.find(Filters.eq("_id", "crawler_state")).first();
+            Document stateDoc = crawlerStateCollection.find(Filters.eq("_id", stateId)).first();
             if (stateDoc == null) {
                 System.out.println("No crawler state found, starting fresh");
                 return null;
@@ -122,38 +243,180 @@ public class dbManager {
         }
     }
 
+    // Links discovered by one crawler partition for hosts owned by another: one document per batch.
+    // cash[i] is the OPIC importance credit of urls[i]
+    public void forwardUrls(int toPartition, int fromPartition, List<String> urls, List<Double> cash) {
+        if (urls.isEmpty()) return;
+        try {
+            exchangeCollection.insertOne(new Document("to", toPartition)
+                    .append("from", fromPartition)
+                    .append("urls", urls)
+                    .append("cash", cash)
+                    .append("created", System.currentTimeMillis()));
+        } catch (Exception e) {
+            System.err.println("Failed to forward " + urls.size() + " URLs to partition " + toPartition + ": " + e.getMessage());
+        }
+    }
+
+    // Hands the oldest batches addressed to a partition to the consumer, then deletes them.
+    // A crash in between redelivers the batches, so consumers must tolerate duplicates.
+    public int receiveForwardedUrls(int partition, int maxBatches, BiConsumer<List<String>, List<Double>> consumer) {
+        List<Object> ids = new ArrayList<>();
+        int count = 0;
+        for (Document batch : exchangeCollection.find(Filters.eq("to", partition))
+                .sort(Sorts.ascending("_id"))
+                .limit(maxBatches)) {
+            List<String> urls = batch.getList("urls", String.class, new ArrayList<>());
+            consumer.accept(urls, batch.getList("cash", Double.class, new ArrayList<>()));
+            count += urls.size();
+            ids.add(batch.get("_id"));
+        }
+        if (!ids.isEmpty()) {
+            exchangeCollection.deleteMany(Filters.in("_id", ids));
+        }
+        return count;
+    }
+
+    // Stored pages whose next revisit time has passed (or that were crawled before revisits existed)
+    // Due pages in _id order, starting after afterId (null for the first page), so a
+    // caller paging through them never gets the same page twice, even if its update failed
+    public List<Document> getDocumentsDueForRevisit(long now, ObjectId afterId, int limit) {
+        Document projection = new Document("_id", 1)
+                .append("url", 1)
+                .append("etag", 1)
+                .append("last_modified", 1)
+                .append("content_hash", 1)
+                .append("revisit_interval", 1)
+                .append("change_count", 1);
+
+        Bson due = Filters.or(
+                Filters.lte("next_revisit", now),
+                Filters.exists("next_revisit", false));
+        return docsCollections.find(afterId == null ? due : Filters.and(Filters.gt("_id", afterId), due))
+                .projection(projection)
+                .sort(Sorts.ascending("_id"))
+                .limit(limit)
+                .into(new ArrayList<>());
+    }
+
+    // Pages changed since we last checked them (per their sitemap lastmod) become due for revisit now.
+    // Returns the number of pages rescheduled
+    public int expediteRevisits(Map<String, Long> lastModifiedByUrl) {
+        List<WriteModel<Document>> bulkUpdates = new ArrayList<>();
+        int modified = 0;
+        for (Map.Entry<String, Long> entry : lastModifiedByUrl.entrySet()) {
+            bulkUpdates.add(new UpdateOneModel<>(
+                    Filters.and(
+                            Filters.eq("url", entry.getKey()),
+                            Filters.lt("last_checked", entry.getValue())),
+                    Updates.set("next_revisit", 0L)
+            ));
+            if (bulkUpdates.size() >= BULK_WRITE_BATCH_SIZE) {
+                modified += bulkExpedite(bulkUpdates);
+                bulkUpdates = new ArrayList<>();
+            }
+        }
+        if (!bulkUpdates.isEmpty()) {
+            modified += bulkExpedite(bulkUpdates);
+        }
+        return modified;
+    }
+
+    private int bulkExpedite(List<WriteModel<Document>> bulkUpdates) {
+        try {
+            return docsCollections.bulkWrite(bulkUpdates, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        } catch (MongoBulkWriteException e) {
+            System.err.println("Failed to reschedule " + e.getWriteErrors().size() + " documents: " + e.getMessage());
+            return e.getWriteResult().getModifiedCount();
+        }
+    }
+
+    // One update document ($set / $unset ...) per document id, sent as unordered bulk writes
+    public void updateDocuments(Map<String, Document> updatesById) {
+        List<WriteModel<Document>> bulkUpdates = new ArrayList<>();
+        for (Map.Entry<String, Document> entry : updatesById.entrySet()) {
+            Document set = entry.getValue().get("$set", Document.class);
+            if (set != null) {
+                codec.encodeFields(set, COMPRESSED_FIELDS);
+            }
+            bulkUpdates.add(new UpdateOneModel<>(
+                    Filters.eq("_id", new ObjectId(entry.getKey())),
+                    entry.getValue()
+            ));
+            if (bulkUpdates.size() >= BULK_WRITE_BATCH_SIZE) {
+                bulkUpdateDocuments(bulkUpdates);
+                bulkUpdates = new ArrayList<>();
+            }
+        }
+        if (!bulkUpdates.isEmpty()) {
+            bulkUpdateDocuments(bulkUpdates);
+        }
+    }
+
+    private void bulkUpdateDocuments(List<WriteModel<Document>> bulkUpdates) {
+        try {
+            docsCollections.bulkWrite(bulkUpdates, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            System.err.println("Failed to update " + e.getWriteErrors().size() + " documents: " + e.getMessage());
+        }
+    }
+
     // Get documents with 'indexed' == false
     public ConcurrentHashMap<String, WebDocument> getNonIndexedDocuments(int limit, boolean isImages) {
-        ConcurrentHashMap<String, WebDocument> docs = new ConcurrentHashMap<>();
         String flag_filter = isImages ? "images_indexed" : "indexed";
+        return loadWebDocuments(docsCollections.find(Filters.eq(flag_filter, false)), limit, isImages);
+    }
+
+    // Text-indexed documents after afterId (null: from the start) in _id order, for
+    // rebuilding a local segment index from pages the tokens collection already covers
+    public ConcurrentHashMap<String, WebDocument> getIndexedDocuments(ObjectId afterId, int limit) {
+        Bson filter = afterId == null ? Filters.eq("indexed", true)
+                : Filters.and(Filters.eq("indexed", true), Filters.gt("_id", afterId));
+        return loadWebDocuments(docsCollections.find(filter).sort(Sorts.ascending("_id")), limit, false);
+    }
+
+    private ConcurrentHashMap<String, WebDocument> loadWebDocuments(FindIterable<Document> query, int limit,
+                                                                    boolean isImages) {
+        ConcurrentHashMap<String, WebDocument> docs = new ConcurrentHashMap<>();
 
         // Create the projection to include/exclude fields
         Document projection = new Document()
                 .append("_id", 1)
                 .append("url", 1)
-                .append("title", 1)
-                .append("content", 1);
+                .append("title", 1);
 
-        // Only include the images field if isImages is true
+        // The image indexer only needs the image list, the text indexer only the page body
         if (isImages) {
             projection.append("images", 1);
+        } else {
+            projection.append("content", 1)
+                    .append("text", 1)
+                    .append("h1s", 1)
+                    .append("h2s", 1);
         }
 
-        FindIterable<Document> results = docsCollections.find(
-                        Filters.eq(flag_filter, false)
-                )
+        FindIterable<Document> results = query
                 .projection(projection)
                 .limit(limit);
 
         for (Document doc : results) {
             String url = doc.getString("url");
             String title = doc.getString("title");
-            String content = doc.getString("content");
             String id = doc.getObjectId("_id").toString();
             // Get images only if isImages is true; otherwise, use null or empty list
             List<String> images = isImages ? doc.getList("images", String.class) : null;
 
-            WebDocument webDoc = new WebDocument(id, url, title, content, images);
+            Object text = doc.get("text");
+            WebDocument webDoc;
+            if (text != null) {
+                // Crawled with extracted fields: no HTML to parse, body decompressed on first use
+                webDoc = new WebDocument(id, url, title, null, images);
+                webDoc.setExtracted(() -> codec.readString(doc, "text"),
+                        doc.getList("h1s", String.class), doc.getList("h2s", String.class));
+            } else {
+                // Older documents only have the body HTML
+                webDoc = new WebDocument(id, url, title, codec.readString(doc, "content"), images);
+            }
             docs.put(id, webDoc);
         }
 
@@ -194,6 +457,9 @@ public class dbManager {
                     // Create document info with the positions map instead of frequency and positions list
                     Document docInfo = new Document("docId", id)
                             .append("positions", new Document(positions));
+                    if (posting.getPositions() != null) {
+                        docInfo.append("pos", new Binary(posting.getPositions())); // body token positions, delta varints
+                    }
 
                     // Create UpdateOneModel for this TermInfo
                     UpdateOneModel<Document> update = new UpdateOneModel<>(
@@ -236,6 +502,68 @@ public class dbManager {
         }
     }
 
+    // Drops the postings a previous indexing of these documents left in the tokens
+    // collection, so a changed page doesn't keep matching terms it no longer has.
+    // Documents remember their terms ("terms"); pages indexed before that was recorded
+    // but changed since (change_count > 0) are cleared with one scan of the collection.
+    public void removeOldPostings(Collection<String> docIds) {
+        List<ObjectId> objectIds = docIds.stream().map(ObjectId::new).collect(Collectors.toList());
+        List<UpdateOneModel<Document>> unsets = new ArrayList<>();
+        List<String> unlisted = new ArrayList<>();
+        int cleared = 0;
+        for (Document doc : docsCollections.find(Filters.and(Filters.in("_id", objectIds),
+                        Filters.or(Filters.exists("terms"), Filters.gt("change_count", 0))))
+                .projection(Projections.include("_id", "terms"))) {
+            String docId = doc.getObjectId("_id").toString();
+            List<String> terms = doc.getList("terms", String.class);
+            cleared++;
+            if (terms == null) {
+                unlisted.add(docId);
+                continue;
+            }
+            for (String term : terms) {
+                unsets.add(new UpdateOneModel<>(Filters.eq("_id", term), Updates.unset("docs." + docId)));
+            }
+        }
+
+        for (int i = 0; i < unsets.size(); i += BULK_WRITE_BATCH_SIZE) {
+            tokensCollection.bulkWrite(unsets.subList(i, Math.min(i + BULK_WRITE_BATCH_SIZE, unsets.size())),
+                    new BulkWriteOptions().ordered(false));
+        }
+        if (!unlisted.isEmpty()) {
+            List<Bson> holders = new ArrayList<>();
+            List<Bson> fields = new ArrayList<>();
+            for (String docId : unlisted) {
+                holders.add(Filters.exists("docs." + docId));
+                fields.add(Updates.unset("docs." + docId));
+            }
+            tokensCollection.updateMany(Filters.or(holders), Updates.combine(fields));
+        }
+        if (cleared > 0) {
+            System.out.println("Removed old postings of " + cleared + " re-indexed documents");
+        }
+    }
+
+    // Records which terms each document was indexed under, for removeOldPostings
+    public void saveDocumentTerms(Map<String, List<Posting>> invertedIndex) {
+        Map<String, List<String>> termsByDoc = new HashMap<>();
+        for (Map.Entry<String, List<Posting>> entry : invertedIndex.entrySet()) {
+            for (Posting posting : entry.getValue()) {
+                termsByDoc.computeIfAbsent(posting.getDocId(), k -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        List<UpdateOneModel<Document>> updates = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : termsByDoc.entrySet()) {
+            updates.add(new UpdateOneModel<>(Filters.eq("_id", new ObjectId(entry.getKey())),
+                    Updates.set("terms", entry.getValue())));
+        }
+        for (int i = 0; i < updates.size(); i += BULK_WRITE_BATCH_SIZE) {
+            docsCollections.bulkWrite(updates.subList(i, Math.min(i + BULK_WRITE_BATCH_SIZE, updates.size())),
+                    new BulkWriteOptions().ordered(false));
+        }
+    }
+
+    @Override
     public Set<String> getDocIdsForTokens(List<String> tokens, boolean intersect) {
         try {
             // Use a Set to ensure unique docIds
@@ -269,6 +597,7 @@ public class dbManager {
         }
     }
 
+    @Override
     public Map<String, List<Posting>> getPostingsForTokens(List<String> tokens, Set<String> docIdSet) {
         try {
             // Use a Set to ensure unique docIds
@@ -316,6 +645,33 @@ public class dbManager {
         }
     }
 
+    // Encoded body positions (PositionCodec) of each token in each of the given documents
+    // that contain it. Documents indexed before positions were recorded map to null.
+    @Override
+    public Map<String, Map<String, byte[]>> getPositionsForTokens(Collection<String> tokens, Set<String> docIds) {
+        Map<String, Map<String, byte[]>> positions = new HashMap<>();
+        try {
+            for (Document doc : tokensCollection.find(Filters.in("_id", tokens))
+                    .projection(new Document("docs", 1).append("_id", 1))) {
+                String token = doc.getString("_id");
+                Document docs = doc.get("docs", Document.class);
+                Map<String, byte[]> byDoc = new HashMap<>();
+                if (docs != null) {
+                    for (Map.Entry<String, Object> entry : docs.entrySet()) {
+                        if (!docIds.contains(entry.getKey())) continue;
+                        Object pos = ((Document) entry.getValue()).get("pos");
+                        byDoc.put(entry.getKey(), pos instanceof Binary ? ((Binary) pos).getData() : null);
+                    }
+                }
+                positions.put(token, byDoc);
+            }
+        } catch (Exception e) {
+            System.err.println("Error retrieving positions: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return positions;
+    }
+
     public int getTotalDocCount() {
         long count = docsCollections.countDocuments();
         return (int) count;
@@ -329,14 +685,32 @@ public class dbManager {
                 .map(ObjectId::new)
                 .collect(Collectors.toList());
 
+        // The phrase is user input: match it literally, not as a regex
+        String quoted = Pattern.quote(phrase);
+
+        // Plain-string bodies (not migrated yet) are still matched by the server
         for (Document doc : docsCollections.find(
                 Filters.and(Filters.in("_id", objectIds),
-                        Filters.regex("content", phrase, "i"))).projection(Projections.include("_id")))
+                        Filters.or(Filters.regex("text", quoted, "i"), Filters.regex("content", quoted, "i"))))
+                .projection(Projections.include("_id")))
         {
             String id = doc.getObjectId("_id").toString();
             filteredDocIds.add(id);
         }
 
+        // Compressed bodies travel compressed and are matched here
+        Pattern pattern = Pattern.compile(quoted, Pattern.CASE_INSENSITIVE);
+        for (Document doc : docsCollections.find(
+                Filters.and(Filters.in("_id", objectIds),
+                        Filters.or(Filters.type("text", "binData"), Filters.type("content", "binData"))))
+                .projection(Projections.include("_id", "text", "content")))
+        {
+            String body = doc.containsKey("text") ? codec.readString(doc, "text") : codec.readString(doc, "content");
+            if (body != null && pattern.matcher(body).find()) {
+                filteredDocIds.add(doc.getObjectId("_id").toString());
+            }
+        }
+
         return filteredDocIds;
     }
 
@@ -372,11 +746,13 @@ public class dbManager {
 
         System.out.println("WHERE IS MY CANDODO 2");
         for (Document doc : docsCollections.find(Filters.in("_id", objectIds)).projection(
-                Projections.include("_id", "content", "images"))) {
+                Projections.include("_id", "content", "text", "blocks", "images"))) {
             String id = doc.getObjectId("_id").toString();
-            String content = doc.getString("content");
+            String text = codec.readString(doc, "text");
             List<String> images = doc.getList("images", String.class);
-            String snippet = SnippetGenerator.getSnippet(content, query, snippet_length);
+            String snippet = text != null
+                    ? SnippetGenerator.getSnippet(text, doc.getList("blocks", Integer.class), query, snippet_length)
+                    : SnippetGenerator.getSnippet(codec.readString(doc, "content"), query, snippet_length);
             WebDocument webdoc = new WebDocument(id, "", "", snippet, images);
 
             docs.put(id , webdoc);
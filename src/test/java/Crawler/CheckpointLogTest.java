@@ -0,0 +1,99 @@
+package Crawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointLogTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoversUpToATornRecord() throws IOException {
+        CheckpointLog log = durableRun();
+        Path wal = dir.resolve("wal-0.log");
+        long durable = Files.size(wal);
+        log.logEnqueue("https://example.com/d");
+        log.close();
+        // crash in the middle of the last record: its header and half the payload made it to disk
+        long full = Files.size(wal);
+        try (RandomAccessFile file = new RandomAccessFile(wal.toFile(), "rw")) {
+            file.setLength(durable + (full - durable) / 2);
+        }
+
+        CheckpointLog.State state = recover();
+        assertEquals(List.of("https://example.com/b", "https://example.com/c"), List.copyOf(state.frontier.values()));
+        assertEquals(List.of(VisitedStore.fingerprint("https://example.com/a")), state.visited);
+        assertEquals(1, state.pageCount);
+        assertEquals(5, state.records);
+    }
+
+    @Test
+    void stopsAtACorruptRecord() throws IOException {
+        CheckpointLog log = durableRun();
+        Path wal = dir.resolve("wal-0.log");
+        long durable = Files.size(wal);
+        log.logEnqueue("https://example.com/d");
+        log.logEnqueue("https://example.com/e");
+        log.close();
+        try (RandomAccessFile file = new RandomAccessFile(wal.toFile(), "rw")) {
+            file.seek(durable + 8); // first payload byte, after length and CRC
+            file.write(0x7F);
+        }
+
+        CheckpointLog.State state = recover();
+        assertEquals(5, state.records);
+        assertFalse(state.frontier.containsValue("https://example.com/e"), "records after a bad CRC are dropped");
+    }
+
+    @Test
+    void laterRunsReplayInOrder() throws IOException {
+        durableRun().close();
+        CheckpointLog second = new CheckpointLog(dir);
+        assertTrue(second.hasData());
+        second.logVisit("https://example.com/b");
+        second.flush(2);
+        second.close();
+
+        CheckpointLog.State state = recover();
+        assertEquals(List.of("https://example.com/c"), List.copyOf(state.frontier.values()));
+        assertEquals(2, state.visited.size());
+        assertEquals(2, state.pageCount);
+    }
+
+    @Test
+    void emptyDirectoryHasNoData() throws IOException {
+        CheckpointLog log = new CheckpointLog(dir);
+        assertFalse(log.hasData());
+        assertEquals(0, log.recover().records);
+        log.close();
+        assertFalse(new CheckpointLog(dir).hasData(), "an empty log of an earlier run doesn't count");
+    }
+
+    // a, b and c enqueued, a visited, one page stored and synced
+    private CheckpointLog durableRun() throws IOException {
+        CheckpointLog log = new CheckpointLog(dir);
+        log.logEnqueue("https://example.com/a");
+        log.logEnqueue("https://example.com/b");
+        log.logEnqueue("https://example.com/c");
+        log.logVisit("https://example.com/a");
+        log.flush(1);
+        return log;
+    }
+
+    // What the next run sees
+    private CheckpointLog.State recover() throws IOException {
+        CheckpointLog log = new CheckpointLog(dir);
+        assertTrue(log.hasData());
+        CheckpointLog.State state = log.recover();
+        log.close();
+        return state;
+    }
+}
@@ -0,0 +1,61 @@
+package Crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RobotsRulesTest {
+
+    @Test
+    void longestMatchWins() {
+        RobotsRules rules = parse("User-agent: *\nDisallow: /shop\nAllow: /shop/public\nDisallow: /shop/public/drafts\n");
+        assertFalse(rules.isAllowed("/shop/cart"));
+        assertTrue(rules.isAllowed("/shop/public/item?id=3"));
+        assertFalse(rules.isAllowed("/shop/public/drafts/1"));
+        assertTrue(rules.isAllowed("/about"));
+    }
+
+    @Test
+    void longerDisallowBeatsShorterAllow() {
+        RobotsRules rules = parse("User-agent: *\nAllow: /\nDisallow: /private\n");
+        assertFalse(rules.isAllowed("/private/x"));
+        assertTrue(rules.isAllowed("/privacy"));
+    }
+
+    @Test
+    void allowWinsATie() {
+        RobotsRules rules = parse("User-agent: *\nDisallow: /page\nAllow: /page\n");
+        assertTrue(rules.isAllowed("/page/1"));
+        rules = parse("User-agent: *\nDisallow: /*.php\nAllow: /a.php\n"); // both 6 characters
+        assertTrue(rules.isAllowed("/a.php"));
+        assertFalse(rules.isAllowed("/c/d.php"));
+    }
+
+    @Test
+    void wildcardsAndEndAnchor() {
+        RobotsRules rules = parse("User-agent: *\nDisallow: /*.pdf$\nDisallow: /*sessionid=\nAllow: /docs/*.pdf$\n");
+        assertFalse(rules.isAllowed("/files/report.pdf"));
+        assertTrue(rules.isAllowed("/files/report.pdf.html"));
+        assertTrue(rules.isAllowed("/docs/manual.pdf"));
+        assertFalse(rules.isAllowed("/list?page=2&sessionid=abc"));
+        assertTrue(rules.isAllowed("/list?page=2"));
+    }
+
+    @Test
+    void ownGroupReplacesTheStarGroup() {
+        String content = "User-agent: *\nDisallow: /\n\nUser-agent: Falcony\nUser-agent: other\nDisallow: /tmp\nCrawl-delay: 2.5\n"
+                + "Sitemap: https://example.com/sitemap.xml\n";
+        RobotsRules rules = parse(content);
+        assertTrue(rules.isAllowed("/index.html"));
+        assertFalse(rules.isAllowed("/tmp/a"));
+        assertEquals(2500, rules.getCrawlDelayMillis());
+        assertEquals(List.of("https://example.com/sitemap.xml"), rules.getSitemaps());
+        assertFalse(RobotsRules.parse(content, "somebot").isAllowed("/index.html"));
+    }
+
+    private static RobotsRules parse(String content) {
+        return RobotsRules.parse(content, "falcony");
+    }
+}
@@ -0,0 +1,70 @@
+package Indexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockCodecTest {
+
+    @Test
+    void gapsWithExceptionsRoundTrip() throws IOException {
+        Random random = new Random(42);
+        int[] gaps = new int[BlockCodec.BLOCK_SIZE];
+        for (int i = 0; i < gaps.length; i++) gaps[i] = 1 + random.nextInt(8);
+        // a few gaps far above the packed width end up as exceptions
+        gaps[3] = 1 << 20;
+        gaps[64] = 70_000;
+        gaps[127] = Integer.MAX_VALUE;
+
+        assertArrayEquals(gaps, roundTrip(gaps, gaps.length));
+    }
+
+    @Test
+    void partialBlockRoundTrip() throws IOException {
+        int[] gaps = {5, 1, 1, 300, 2, 0, 7};
+        assertArrayEquals(gaps, roundTrip(gaps, gaps.length));
+        assertArrayEquals(new int[]{9}, roundTrip(new int[]{9}, 1));
+    }
+
+    @Test
+    void wideBlockWithoutExceptions() throws IOException {
+        int[] gaps = new int[BlockCodec.BLOCK_SIZE];
+        for (int i = 0; i < gaps.length; i++) gaps[i] = Integer.MAX_VALUE - i;
+        assertArrayEquals(gaps, roundTrip(gaps, gaps.length));
+    }
+
+    @Test
+    void freqsRoundTrip() throws IOException {
+        int[][] cases = {{0, 0, 0, 0}, {1, 2, 3, 40}, {3, 3, 3, 3}, {250, 0, 17, 100_000}, {0, 5, 0, -2}};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int[] c : cases) BlockCodec.writeFreqs(out, c[0], c[1], c[2], c[3]);
+
+        BlockCodec.Input in = new BlockCodec.Input(ByteBuffer.wrap(bytes.toByteArray()), 0);
+        int[] read = new int[4];
+        for (int[] c : cases) {
+            BlockCodec.readFreqs(in, read);
+            assertArrayEquals(c, read);
+        }
+        assertEquals(bytes.size(), in.position);
+    }
+
+    private static int[] roundTrip(int[] gaps, int count) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BlockCodec.writeGaps(out, gaps, count);
+        out.writeByte(0x5A); // whatever follows the block must be left unread
+
+        BlockCodec.Input in = new BlockCodec.Input(ByteBuffer.wrap(bytes.toByteArray()), 0);
+        int[] read = new int[count];
+        BlockCodec.readGaps(in, read, count);
+        assertEquals(bytes.size() - 1, in.position);
+        return read;
+    }
+}
@@ -0,0 +1,85 @@
+package Indexer;
+
+import Utils.Posting;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentIndexTest {
+    @TempDir
+    Path dir;
+
+    private static final String A = docId(1);
+    private static final String B = docId(2);
+
+    @Test
+    void newerSegmentMasksReindexedDocument() throws IOException {
+        SegmentIndex index = new SegmentIndex(dir, true);
+        index.addBatch(List.of(A, B), Map.of(
+                "apple", List.of(posting(A, 3), posting(B, 1)),
+                "cherry", List.of(posting(A, 2))));
+        // A is re-indexed and no longer mentions apple or cherry
+        index.addBatch(List.of(A), Map.of("banana", List.of(posting(A, 5))));
+        assertQueries(index);
+
+        // eight more batches so the ten small segments get merged into one
+        for (int i = 0; i < 8; i++) {
+            String filler = docId(100 + i);
+            index.addBatch(List.of(filler), Map.of("filler", List.of(posting(filler, 1))));
+        }
+        index.close();
+
+        SegmentIndex reader = new SegmentIndex(dir, false);
+        assertQueries(reader);
+        assertEquals(8, reader.getDocIdsForTokens(List.of("filler"), false).size());
+        reader.close();
+
+        new SegmentIndex(dir, true).close(); // the writer deletes the merged-away segments
+        assertEquals(1, segmentDirs().size(), "segments left after the merge: " + segmentDirs());
+        SegmentIndex merged = new SegmentIndex(dir, false);
+        assertQueries(merged);
+        merged.close();
+    }
+
+    @Test
+    void postingsOfTheNewestVersion() throws IOException {
+        SegmentIndex index = new SegmentIndex(dir, true);
+        index.addBatch(List.of(A), Map.of("apple", List.of(posting(A, 3))));
+        index.addBatch(List.of(A), Map.of("apple", List.of(posting(A, 7))));
+
+        List<Posting> postings = index.getPostingsForTokens(List.of("apple"), Set.of(A)).get("apple");
+        assertEquals(1, postings.size());
+        assertEquals(7, postings.get(0).getFrequency("body"));
+        index.close();
+    }
+
+    private static void assertQueries(SegmentIndex index) {
+        assertEquals(Set.of(B), index.getDocIdsForTokens(List.of("apple"), false));
+        assertEquals(Set.of(A), index.getDocIdsForTokens(List.of("banana"), false));
+        assertEquals(Set.of(), index.getDocIdsForTokens(List.of("cherry"), false));
+        assertEquals(Set.of(), index.getDocIdsForTokens(List.of("apple", "banana"), true));
+    }
+
+    private List<String> segmentDirs() throws IOException {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> found = Files.newDirectoryStream(dir, "seg_*")) {
+            for (Path path : found) names.add(path.getFileName().toString());
+        }
+        return names;
+    }
+
+    private static Posting posting(String docId, int body) {
+        return new Posting(docId, 0, 0, 0, body);
+    }
+
+    private static String docId(int n) {
+        return String.format("%024x", n);
+    }
+}
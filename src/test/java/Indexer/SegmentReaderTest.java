@@ -0,0 +1,86 @@
+package Indexer;
+
+import Utils.PositionCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentReaderTest {
+    @TempDir
+    Path dir;
+
+    // every third doc, so the 334 postings span three blocks
+    private final int[] docs = IntStream.range(0, 1000).toArray();
+    private final int[] termDocs = IntStream.range(0, 1000).filter(d -> d % 3 == 0).toArray();
+
+    @Test
+    void advanceAcrossBlockBoundaries() throws IOException {
+        SegmentReader reader = writeSegment();
+        int lastOfFirstBlock = termDocs[BlockCodec.BLOCK_SIZE - 1];
+
+        SegmentReader.Postings postings = reader.postings(reader.findTerm("term"));
+        assertEquals(termDocs.length, postings.docFreq());
+        assertTrue(postings.advance(1));
+        assertEquals(3, postings.doc());
+        assertTrue(postings.advance(lastOfFirstBlock));
+        assertEquals(lastOfFirstBlock, postings.doc());
+        assertTrue(postings.advance(lastOfFirstBlock + 1)); // into the second block
+        assertEquals(lastOfFirstBlock + 3, postings.doc());
+        assertTrue(postings.advance(0)); // never moves back
+        assertEquals(lastOfFirstBlock + 3, postings.doc());
+        assertTrue(postings.advance(termDocs[2 * BlockCodec.BLOCK_SIZE + 5])); // skips a whole block
+        assertEquals(termDocs[2 * BlockCodec.BLOCK_SIZE + 5], postings.doc());
+        assertTrue(postings.next());
+        assertEquals(termDocs[2 * BlockCodec.BLOCK_SIZE + 6], postings.doc());
+        assertFalse(postings.advance(termDocs[termDocs.length - 1] + 1));
+        assertFalse(postings.next());
+    }
+
+    @Test
+    void advanceMatchesLinearScan() throws IOException {
+        SegmentReader reader = writeSegment();
+        for (int step : new int[]{1, 7, 128, 383, 500}) {
+            SegmentReader.Postings postings = reader.postings(reader.findTerm("term"));
+            for (int target = 0; target < 1000; target += step) {
+                int expected = SegmentReader.lowerBound(termDocs, 0, target);
+                if (expected == termDocs.length) {
+                    assertFalse(postings.advance(target), "advance(" + target + ")");
+                    break;
+                }
+                assertTrue(postings.advance(target), "advance(" + target + ")");
+                int doc = termDocs[expected];
+                assertEquals(doc, postings.doc(), "advance(" + target + ")");
+                assertEquals(doc % 4, postings.title());
+                assertEquals(doc, postings.body());
+                assertArrayEquals(new int[]{doc, doc + 2}, PositionCodec.decode(postings.positions()));
+            }
+        }
+    }
+
+    @Test
+    void missingTerm() throws IOException {
+        SegmentReader reader = writeSegment();
+        assertTrue(reader.findTerm("absent") < 0);
+        assertEquals(docs.length, reader.docCount());
+    }
+
+    private SegmentReader writeSegment() throws IOException {
+        Path target = dir.resolve("seg_0_0");
+        try (SegmentWriter writer = new SegmentWriter(dir.resolve(".tmp_seg_0_0"), target, docs)) {
+            writer.startTerm("other");
+            writer.addPosting(7, 1, 0, 0, 1, null);
+            writer.startTerm("term");
+            for (int doc : termDocs) {
+                writer.addPosting(doc, doc % 4, 0, 1, doc, PositionCodec.encode(new int[]{doc, doc + 2}, 0, 2));
+            }
+            writer.finish();
+        }
+        return new SegmentReader(target, 0, 0);
+    }
+}
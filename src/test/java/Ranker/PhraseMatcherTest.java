@@ -0,0 +1,47 @@
+package Ranker;
+
+import Utils.Tokenizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhraseMatcherTest {
+
+    @Test
+    void adjacentTerms() {
+        List<Tokenizer.PositionedToken> phrase = List.of(token("new", 0), token("york", 1));
+        assertTrue(PhraseMatcher.containsPhrase(phrase, new int[][]{{2, 10, 40}, {11, 50}}));
+        assertFalse(PhraseMatcher.containsPhrase(phrase, new int[][]{{2, 10, 40}, {1, 12, 42}}));
+    }
+
+    @Test
+    void stopWordGapIsKept() {
+        // "bank of america": "of" is dropped but still takes position 1
+        List<Tokenizer.PositionedToken> phrase = List.of(token("bank", 0), token("america", 2));
+        assertTrue(PhraseMatcher.containsPhrase(phrase, new int[][]{{7, 30}, {9}}));
+        assertFalse(PhraseMatcher.containsPhrase(phrase, new int[][]{{7, 30}, {8, 31}}));
+    }
+
+    @Test
+    void anchorsOnTheRarestTerm() {
+        List<Tokenizer.PositionedToken> phrase = List.of(token("the", 3), token("rare", 4), token("word", 5));
+        int[] common = new int[500];
+        for (int i = 0; i < common.length; i++) common[i] = 2 * i + 1;
+        assertFalse(PhraseMatcher.containsPhrase(phrase, new int[][]{common, {101}, common}));
+        assertFalse(PhraseMatcher.containsPhrase(phrase, new int[][]{{99, 100}, {101}, common}));
+        assertTrue(PhraseMatcher.containsPhrase(phrase, new int[][]{{99, 100}, {101}, {102, 103}}));
+    }
+
+    @Test
+    void repeatedTerm() {
+        List<Tokenizer.PositionedToken> phrase = List.of(token("bye", 0), token("bye", 1));
+        assertTrue(PhraseMatcher.containsPhrase(phrase, new int[][]{{4, 5}, {4, 5}}));
+        assertFalse(PhraseMatcher.containsPhrase(phrase, new int[][]{{4, 6}, {4, 6}}));
+    }
+
+    private static Tokenizer.PositionedToken token(String term, int position) {
+        return new Tokenizer.PositionedToken(term, position);
+    }
+}
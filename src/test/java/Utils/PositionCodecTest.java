@@ -0,0 +1,27 @@
+package Utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionCodecTest {
+
+    @Test
+    void roundTrip() {
+        int[] positions = {0, 1, 5, 127, 128, 300, 16_384, 2_000_000};
+        assertArrayEquals(positions, PositionCodec.decode(PositionCodec.encode(positions, 0, positions.length)));
+    }
+
+    @Test
+    void encodesASlice() {
+        int[] positions = {4, 9, 10, 11, 40};
+        assertArrayEquals(new int[]{9, 10, 11}, PositionCodec.decode(PositionCodec.encode(positions, 1, 3)));
+        assertEquals(0, PositionCodec.decode(PositionCodec.encode(positions, 2, 0)).length);
+    }
+
+    @Test
+    void smallGapsTakeOneByte() {
+        int[] positions = {3, 20, 50, 170};
+        assertEquals(positions.length, PositionCodec.encode(positions, 0, positions.length).length);
+    }
+}